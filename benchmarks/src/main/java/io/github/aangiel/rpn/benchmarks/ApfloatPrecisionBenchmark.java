@@ -0,0 +1,66 @@
+package io.github.aangiel.rpn.benchmarks;
+
+import io.github.aangiel.rpn.Calculator;
+import io.github.aangiel.rpn.context.impl.ApfloatCalculatorContext;
+import io.github.aangiel.rpn.impl.CalculatorImpl;
+import org.apfloat.Apfloat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calculation with {@link ApfloatCalculatorContext} of different precisions, where cost of arithmetic
+ * grows with number of digits.
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApfloatPrecisionBenchmark {
+
+    private static final String FUNCTIONS = "2 sqrt pi * e + 3 exp / 5 log + 0.5 sin *";
+
+    @Param({"10", "100", "1000"})
+    public long precision;
+
+    private String arithmetic;
+    private Calculator<Apfloat> calculator;
+
+    @Setup
+    public void setUp() {
+        // Literals with fractions, so they have as many digits as precision allows
+        arithmetic = Equations.generate(Equations.Shape.WIDE, 64).replace(" 7 ", " 7.1 ") + " 3 /";
+        calculator = new CalculatorImpl<>(new ApfloatCalculatorContext(precision));
+    }
+
+    @Benchmark
+    public Apfloat calculateArithmetic() {
+        return calculator.calculate(arithmetic);
+    }
+
+    @Benchmark
+    public Apfloat calculateFunctions() {
+        return calculator.calculate(FUNCTIONS);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Apfloat calculateFunctionsMultiThreaded() {
+        return calculator.calculate(FUNCTIONS);
+    }
+}
@@ -0,0 +1,52 @@
+package io.github.aangiel.rpn.benchmarks;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.ProfilerConfig;
+
+import java.io.IOException;
+
+/**
+ * Runs benchmarks with the same command line options as {@link Main}, but unless they are
+ * given explicitly, results are written as JSON to {@value #DEFAULT_RESULT_FILE}, so results of different
+ * versions can be compared, and allocation is measured with {@link GCProfiler}.
+ * Example usage:<br>
+ * <pre>
+ *     java -jar target/benchmarks.jar CalculatorBenchmark -p context=double -rff 0.9.1.json
+ * </pre>
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+public final class BenchmarkRunner {
+
+    public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws IOException, CommandLineOptionException, RunnerException {
+        var commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+                || commandLine.shouldListProfilers() || commandLine.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+
+        var options = new OptionsBuilder().parent(commandLine);
+        if (!commandLine.getResultFormat().hasValue())
+            options.resultFormat(ResultFormatType.JSON);
+        if (!commandLine.getResult().hasValue())
+            options.result(DEFAULT_RESULT_FILE);
+        if (commandLine.getProfilers().stream().map(ProfilerConfig::getKlass)
+                .noneMatch(profiler -> profiler.equals("gc") || profiler.equals(GCProfiler.class.getName())))
+            options.addProfiler(GCProfiler.class);
+
+        new Runner(options.build()).run();
+    }
+}
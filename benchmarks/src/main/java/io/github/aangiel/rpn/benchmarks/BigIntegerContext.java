@@ -0,0 +1,42 @@
+package io.github.aangiel.rpn.benchmarks;
+
+import io.github.aangiel.rpn.context.impl.AbstractCalculatorContext;
+
+import java.math.BigInteger;
+import java.util.function.Function;
+
+/**
+ * Context defined outside of the library, like contexts of library users.
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+public final class BigIntegerContext extends AbstractCalculatorContext<BigInteger> {
+
+    @Override
+    public Function<String, BigInteger> getNumberConstructor() {
+        return BigInteger::new;
+    }
+
+    @Override
+    public BigIntegerContext self() {
+        return this;
+    }
+
+    @Override
+    protected void populateDefaultOperations() {
+        addBinaryOperator("+", BigInteger::add);
+        addBinaryOperator("-", BigInteger::subtract);
+        addBinaryOperator("*", BigInteger::multiply);
+    }
+
+    @Override
+    protected void populateConstants() {
+        addConstant("ten", () -> BigInteger.TEN);
+    }
+
+    @Override
+    protected void populateMathFunctions() {
+        addUnaryOperator("negate", BigInteger::negate);
+        addBinaryOperator("max", BigInteger::max);
+    }
+}
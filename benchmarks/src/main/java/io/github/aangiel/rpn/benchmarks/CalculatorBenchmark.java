@@ -0,0 +1,97 @@
+package io.github.aangiel.rpn.benchmarks;
+
+import io.github.aangiel.rpn.Calculator;
+import io.github.aangiel.rpn.CompiledExpression;
+import io.github.aangiel.rpn.impl.CalculatorImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calculation of equations of every shape and size with every built-in context and with context defined
+ * outside of the library. Calculators are shared by all threads, like the ones from
+ * {@link io.github.aangiel.rpn.CalculatorSupplier}.
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CalculatorBenchmark {
+
+    @Param({"double", "bigdecimal", "apfloat", "custom"})
+    public String context;
+
+    @Param({"CHAIN", "DEEP", "WIDE"})
+    public Equations.Shape shape;
+
+    /**
+     * Short and long equations
+     */
+    @Param({"8", "512"})
+    public int operands;
+
+    private String equation;
+    private StringBuilder equationBuilder;
+    private Calculator<? extends Number> calculator;
+    private Calculator<? extends Number> calculatorWithoutCache;
+    private CompiledExpression<? extends Number> compiled;
+
+    @Setup
+    public void setUp() {
+        equation = Equations.generate(shape, operands);
+        equationBuilder = new StringBuilder(equation);
+        calculator = Calculators.create(context, CalculatorImpl.DEFAULT_PLAN_CACHE_CAPACITY);
+        calculatorWithoutCache = Calculators.create(context, 0);
+        compiled = calculator.compile(equation);
+    }
+
+    /**
+     * The same equation calculated repeatedly, so it's compiled once and then taken from cache
+     */
+    @Benchmark
+    public Number calculate() {
+        return calculator.calculate(equation);
+    }
+
+    /**
+     * Equation compiled at every calculation
+     */
+    @Benchmark
+    public Number calculateWithoutCache() {
+        return calculatorWithoutCache.calculate(equation);
+    }
+
+    /**
+     * Equation evaluated in place, without copying it into String and without compiling it
+     */
+    @Benchmark
+    public Number calculateCharSequence() {
+        return calculatorWithoutCache.calculate(equationBuilder);
+    }
+
+    @Benchmark
+    public Number evaluateCompiled() {
+        return compiled.evaluate();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Number calculateMultiThreaded() {
+        return calculator.calculate(equation);
+    }
+}
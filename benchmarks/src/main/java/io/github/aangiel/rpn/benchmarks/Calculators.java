@@ -0,0 +1,41 @@
+package io.github.aangiel.rpn.benchmarks;
+
+import io.github.aangiel.rpn.Calculator;
+import io.github.aangiel.rpn.context.impl.ApfloatCalculatorContext;
+import io.github.aangiel.rpn.context.impl.BigDecimalCalculatorContext;
+import io.github.aangiel.rpn.context.impl.DoubleCalculatorContext;
+import io.github.aangiel.rpn.impl.CalculatorImpl;
+import io.github.aangiel.rpn.impl.DoubleCalculatorImpl;
+
+/**
+ * Creates new calculators, so benchmarks don't share state through
+ * {@link io.github.aangiel.rpn.CalculatorSupplier}.
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+final class Calculators {
+
+    private Calculators() {
+    }
+
+    /**
+     * @param context           one of: double, bigdecimal, apfloat, custom
+     * @param planCacheCapacity maximum number of compiled equations kept by calculator, 0 disables the cache
+     * @return new calculator with new context
+     * @throws IllegalArgumentException if context is unknown
+     */
+    static Calculator<? extends Number> create(String context, int planCacheCapacity) {
+        switch (context) {
+            case "double":
+                return new DoubleCalculatorImpl(new DoubleCalculatorContext(), planCacheCapacity);
+            case "bigdecimal":
+                return new CalculatorImpl<>(new BigDecimalCalculatorContext(), planCacheCapacity);
+            case "apfloat":
+                return new CalculatorImpl<>(new ApfloatCalculatorContext(), planCacheCapacity);
+            case "custom":
+                return new CalculatorImpl<>(new BigIntegerContext(), planCacheCapacity);
+            default:
+                throw new IllegalArgumentException(context);
+        }
+    }
+}
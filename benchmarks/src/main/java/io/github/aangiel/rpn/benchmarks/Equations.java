@@ -0,0 +1,81 @@
+package io.github.aangiel.rpn.benchmarks;
+
+/**
+ * Generator of equations of given shape and size. Equations use only integer literals and
+ * {@code + * -} operators, so the same equation can be calculated by every context.
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+public final class Equations {
+
+    private static final String[] OPERATORS = {"+", "*", "-"};
+
+    public enum Shape {
+        /**
+         * Operands and operators interleaved, stack never holds more than two values (e.g. "1 2 * 3 - 4 +")
+         */
+        CHAIN,
+        /**
+         * All operands before all operators, stack holds all of them (e.g. "1 2 3 4 * - +")
+         */
+        DEEP,
+        /**
+         * Balanced tree of independent subexpressions (e.g. "1 2 - 3 4 - *")
+         */
+        WIDE
+    }
+
+    private Equations() {
+    }
+
+    /**
+     * @param shape    shape of equation
+     * @param operands number of literals in equation
+     * @return equation with given number of literals and one operator less
+     * @throws IllegalArgumentException if operands isn't positive
+     */
+    public static String generate(Shape shape, int operands) {
+        if (operands <= 0)
+            throw new IllegalArgumentException(String.valueOf(operands));
+
+        var equation = new StringBuilder();
+        switch (shape) {
+            case CHAIN:
+                appendOperand(equation, 0);
+                for (int i = 1; i < operands; i++) {
+                    appendOperand(equation, i);
+                    appendOperator(equation, i);
+                }
+                break;
+            case DEEP:
+                for (int i = 0; i < operands; i++)
+                    appendOperand(equation, i);
+                for (int i = 1; i < operands; i++)
+                    appendOperator(equation, i);
+                break;
+            case WIDE:
+                appendTree(equation, 0, operands, 0);
+                break;
+        }
+        return equation.toString().trim();
+    }
+
+    private static void appendTree(StringBuilder equation, int first, int operands, int level) {
+        if (operands == 1) {
+            appendOperand(equation, first);
+            return;
+        }
+        var left = operands / 2;
+        appendTree(equation, first, left, level + 1);
+        appendTree(equation, first + left, operands - left, level + 1);
+        appendOperator(equation, level);
+    }
+
+    private static void appendOperand(StringBuilder equation, int index) {
+        equation.append(1 + index % 9).append(' ');
+    }
+
+    private static void appendOperator(StringBuilder equation, int index) {
+        equation.append(OPERATORS[index % OPERATORS.length]).append(' ');
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.aangiel.rpn;
+
+import io.github.aangiel.rpn.translation.Messages;
+
+import java.util.Objects;
+
+/**
+ * Error found in equation, described by type and position instead of exception. Message is formatted
+ * only when {@link #getMessage()} is called.
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ * @see Calculator#validate(String)
+ */
+public final class CalculationError {
+
+    private final Messages type;
+    // Message used for description, which is different from type only for number of values left on stack
+    private final Messages format;
+    private final int position;
+    private final Object[] arguments;
+
+    // Not volatile, because formatting it twice gives the same message
+    private String message;
+
+    private CalculationError(Messages type, Messages format, int position, Object[] arguments) {
+        this.type = type;
+        this.format = format;
+        this.position = position;
+        this.arguments = arguments;
+    }
+
+    /**
+     * @param type      type of error
+     * @param position  position of token (counted from 1) at which error was found, 0 if error isn't caused by
+     *                  single token (e.g. {@link Messages#EMPTY_EQUATION})
+     * @param arguments arguments of message of given type
+     * @return new CalculationError
+     * @throws NullPointerException     if type is null
+     * @throws IllegalArgumentException if position is negative
+     */
+    public static CalculationError of(Messages type, int position, Object... arguments) {
+        Objects.requireNonNull(type);
+        if (position < 0)
+            throw new IllegalArgumentException(String.valueOf(position));
+        return new CalculationError(type, type, position, arguments.clone());
+    }
+
+    /**
+     * Error of type {@link Messages#LEFT_ON_STACK} found without calculating equation, so its message
+     * ({@link Messages#LEFT_ON_STACK_COUNT}) contains number of values left on stack instead of the values.
+     *
+     * @param position position of the last token of equation
+     * @param count    number of values left on stack besides the result
+     * @return new CalculationError
+     * @throws IllegalArgumentException if position is negative
+     */
+    public static CalculationError leftOnStack(int position, int count) {
+        if (position < 0)
+            throw new IllegalArgumentException(String.valueOf(position));
+        return new CalculationError(Messages.LEFT_ON_STACK, Messages.LEFT_ON_STACK_COUNT, position,
+                new Object[]{count});
+    }
+
+    /**
+     * @return type of error, the same as of message of exception thrown by {@link Calculator#calculate(String)}
+     */
+    public Messages getType() {
+        return type;
+    }
+
+    /**
+     * @return position of token (counted from 1) at which error was found, 0 if error isn't caused by single token
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * @return message in current language, formatted at first call
+     */
+    public String getMessage() {
+        var result = message;
+        if (result == null) {
+            result = format.get(arguments);
+            message = result;
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return getMessage();
+    }
+}
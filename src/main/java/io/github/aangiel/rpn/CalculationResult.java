@@ -0,0 +1,119 @@
+package io.github.aangiel.rpn;
+
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Result of calculation of one equation by {@link Calculator#tryCalculate(String)} or
+ * {@link io.github.aangiel.rpn.concurrent.CalculatorBatch}: either value of equation, {@link CalculationError}
+ * describing why equation couldn't be calculated, or exception thrown by function or operator (batch only).
+ * Errors are returned instead of thrown, so calculating many equations, of which some are incorrect,
+ * doesn't pay for creating exceptions.
+ * Example usage:<br>
+ * <pre>
+ *     CalculationResult&#60;BigDecimal&#62; result = calculator.tryCalculate("2 3 +");
+ *     if (result.isSuccess())
+ *         System.out.println(result.getValue());
+ *     else
+ *         System.out.println(result.getError().getMessage());
+ * </pre>
+ *
+ * @param <T> extends {@link Number Number}.
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ * @see CalculationError
+ */
+public final class CalculationResult<T extends Number> {
+
+    private final String equation;
+    private final T value;
+    private final CalculationError error;
+    private final RuntimeException exception;
+
+    private CalculationResult(String equation, T value, CalculationError error, RuntimeException exception) {
+        this.equation = Objects.requireNonNull(equation);
+        this.value = value;
+        this.error = error;
+        this.exception = exception;
+    }
+
+    /**
+     * @param equation calculated equation
+     * @param value    value of equation
+     * @param <T>      extends Number
+     * @return successful result
+     * @throws NullPointerException if any parameter is null
+     */
+    public static <T extends Number> CalculationResult<T> success(String equation, T value) {
+        return new CalculationResult<>(equation, Objects.requireNonNull(value), null, null);
+    }
+
+    /**
+     * @param equation equation which couldn't be calculated
+     * @param error    error found in equation
+     * @param <T>      extends Number
+     * @return failed result
+     * @throws NullPointerException if any parameter is null
+     */
+    public static <T extends Number> CalculationResult<T> failure(String equation, CalculationError error) {
+        return new CalculationResult<>(equation, null, Objects.requireNonNull(error), null);
+    }
+
+    /**
+     * @param equation  equation which couldn't be calculated
+     * @param exception exception thrown by function or operator
+     * @param <T>       extends Number
+     * @return failed result
+     * @throws NullPointerException if any parameter is null
+     */
+    public static <T extends Number> CalculationResult<T> failure(String equation, RuntimeException exception) {
+        return new CalculationResult<>(equation, null, null, Objects.requireNonNull(exception));
+    }
+
+    /**
+     * @return calculated equation
+     */
+    public String getEquation() {
+        return equation;
+    }
+
+    /**
+     * @return true if equation was calculated
+     */
+    public boolean isSuccess() {
+        return error == null && exception == null;
+    }
+
+    /**
+     * @return value of equation
+     * @throws NoSuchElementException with message of error, if equation has error
+     * @throws RuntimeException       the same exception which was thrown by function or operator
+     */
+    public T getValue() {
+        if (exception != null)
+            throw exception;
+        if (error != null)
+            throw new NoSuchElementException(error.getMessage());
+        return value;
+    }
+
+    /**
+     * @return error found in equation, null if equation was calculated or function or operator failed
+     */
+    public CalculationError getError() {
+        return error;
+    }
+
+    /**
+     * @return exception thrown by function or operator, null if it wasn't thrown
+     */
+    public RuntimeException getException() {
+        return exception;
+    }
+
+    @Override
+    public String toString() {
+        if (exception != null)
+            return equation + " : " + exception;
+        return error == null ? equation + " = " + value : equation + " : " + error.getMessage();
+    }
+}
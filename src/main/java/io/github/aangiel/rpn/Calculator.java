@@ -2,6 +2,10 @@ package io.github.aangiel.rpn;
 
 import io.github.aangiel.rpn.context.interfaces.CalculatorContext;
 
+import java.nio.CharBuffer;
+import java.util.Objects;
+import java.util.Optional;
+
 /**
  * Main interface which you should use.<br>
  * Example usage:<br>
@@ -34,6 +38,122 @@ public interface Calculator<T extends Number> {
      */
     T calculate(String equation);
 
+    /**
+     * Calculates equation held in other {@link CharSequence} than {@link String} (e.g. {@link StringBuilder}
+     * or {@link java.nio.CharBuffer}) without copying it.
+     *
+     * @param equation characters of equation to calculate
+     * @return result of calculation, the same as {@link #calculate(String)} for the same equation
+     * @throws ArithmeticException      if during calculation won't be enough elements on stack for actual function or operator
+     * @throws NullPointerException     if equation is null
+     * @throws IllegalArgumentException if equation is empty, contains unsupported items or has bad form and after whole calculation any items left on stack
+     * @see #calculate(CharSequence, int, int)
+     */
+    default T calculate(CharSequence equation) {
+        return calculate(equation, 0, equation.length());
+    }
+
+    /**
+     * Calculates equation being part of larger {@link CharSequence} without copying it.
+     * Default implementation copies equation into {@link String}, implementations should evaluate it in place.
+     *
+     * @param equation characters containing equation to calculate
+     * @param offset   index of first character of equation
+     * @param length   number of characters of equation
+     * @return result of calculation, the same as {@link #calculate(String)} for the same equation
+     * @throws ArithmeticException       if during calculation won't be enough elements on stack for actual function or operator
+     * @throws NullPointerException      if equation is null
+     * @throws IllegalArgumentException  if equation is empty, contains unsupported items or has bad form and after whole calculation any items left on stack
+     * @throws IndexOutOfBoundsException if range given by offset and length isn't within equation
+     */
+    default T calculate(CharSequence equation, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, equation.length());
+        return calculate(equation.subSequence(offset, offset + length).toString());
+    }
+
+    /**
+     * Calculates equation being part of char array without copying it.
+     *
+     * @param equation characters containing equation to calculate
+     * @param offset   index of first character of equation
+     * @param length   number of characters of equation
+     * @return result of calculation, the same as {@link #calculate(String)} for the same equation
+     * @throws ArithmeticException       if during calculation won't be enough elements on stack for actual function or operator
+     * @throws NullPointerException      if equation is null
+     * @throws IllegalArgumentException  if equation is empty, contains unsupported items or has bad form and after whole calculation any items left on stack
+     * @throws IndexOutOfBoundsException if range given by offset and length isn't within equation
+     * @see #calculate(CharSequence, int, int)
+     */
+    default T calculate(char[] equation, int offset, int length) {
+        return calculate(CharBuffer.wrap(equation), offset, length);
+    }
+
+    /**
+     * Parses equation once, so it can be evaluated many times without repeated parsing.
+     *
+     * @param equation String with equation to compile
+     * @return {@link CompiledExpression CompiledExpression} with all literals and functions or operators already resolved
+     * @throws NullPointerException     if equation is null
+     * @throws IllegalArgumentException if equation is empty or contains unsupported items
+     * @see CompiledExpression#evaluate()
+     */
+    CompiledExpression<T> compile(String equation);
+
+    /**
+     * Parses equation with variables once, so it can be evaluated for many sets of values without repeated parsing.
+     * Variables take precedence over functions or operators with the same name.
+     *
+     * @param equation  String with equation to compile (e.g. "x 2 * y +")
+     * @param variables names of variables used in equation (e.g. "x", "y")
+     * @return {@link CompiledExpression CompiledExpression} with all literals, variables and functions or operators already resolved
+     * @throws NullPointerException     if equation or any variable is null
+     * @throws IllegalArgumentException if equation is empty, contains unsupported items or
+     *                                  variable name is duplicated, contains whitespace or is a number
+     * @see CompiledExpression#evaluate(java.util.List)
+     * @see CompiledExpression#evaluate(java.util.Map)
+     */
+    CompiledExpression<T> compile(String equation, String... variables);
+
+    /**
+     * Checks tokens of equation, arities of its functions and operators and whether exactly one value is left
+     * on stack, without doing any arithmetic. Errors have the same type and position as exceptions thrown by
+     * {@link #calculate(String)}, but exceptions thrown by functions or operators themselves aren't predicted.
+     * Numbers aren't created, so tokens looking like numbers, which context can't create (e.g. 0x10), are reported
+     * as bad items only by calculating equation.
+     *
+     * @param equation String with equation to validate
+     * @return the first error in equation, empty if it can be calculated
+     * @throws NullPointerException if equation is null
+     */
+    Optional<CalculationError> validate(String equation);
+
+    /**
+     * Checks equation with variables the same way as {@link #validate(String)}.
+     *
+     * @param equation  String with equation to validate (e.g. "x 2 * y +")
+     * @param variables names of variables used in equation (e.g. "x", "y")
+     * @return the first error in equation, empty if it can be compiled and evaluated
+     * @throws NullPointerException     if equation or any variable is null
+     * @throws IllegalArgumentException if variable name is duplicated, contains whitespace or is a number
+     */
+    Optional<CalculationError> validate(String equation, String... variables);
+
+    /**
+     * Calculates equation like {@link #calculate(String)}, but returns errors of equation (like bad item or
+     * lack of arguments) instead of throwing them. Exceptions thrown by functions or operators themselves
+     * (e.g. dividing by zero) are still thrown.
+     *
+     * @param equation String with equation to calculate
+     * @return value of equation or the first error in it
+     * @throws NullPointerException if equation is null
+     */
+    default CalculationResult<T> tryCalculate(String equation) {
+        var error = validate(equation);
+        if (error.isPresent())
+            return CalculationResult.failure(equation, error.get());
+        return CalculationResult.success(equation, calculate(equation));
+    }
+
     /**
      * Returns context of {@link Calculator Calculator}
      * if you want to customize it with adding additional functions or operators
@@ -12,39 +12,67 @@ import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.Function;
 
 /**
+ * Registry of calculators. Every supported type has default calculator and can have any number of named
+ * calculators (e.g. BigDecimal calculators with different rounding modes).
+ * <p>
+ * Calculators can be added and looked up by many threads at the same time. Registry is immutable snapshot
+ * replaced on every change, and default calculators are cached in {@link ClassValue}, so
+ * {@link #getCalculator(Class)} doesn't take any lock.
+ * Example usage:<br>
+ * <pre>
+ *     CalculatorSupplier.INSTANCE.addCalculator(BigDecimal.class, "tenant", new BigDecimalCalculatorContext(RoundingMode.DOWN));
+ *     Calculator&#60;BigDecimal&#62; calculator = CalculatorSupplier.INSTANCE.getCalculator(BigDecimal.class, "tenant");
+ * </pre>
+ *
  * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
  */
 public enum CalculatorSupplier {
 
-    INSTANCE(CalculatorImpl::new);
+    INSTANCE(CalculatorImpl::of);
 
-    private final Map<Class<? extends Number>, Calculator<? extends Number>> calculators;
+    /**
+     * Name of calculator returned by {@link #getCalculator(Class)}
+     */
+    public static final String DEFAULT_NAME = "default";
 
     private final Function<CalculatorContext<? extends Number>, Calculator<? extends Number>> implementation;
 
+    /**
+     * Calculators by type and name. Map and its' values are never modified, only replaced under lock.
+     */
+    private volatile Map<Class<?>, Map<String, Calculator<? extends Number>>> calculators = Map.of();
+
+    private final ClassValue<Calculator<? extends Number>> defaultCalculators = new ClassValue<>() {
+        @Override
+        protected Calculator<? extends Number> computeValue(Class<?> type) {
+            var named = calculators.get(type);
+            return named == null ? null : named.get(DEFAULT_NAME);
+        }
+    };
+
+    private final Object lock = new Object();
+
     CalculatorSupplier(Function<CalculatorContext<? extends Number>, Calculator<? extends Number>> implementation) {
         this.implementation = Objects.requireNonNull(implementation);
-        calculators = new HashMap<>();
         populateCalculators();
     }
 
     /**
      * @param clazz type for which calculator should be returned
      * @param <T>   extends Number
-     * @return {@link Calculator} of type given in 'clazz' parame
+     * @return default {@link Calculator} of type given in 'clazz' param
      * @throws NullPointerException     if param 'clazz' is null
      * @throws IllegalArgumentException if there are no calculator for type given in 'clazz' param
      */
     public <T extends Number> Calculator<T> getCalculator(Class<T> clazz) {
-        Objects.requireNonNull(clazz);
-
         // It always works, because <T extends Number> and
-        // value in CALCULATORS map is Calculator<? extends Number>
+        // calculators are added only by methods checking their type
         @SuppressWarnings("unchecked")
-        var calculator = (Calculator<T>) calculators.get(clazz);
+        var calculator = (Calculator<T>) defaultCalculators.get(clazz);
 
         if (calculator == null)
             throw new IllegalArgumentException(Messages.UNSUPPORTED_TYPE.get(clazz));
@@ -53,16 +81,137 @@ public enum CalculatorSupplier {
     }
 
     /**
+     * @param clazz type for which calculator should be returned
+     * @param name  name given when calculator was added, {@link #DEFAULT_NAME} for default calculator
+     * @param <T>   extends Number
+     * @return {@link Calculator} of type given in 'clazz' param with given name
+     * @throws NullPointerException     if at least one parameter is null
+     * @throws IllegalArgumentException if there are no calculator for type given in 'clazz' param
+     *                                  or it has no calculator with given name
+     */
+    public <T extends Number> Calculator<T> getCalculator(Class<T> clazz, String name) {
+        Objects.requireNonNull(clazz);
+        Objects.requireNonNull(name);
+
+        var named = calculators.get(clazz);
+        if (named == null)
+            throw new IllegalArgumentException(Messages.UNSUPPORTED_TYPE.get(clazz));
+
+        @SuppressWarnings("unchecked")
+        var calculator = (Calculator<T>) named.get(name);
+
+        if (calculator == null)
+            throw new IllegalArgumentException(Messages.UNKNOWN_CALCULATOR.get(name, clazz));
+
+        return calculator;
+    }
+
+    /**
+     * @param clazz type of calculators
+     * @return names of calculators of type given in 'clazz' param, empty if there are none
+     * @throws NullPointerException if param 'clazz' is null
+     */
+    public Set<String> getCalculatorNames(Class<? extends Number> clazz) {
+        Objects.requireNonNull(clazz);
+        return calculators.getOrDefault(clazz, Map.of()).keySet();
+    }
+
+    /**
+     * @return {@link DoubleCalculator} evaluating equations on primitive values
+     * @throws IllegalArgumentException if calculator registered for {@link Double} isn't {@link DoubleCalculator}
+     */
+    public DoubleCalculator getDoubleCalculator() {
+        var calculator = getCalculator(Double.class);
+
+        if (calculator instanceof DoubleCalculator)
+            return (DoubleCalculator) calculator;
+
+        throw new IllegalArgumentException(Messages.UNSUPPORTED_TYPE.get(DoubleCalculator.class));
+    }
+
+    /**
+     * Adds or replaces default calculator of type given in 'clazz' parameter.
+     *
      * @param clazz                 type of calculator being added
      * @param contextImplementation instance of {@link CalculatorContext} of type corresponding to 'clazz' parameter
      * @param <T>                   extends Number
      * @throws NullPointerException if at least one parameter is null
      */
     public <T extends Number> void addCalculator(Class<T> clazz, CalculatorContext<T> contextImplementation) {
-        Objects.requireNonNull(clazz);
+        addCalculator(clazz, DEFAULT_NAME, contextImplementation);
+    }
+
+    /**
+     * Adds or replaces calculator with given name. Calculators being added while others are calculating
+     * don't disturb them.
+     *
+     * @param clazz                 type of calculator being added
+     * @param name                  name of calculator, {@link #DEFAULT_NAME} replaces default calculator
+     * @param contextImplementation instance of {@link CalculatorContext} of type corresponding to 'clazz' parameter
+     * @param <T>                   extends Number
+     * @throws NullPointerException if at least one parameter is null
+     */
+    public <T extends Number> void addCalculator(Class<T> clazz, String name, CalculatorContext<T> contextImplementation) {
         Objects.requireNonNull(contextImplementation);
 
-        calculators.put(clazz, implementation.apply(contextImplementation));
+        // It always works, because implementation creates calculator of context's type
+        @SuppressWarnings("unchecked")
+        var calculator = (Calculator<T>) implementation.apply(contextImplementation);
+        addCalculator(clazz, name, calculator);
+    }
+
+    /**
+     * Adds or replaces calculator with given name, e.g. calculator created with non-default settings.
+     *
+     * @param clazz      type of calculator being added
+     * @param name       name of calculator, {@link #DEFAULT_NAME} replaces default calculator
+     * @param calculator calculator of type corresponding to 'clazz' parameter
+     * @param <T>        extends Number
+     * @throws NullPointerException if at least one parameter is null
+     */
+    public <T extends Number> void addCalculator(Class<T> clazz, String name, Calculator<T> calculator) {
+        Objects.requireNonNull(clazz);
+        Objects.requireNonNull(name);
+        Objects.requireNonNull(calculator);
+
+        synchronized (lock) {
+            var named = new HashMap<>(calculators.getOrDefault(clazz, Map.of()));
+            named.put(name, calculator);
+            update(clazz, named);
+        }
+    }
+
+    /**
+     * @param clazz type of calculator being removed
+     * @param name  name of calculator, {@link #DEFAULT_NAME} removes default calculator
+     * @return true if calculator was removed, false if there was no such calculator
+     * @throws NullPointerException if at least one parameter is null
+     */
+    public boolean removeCalculator(Class<? extends Number> clazz, String name) {
+        Objects.requireNonNull(clazz);
+        Objects.requireNonNull(name);
+
+        synchronized (lock) {
+            var named = new HashMap<>(calculators.getOrDefault(clazz, Map.of()));
+            if (named.remove(name) == null)
+                return false;
+            update(clazz, named);
+            return true;
+        }
+    }
+
+    /**
+     * Publishes new snapshot of calculators, must be called under lock.
+     */
+    private void update(Class<?> clazz, Map<String, Calculator<? extends Number>> named) {
+        var updated = new HashMap<>(calculators);
+        if (named.isEmpty())
+            updated.remove(clazz);
+        else
+            updated.put(clazz, Map.copyOf(named));
+        calculators = Map.copyOf(updated);
+        // Value computed from previous snapshot is dropped, so the next lookup sees the new one
+        defaultCalculators.remove(clazz);
     }
 
     private void populateCalculators() {
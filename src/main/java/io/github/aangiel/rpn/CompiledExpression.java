@@ -0,0 +1,84 @@
+package io.github.aangiel.rpn;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Equation parsed once by {@link Calculator#compile(String) Calculator.compile(String)}
+ * which can be evaluated many times without parsing it again.<br>
+ * Example usage:<br>
+ * <pre>
+ *     CompiledExpression&#60;Apfloat&#62; expression = calculator.compile("5 1 2 + 4 * + 3 -");
+ *     Apfloat result = expression.evaluate(); // should be 14
+ * </pre>
+ * <p>
+ * Implementations are immutable and may be shared between threads. Literals and functions or operators
+ * are resolved during compilation, so changes made to the context afterwards are not visible in already
+ * compiled expressions.
+ * <p>
+ * Equation can contain variables declared in {@link Calculator#compile(String, String...)
+ * Calculator.compile(String, String...)}, which get values during evaluation:<br>
+ * <pre>
+ *     CompiledExpression&#60;Double&#62; expression = calculator.compile("x 2 * y +", "x", "y");
+ *     Double byIndex = expression.evaluate(List.of(3.0, 1.0)); // should be 7
+ *     Double byName = expression.evaluate(Map.of("x", 3.0, "y", 1.0)); // should be 7
+ * </pre>
+ *
+ * @param <T> extends Number for using with all subtypes of number.
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ * @see Calculator#compile(String)
+ * @see Calculator#compile(String, String...)
+ */
+public interface CompiledExpression<T extends Number> {
+
+    /**
+     * Calculates value of compiled equation.
+     *
+     * @return result of calculation
+     * @throws ArithmeticException      if during calculation won't be enough elements on stack for actual function or operator
+     * @throws IllegalArgumentException if after whole calculation any items left on stack
+     */
+    T evaluate();
+
+    /**
+     * Calculates value of compiled equation with variables given by index.
+     *
+     * @param values values of variables in order of {@link #getVariables()}
+     * @return result of calculation
+     * @throws ArithmeticException      if during calculation won't be enough elements on stack for actual function or operator
+     * @throws IllegalArgumentException if number of values is different from number of variables or
+     *                                  after whole calculation any items left on stack
+     * @throws NullPointerException     if values or any of them is null
+     */
+    T evaluate(List<? extends T> values);
+
+    /**
+     * Calculates value of compiled equation with variables given by name.
+     *
+     * @param values values of variables, additional entries are ignored
+     * @return result of calculation
+     * @throws ArithmeticException      if during calculation won't be enough elements on stack for actual function or operator
+     * @throws IllegalArgumentException if value of any variable is missing or after whole calculation any items left on stack
+     * @throws NullPointerException     if values is null
+     */
+    T evaluate(Map<String, ? extends T> values);
+
+    /**
+     * @return names of variables in order of declaration, which is also order of values in {@link #evaluate(List)}
+     */
+    List<String> getVariables();
+
+    /**
+     * Resolves name of variable once, so values can be placed in right order for {@link #evaluate(List)}.
+     *
+     * @param name name of variable
+     * @return index of variable
+     * @throws IllegalArgumentException if there is no such variable
+     */
+    int getVariableIndex(String name);
+
+    /**
+     * @return equation from which this expression was compiled
+     */
+    String getEquation();
+}
@@ -0,0 +1,88 @@
+package io.github.aangiel.rpn;
+
+import java.nio.CharBuffer;
+import java.util.Objects;
+
+/**
+ * {@link Calculator} for {@link Double} type which evaluates equations on primitive {@code double} values.<br>
+ * Example usage:<br>
+ * <pre>
+ *     DoubleCalculator calculator = CalculatorSupplier.INSTANCE.getDoubleCalculator();
+ *     double result = calculator.calculateAsDouble("5 1 2 + 4 * + 3 -");
+ *     System.out.println(result); // should display 14.0
+ * </pre>
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ * @see io.github.aangiel.rpn.context.interfaces.PrimitiveDoubleContext
+ */
+public interface DoubleCalculator extends Calculator<Double> {
+
+    /**
+     * Same as {@link #calculate(String)}, but returns primitive value.
+     *
+     * @param equation String with equation to calculate
+     * @return result of calculation
+     * @throws ArithmeticException      if during calculation won't be enough elements on stack for actual function or operator
+     * @throws NullPointerException     if equation is null
+     * @throws IllegalArgumentException if equation is empty, contains unsupported items or has bad form and after whole calculation any items left on stack
+     */
+    double calculateAsDouble(String equation);
+
+    /**
+     * Same as {@link #calculate(CharSequence)}, but returns primitive value.
+     *
+     * @param equation characters of equation to calculate
+     * @return result of calculation
+     * @throws ArithmeticException      if during calculation won't be enough elements on stack for actual function or operator
+     * @throws NullPointerException     if equation is null
+     * @throws IllegalArgumentException if equation is empty, contains unsupported items or has bad form and after whole calculation any items left on stack
+     */
+    default double calculateAsDouble(CharSequence equation) {
+        return calculateAsDouble(equation, 0, equation.length());
+    }
+
+    /**
+     * Same as {@link #calculate(CharSequence, int, int)}, but returns primitive value.
+     *
+     * @param equation characters containing equation to calculate
+     * @param offset   index of first character of equation
+     * @param length   number of characters of equation
+     * @return result of calculation
+     * @throws ArithmeticException       if during calculation won't be enough elements on stack for actual function or operator
+     * @throws NullPointerException      if equation is null
+     * @throws IllegalArgumentException  if equation is empty, contains unsupported items or has bad form and after whole calculation any items left on stack
+     * @throws IndexOutOfBoundsException if range given by offset and length isn't within equation
+     */
+    default double calculateAsDouble(CharSequence equation, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, equation.length());
+        return calculateAsDouble(equation.subSequence(offset, offset + length).toString());
+    }
+
+    /**
+     * Same as {@link #calculate(char[], int, int)}, but returns primitive value.
+     *
+     * @param equation characters containing equation to calculate
+     * @param offset   index of first character of equation
+     * @param length   number of characters of equation
+     * @return result of calculation
+     * @throws ArithmeticException       if during calculation won't be enough elements on stack for actual function or operator
+     * @throws NullPointerException      if equation is null
+     * @throws IllegalArgumentException  if equation is empty, contains unsupported items or has bad form and after whole calculation any items left on stack
+     * @throws IndexOutOfBoundsException if range given by offset and length isn't within equation
+     */
+    default double calculateAsDouble(char[] equation, int offset, int length) {
+        return calculateAsDouble(CharBuffer.wrap(equation), offset, length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    DoubleCompiledExpression compile(String equation);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    DoubleCompiledExpression compile(String equation, String... variables);
+}
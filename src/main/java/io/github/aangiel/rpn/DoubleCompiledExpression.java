@@ -0,0 +1,58 @@
+package io.github.aangiel.rpn;
+
+/**
+ * {@link CompiledExpression} of {@link DoubleCalculator} which can return result as primitive {@code double}.
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ * @see DoubleCalculator#compile(String)
+ */
+public interface DoubleCompiledExpression extends CompiledExpression<Double> {
+
+    /**
+     * Calculates value of compiled equation without boxing, if all functions and operators in equation
+     * have primitive versions.
+     *
+     * @return result of calculation
+     * @throws ArithmeticException      if during calculation won't be enough elements on stack for actual function or operator
+     * @throws IllegalArgumentException if after whole calculation any items left on stack
+     * @see io.github.aangiel.rpn.context.interfaces.PrimitiveDoubleContext
+     */
+    double evaluateAsDouble();
+
+    /**
+     * Calculates value of compiled equation with variables given by index without boxing.
+     *
+     * @param values values of variables in order of {@link #getVariables()}
+     * @return result of calculation
+     * @throws ArithmeticException      if during calculation won't be enough elements on stack for actual function or operator
+     * @throws IllegalArgumentException if number of values is different from number of variables or
+     *                                  after whole calculation any items left on stack
+     */
+    double evaluateAsDouble(double... values);
+
+    /**
+     * Calculates value of compiled equation for many rows of variables at once. Each function or operator
+     * is applied to whole block of rows before the next one, so dispatch cost is paid per block instead of per row.
+     * Number of rows is taken from length of the first column.
+     *
+     * @param columns values of variables in order of {@link #getVariables()}, one array of rows per variable
+     * @return results of calculation for each row
+     * @throws ArithmeticException      if during calculation won't be enough elements on stack for actual function or operator
+     * @throws IllegalArgumentException if number of columns is different from number of variables, columns have
+     *                                  different lengths or after whole calculation any items left on stack
+     * @see #evaluateColumns(double[][], double[])
+     */
+    double[] evaluateColumns(double[]... columns);
+
+    /**
+     * Calculates value of compiled equation for many rows of variables at once, storing results in given array.
+     * Number of rows is taken from length of 'results', so it's also usable with equations without variables.
+     *
+     * @param columns values of variables in order of {@link #getVariables()}, one array of rows per variable
+     * @param results array for results of calculation, with the same length as each column
+     * @throws ArithmeticException      if during calculation won't be enough elements on stack for actual function or operator
+     * @throws IllegalArgumentException if number of columns is different from number of variables, columns have
+     *                                  different lengths than results or after whole calculation any items left on stack
+     */
+    void evaluateColumns(double[][] columns, double[] results);
+}
@@ -0,0 +1,243 @@
+package io.github.aangiel.rpn.concurrent;
+
+import io.github.aangiel.rpn.Calculator;
+import io.github.aangiel.rpn.CalculatorSupplier;
+import io.github.aangiel.rpn.DoubleCalculator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Calculates file with one equation per line and writes results to another file, one result per line in the same
+ * order. Result of equation which couldn't be calculated is written as {@value #ERROR_PREFIX} followed by message
+ * of exception.
+ * <p>
+ * Input file is memory-mapped in chunks ending at line boundary. Equations are read directly from mapped bytes,
+ * so no {@link String} is created per line (lines with non-ASCII characters are decoded as UTF-8). Chunks are
+ * calculated in parallel in {@link ForkJoinPool}, unless calculator is {@link #sequential(Calculator) sequential},
+ * and their results are written in order as soon as they are ready.
+ * Example usage:<br>
+ * <pre>
+ *     long lines = BulkFileCalculator.of(Double.class).calculate(Path.of("equations.txt"), Path.of("results.txt"));
+ * </pre>
+ *
+ * @param <T> extends Number
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+public final class BulkFileCalculator<T extends Number> {
+
+    /**
+     * Default number of bytes of input file calculated in one task
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 4 << 20;
+
+    /**
+     * Beginning of line written for equation which couldn't be calculated
+     */
+    public static final String ERROR_PREFIX = "error: ";
+
+    private final Calculator<T> calculator;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    private BulkFileCalculator(Calculator<T> calculator, ForkJoinPool pool, int chunkSize) {
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException(String.valueOf(chunkSize));
+
+        this.calculator = Objects.requireNonNull(calculator);
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param clazz Class extending Number for use with Calculator
+     * @param <T>   extends Number
+     * @return new BulkFileCalculator calculating in {@link ForkJoinPool#commonPool() common pool}
+     * @throws NullPointerException     if clazz is null
+     * @throws IllegalArgumentException if there are no calculator for type given in 'clazz' param
+     */
+    public static <T extends Number> BulkFileCalculator<T> of(Class<T> clazz) {
+        return of(CalculatorSupplier.INSTANCE.getCalculator(clazz), ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param calculator calculator used for all equations
+     * @param pool       pool in which chunks are calculated
+     * @param chunkSize  number of bytes of input file calculated in one task, chunk is longer if line doesn't fit
+     * @param <T>        extends Number
+     * @return new BulkFileCalculator
+     * @throws NullPointerException     if calculator or pool is null
+     * @throws IllegalArgumentException if chunkSize isn't positive
+     */
+    public static <T extends Number> BulkFileCalculator<T> of(Calculator<T> calculator, ForkJoinPool pool, int chunkSize) {
+        return new BulkFileCalculator<>(calculator, Objects.requireNonNull(pool), chunkSize);
+    }
+
+    /**
+     * @param calculator calculator used for all equations
+     * @param <T>        extends Number
+     * @return new BulkFileCalculator calculating in thread calling {@link #calculate(Path, Path)}
+     * @throws NullPointerException if calculator is null
+     */
+    public static <T extends Number> BulkFileCalculator<T> sequential(Calculator<T> calculator) {
+        return new BulkFileCalculator<>(calculator, null, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param input  file with equations, one per line
+     * @param output file to which results are written, it's created or truncated
+     * @return number of calculated lines
+     * @throws NullPointerException if input or output is null
+     * @throws IOException          if input can't be read or output can't be written
+     */
+    public long calculate(Path input, Path output) throws IOException {
+        var pending = new ArrayDeque<ForkJoinTask<Results>>();
+        try (var in = FileChannel.open(input, StandardOpenOption.READ);
+             var out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                     StandardOpenOption.WRITE)) {
+            var size = in.size();
+            // Bounds memory used by results waiting to be written
+            var maxPending = pool == null ? 0 : pool.getParallelism() * 2;
+            long position = 0;
+            long lines = 0;
+            while (position < size) {
+                var chunk = nextChunk(in, position, size);
+                position += chunk.limit();
+                if (pool == null) {
+                    lines += write(out, calculateChunk(chunk));
+                    continue;
+                }
+                pending.add(pool.submit(() -> calculateChunk(chunk)));
+                if (pending.size() > maxPending)
+                    lines += write(out, pending.remove().join());
+            }
+            while (!pending.isEmpty())
+                lines += write(out, pending.remove().join());
+            return lines;
+        } finally {
+            for (var task : pending)
+                task.cancel(false);
+        }
+    }
+
+    /**
+     * @return mapped part of file starting at position and ending after the last whole line which fits in chunk
+     */
+    private ByteBuffer nextChunk(FileChannel channel, long position, long size) throws IOException {
+        var length = Math.min(chunkSize, size - position);
+        while (true) {
+            var chunk = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            if (position + length == size)
+                return chunk;
+            for (int i = (int) length - 1; i >= 0; i--) {
+                if (chunk.get(i) == '\n')
+                    return chunk.limit(i + 1);
+            }
+            if (length == Integer.MAX_VALUE)
+                return chunk;
+            // Line is longer than chunk
+            length = Math.min(Math.min(length * 2, size - position), Integer.MAX_VALUE);
+        }
+    }
+
+    private Results calculateChunk(ByteBuffer chunk) {
+        var results = new Results(chunk.limit());
+        var equations = new AsciiSequence(chunk);
+        var lineStart = 0;
+        var ascii = true;
+        for (int i = 0; i < chunk.limit(); i++) {
+            var b = chunk.get(i);
+            if (b == '\n') {
+                calculateLine(equations, lineStart, i, ascii, results);
+                lineStart = i + 1;
+                ascii = true;
+            } else if (b < 0) {
+                ascii = false;
+            }
+        }
+        if (lineStart < chunk.limit())
+            calculateLine(equations, lineStart, chunk.limit(), ascii, results);
+        return results;
+    }
+
+    private void calculateLine(AsciiSequence equations, int start, int end, boolean ascii, Results results) {
+        var text = results.text;
+        var length = text.length();
+        try {
+            if (!ascii)
+                text.append(calculator.calculate(equations.decode(start, end)));
+            else if (calculator instanceof DoubleCalculator)
+                text.append(((DoubleCalculator) calculator).calculateAsDouble(equations, start, end - start));
+            else
+                text.append(calculator.calculate(equations, start, end - start));
+        } catch (RuntimeException e) {
+            text.setLength(length);
+            text.append(ERROR_PREFIX).append(e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+        text.append('\n');
+        results.lines++;
+    }
+
+    private static long write(FileChannel channel, Results results) throws IOException {
+        var bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(results.text));
+        while (bytes.hasRemaining())
+            channel.write(bytes);
+        return results.lines;
+    }
+
+    private static final class Results {
+        private final StringBuilder text;
+        private int lines;
+
+        private Results(int capacity) {
+            this.text = new StringBuilder(capacity);
+        }
+    }
+
+    /**
+     * Bytes of ASCII text seen as characters without decoding them
+     */
+    private static final class AsciiSequence implements CharSequence {
+        private final ByteBuffer bytes;
+
+        private AsciiSequence(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int length() {
+            return bytes.limit();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (bytes.get(index) & 0xFF);
+        }
+
+        @Override
+        public String subSequence(int start, int end) {
+            var chars = new char[end - start];
+            for (int i = 0; i < chars.length; i++)
+                chars[i] = charAt(start + i);
+            return new String(chars);
+        }
+
+        private String decode(int start, int end) {
+            return StandardCharsets.UTF_8.decode(bytes.duplicate().position(start).limit(end)).toString();
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length());
+        }
+    }
+}
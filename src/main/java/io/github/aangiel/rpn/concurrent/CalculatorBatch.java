@@ -0,0 +1,182 @@
+package io.github.aangiel.rpn.concurrent;
+
+import io.github.aangiel.rpn.CalculationResult;
+import io.github.aangiel.rpn.Calculator;
+import io.github.aangiel.rpn.CalculatorSupplier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+/**
+ * Calculates many equations in parallel with {@link ForkJoinPool}. Unlike {@link CalculatorCallable} it doesn't
+ * create task per equation: equations are split into chunks, which are divided further only while there are
+ * idle workers, so every chunk is calculated in one loop. Results are returned in the same order as equations.
+ * Equations are calculated by {@link Calculator#tryCalculate(String)}, so incorrect equations don't create
+ * exceptions. Error of equation or exception thrown by function or operator doesn't stop calculation of others,
+ * it's returned in {@link CalculationResult}.
+ * Example usage:<br>
+ * <pre>
+ *     CalculatorBatch&#60;Double&#62; batch = CalculatorBatch.of(Double.class);
+ *     List&#60;CalculationResult&#60;Double&#62;&#62; results = batch.calculate(equations);
+ * </pre>
+ *
+ * @param <T> extends Number
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+public final class CalculatorBatch<T extends Number> {
+
+    /**
+     * Chunks aren't split when there are more forked chunks waiting in queue of current worker
+     */
+    private static final int MAX_SURPLUS_CHUNKS = 3;
+
+    /**
+     * Minimal number of chunks per worker, so the work can be balanced even when equations take different time
+     */
+    private static final int CHUNKS_PER_WORKER = 16;
+
+    private final Calculator<T> calculator;
+    private final ForkJoinPool pool;
+
+    private CalculatorBatch(Calculator<T> calculator, ForkJoinPool pool) {
+        this.calculator = Objects.requireNonNull(calculator);
+        this.pool = Objects.requireNonNull(pool);
+    }
+
+    /**
+     * @param clazz Class extending Number for use with Calculator
+     * @param <T>   extends Number
+     * @return new CalculatorBatch using {@link ForkJoinPool#commonPool() common pool}
+     * @throws NullPointerException     if clazz is null
+     * @throws IllegalArgumentException if there are no calculator for type given in 'clazz' param
+     */
+    public static <T extends Number> CalculatorBatch<T> of(Class<T> clazz) {
+        return of(clazz, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param clazz Class extending Number for use with Calculator
+     * @param pool  pool in which equations are calculated
+     * @param <T>   extends Number
+     * @return new CalculatorBatch
+     * @throws NullPointerException     if at least one parameter is null
+     * @throws IllegalArgumentException if there are no calculator for type given in 'clazz' param
+     */
+    public static <T extends Number> CalculatorBatch<T> of(Class<T> clazz, ForkJoinPool pool) {
+        return of(CalculatorSupplier.INSTANCE.getCalculator(clazz), pool);
+    }
+
+    /**
+     * @param calculator calculator used for all equations
+     * @param pool       pool in which equations are calculated
+     * @param <T>        extends Number
+     * @return new CalculatorBatch
+     * @throws NullPointerException if at least one parameter is null
+     */
+    public static <T extends Number> CalculatorBatch<T> of(Calculator<T> calculator, ForkJoinPool pool) {
+        return new CalculatorBatch<>(calculator, pool);
+    }
+
+    /**
+     * @param equations equations to calculate
+     * @return unmodifiable list of results in the same order as equations
+     * @throws NullPointerException if equations is null
+     */
+    public List<CalculationResult<T>> calculate(List<String> equations) {
+        return calculate(equations.toArray(new String[0]));
+    }
+
+    /**
+     * @param equations equations to calculate, consumed before calculation starts
+     * @return unmodifiable list of results in the same order as equations
+     * @throws NullPointerException if equations is null
+     */
+    public List<CalculationResult<T>> calculate(Stream<String> equations) {
+        return calculate(equations.toArray(String[]::new));
+    }
+
+    /**
+     * @param equations equations to calculate, consumed before calculation starts
+     * @return unmodifiable list of results in the same order as equations
+     * @throws NullPointerException if equations is null
+     */
+    public List<CalculationResult<T>> calculate(Iterator<String> equations) {
+        var list = new ArrayList<String>();
+        equations.forEachRemaining(list::add);
+        return calculate(list);
+    }
+
+    private List<CalculationResult<T>> calculate(String[] equations) {
+        @SuppressWarnings("unchecked")
+        var results = (CalculationResult<T>[]) new CalculationResult<?>[equations.length];
+        if (equations.length > 0) {
+            var minChunk = Math.max(1, equations.length / (pool.getParallelism() * CHUNKS_PER_WORKER));
+            pool.invoke(new Chunk(equations, results, 0, equations.length, minChunk, null));
+        }
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    private CalculationResult<T> calculate(String equation) {
+        try {
+            return calculator.tryCalculate(equation);
+        } catch (RuntimeException e) {
+            return CalculationResult.failure(equation, e);
+        }
+    }
+
+    /**
+     * Range of equations. Right halves are forked as long as other workers are likely to steal them,
+     * and joined in reverse order of forking.
+     */
+    private final class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final String[] equations;
+        private final CalculationResult<T>[] results;
+        private final int from;
+        private final int to;
+        private final int minChunk;
+        private final Chunk next;
+
+        private Chunk(String[] equations, CalculationResult<T>[] results, int from, int to, int minChunk, Chunk next) {
+            this.equations = equations;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.minChunk = minChunk;
+            this.next = next;
+        }
+
+        @Override
+        protected void compute() {
+            int to = this.to;
+            Chunk right = null;
+            while (to - from > minChunk && getSurplusQueuedTaskCount() <= MAX_SURPLUS_CHUNKS) {
+                int middle = (from + to) >>> 1;
+                right = new Chunk(equations, results, middle, to, minChunk, right);
+                right.fork();
+                to = middle;
+            }
+            calculateRange(from, to);
+            while (right != null) {
+                if (right.tryUnfork())
+                    right.calculateRange(right.from, right.to);
+                else
+                    right.join();
+                right = right.next;
+            }
+        }
+
+        private void calculateRange(int from, int to) {
+            for (int i = from; i < to; i++)
+                results[i] = calculate(equations[i]);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package io.github.aangiel.rpn.concurrent;
+
+import io.github.aangiel.rpn.translation.Messages;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executes calculations with limited number of evaluations waiting or running at the same time. When the limit is
+ * reached, new submissions are rejected or wait for free place, depending on {@link OverflowPolicy}.
+ * Example usage:<br>
+ * <pre>
+ *     CalculatorExecutor executor = CalculatorExecutor.platform(8, 1000, CalculatorExecutor.OverflowPolicy.REJECT);
+ *     Future&#60;Double&#62; result = executor.submit(Double.class, "2 2 +");
+ * </pre>
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ * @see CalculatorExecutorStats
+ */
+public final class CalculatorExecutor implements AutoCloseable {
+
+    /**
+     * What happens with submission when executor is full
+     */
+    public enum OverflowPolicy {
+        /**
+         * Submission throws {@link RejectedExecutionException}
+         */
+        REJECT,
+        /**
+         * Submission waits until one of earlier evaluations finishes
+         */
+        BLOCK
+    }
+
+    /**
+     * {@code Executors.newVirtualThreadPerTaskExecutor()}, or null if JVM doesn't support virtual threads.
+     * It's called reflectively, because the library is compiled for Java 11.
+     */
+    private static final Method NEW_VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutor();
+
+    private final ExecutorService executor;
+    private final boolean virtual;
+    private final OverflowPolicy policy;
+    private final int capacity;
+    private final Semaphore places;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    private CalculatorExecutor(ExecutorService executor, boolean virtual, int capacity, OverflowPolicy policy) {
+        this.executor = executor;
+        this.virtual = virtual;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.places = new Semaphore(capacity);
+    }
+
+    /**
+     * @param threads       number of platform threads evaluating equations
+     * @param queueCapacity maximum number of evaluations waiting for thread
+     * @param policy        what happens with submission when all threads are busy and queue is full
+     * @return new CalculatorExecutor
+     * @throws NullPointerException     if policy is null
+     * @throws IllegalArgumentException if threads isn't positive or queueCapacity is negative
+     */
+    public static CalculatorExecutor platform(int threads, int queueCapacity, OverflowPolicy policy) {
+        Objects.requireNonNull(policy);
+        if (threads <= 0)
+            throw new IllegalArgumentException(String.valueOf(threads));
+        if (queueCapacity < 0 || queueCapacity > Integer.MAX_VALUE - threads)
+            throw new IllegalArgumentException(String.valueOf(queueCapacity));
+
+        // Queue is bounded by number of places, so it never rejects by itself
+        var counter = new AtomicInteger();
+        var executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    var thread = new Thread(runnable, "rpn-calculator-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        return new CalculatorExecutor(executor, false, threads + queueCapacity, policy);
+    }
+
+    /**
+     * Every evaluation runs on its own virtual thread. If JVM doesn't support virtual threads, evaluations
+     * run on {@link Runtime#availableProcessors()} platform threads.
+     *
+     * @param capacity maximum number of evaluations waiting or running
+     * @param policy   what happens with submission when there are already 'capacity' evaluations
+     * @return new CalculatorExecutor
+     * @throws NullPointerException     if policy is null
+     * @throws IllegalArgumentException if capacity isn't positive
+     * @see #isVirtualThreadsSupported()
+     */
+    public static CalculatorExecutor virtual(int capacity, OverflowPolicy policy) {
+        Objects.requireNonNull(policy);
+        if (capacity <= 0)
+            throw new IllegalArgumentException(String.valueOf(capacity));
+
+        var executor = newVirtualThreadExecutor();
+        if (executor == null) {
+            var threads = Math.min(capacity, Runtime.getRuntime().availableProcessors());
+            return platform(threads, capacity - threads, policy);
+        }
+        return new CalculatorExecutor(executor, true, capacity, policy);
+    }
+
+    /**
+     * @return true if JVM supports virtual threads, so {@link #virtual(int, OverflowPolicy)} uses them
+     */
+    public static boolean isVirtualThreadsSupported() {
+        return NEW_VIRTUAL_THREAD_EXECUTOR != null;
+    }
+
+    /**
+     * @param clazz    Class extending Number for use with Calculator
+     * @param equation equation to calculate
+     * @param <T>      extends Number
+     * @return Future with calculation result
+     * @throws NullPointerException       if clazz or equation is null
+     * @throws IllegalArgumentException   if there are no calculator for type given in 'clazz' param
+     * @throws RejectedExecutionException if executor is full and policy is {@link OverflowPolicy#REJECT},
+     *                                    thread was interrupted while waiting or executor is shut down
+     */
+    public <T extends Number> Future<T> submit(Class<T> clazz, String equation) {
+        return submit(CalculatorCallable.of(clazz, equation));
+    }
+
+    /**
+     * @param task calculation to execute, usually {@link CalculatorCallable}
+     * @param <T>  type of result
+     * @return Future with calculation result
+     * @throws NullPointerException       if task is null
+     * @throws RejectedExecutionException if executor is full and policy is {@link OverflowPolicy#REJECT},
+     *                                    thread was interrupted while waiting or executor is shut down
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        Objects.requireNonNull(task);
+        acquirePlace();
+
+        var evaluation = new Evaluation<>(task);
+        submitted.increment();
+        maxQueueDepth.accumulateAndGet(queueDepth.incrementAndGet(), Math::max);
+        try {
+            executor.execute(evaluation);
+            return evaluation;
+        } catch (RejectedExecutionException e) {
+            submitted.decrement();
+            queueDepth.decrementAndGet();
+            places.release();
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    private void acquirePlace() {
+        if (policy == OverflowPolicy.REJECT) {
+            if (places.tryAcquire())
+                return;
+        } else {
+            try {
+                places.acquire();
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                rejected.increment();
+                throw new RejectedExecutionException(e);
+            }
+        }
+        rejected.increment();
+        throw new RejectedExecutionException(Messages.EXECUTOR_FULL.get(capacity));
+    }
+
+    /**
+     * @return true if evaluations run on virtual threads
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * @return snapshot of statistics
+     */
+    public CalculatorExecutorStats getStats() {
+        return new CalculatorExecutorStats(submitted.sum(), rejected.sum(), completed.sum(), queueDepth.get(),
+                maxQueueDepth.get(), active.get(), totalWaitNanos.sum(), maxWaitNanos.get(), capacity);
+    }
+
+    /**
+     * Starts orderly shutdown: already submitted evaluations are executed, new ones are rejected.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * @param timeout maximum time to wait
+     * @param unit    unit of timeout
+     * @return true if all evaluations finished after {@link #shutdown()}, false if timeout elapsed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * Shuts down executor and waits until all submitted evaluations finish.
+     */
+    @Override
+    public void close() {
+        shutdown();
+        var interrupted = false;
+        while (true) {
+            try {
+                if (awaitTermination(1L, TimeUnit.DAYS))
+                    break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Evaluation gives back its place when it finishes running or when it's cancelled before it starts,
+     * because executor never runs cancelled evaluation.
+     */
+    private final class Evaluation<T> extends FutureTask<T> {
+
+        private final long submittedAt = System.nanoTime();
+
+        // Set by whichever comes first: start of evaluation or cancellation before it
+        private final AtomicBoolean leftQueue = new AtomicBoolean();
+
+        private Evaluation(Callable<T> task) {
+            super(task);
+        }
+
+        @Override
+        public void run() {
+            if (!leftQueue.compareAndSet(false, true))
+                return;
+
+            queueDepth.decrementAndGet();
+            active.incrementAndGet();
+            var wait = System.nanoTime() - submittedAt;
+            totalWaitNanos.add(wait);
+            maxWaitNanos.accumulateAndGet(wait, Math::max);
+            try {
+                super.run();
+            } finally {
+                active.decrementAndGet();
+                completed.increment();
+                places.release();
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (!leftQueue.compareAndSet(false, true))
+                return;
+
+            // Cancelled while waiting for thread
+            queueDepth.decrementAndGet();
+            completed.increment();
+            places.release();
+        }
+    }
+
+    private static Method findVirtualThreadExecutor() {
+        try {
+            var method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            // In Java 19 and 20 it throws exception, unless preview features are enabled
+            ((ExecutorService) method.invoke(null)).shutdown();
+            return method;
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        if (NEW_VIRTUAL_THREAD_EXECUTOR == null)
+            return null;
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            return null;
+        }
+    }
+}
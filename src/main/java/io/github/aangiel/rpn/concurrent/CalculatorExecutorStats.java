@@ -0,0 +1,113 @@
+package io.github.aangiel.rpn.concurrent;
+
+/**
+ * Snapshot of statistics of {@link CalculatorExecutor}.
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ * @see CalculatorExecutor#getStats()
+ */
+public final class CalculatorExecutorStats {
+
+    private final long submitted;
+    private final long rejected;
+    private final long completed;
+    private final int queueDepth;
+    private final int maxQueueDepth;
+    private final int active;
+    private final long totalWaitNanos;
+    private final long maxWaitNanos;
+    private final int capacity;
+
+    CalculatorExecutorStats(long submitted, long rejected, long completed, int queueDepth, int maxQueueDepth,
+                            int active, long totalWaitNanos, long maxWaitNanos, int capacity) {
+        this.submitted = submitted;
+        this.rejected = rejected;
+        this.completed = completed;
+        this.queueDepth = queueDepth;
+        this.maxQueueDepth = maxQueueDepth;
+        this.active = active;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return number of evaluations accepted by executor
+     */
+    public long getSubmitted() {
+        return submitted;
+    }
+
+    /**
+     * @return number of evaluations rejected, because executor was full or shut down
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return number of evaluations finished, successfully or not, including these cancelled before start
+     */
+    public long getCompleted() {
+        return completed;
+    }
+
+    /**
+     * @return number of evaluations currently waiting for thread
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * @return the highest number of evaluations waiting for thread at the same time
+     */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    /**
+     * @return number of evaluations currently running
+     */
+    public int getActive() {
+        return active;
+    }
+
+    /**
+     * @return sum of times between submission and start of all started evaluations, in nanoseconds
+     */
+    public long getTotalWaitNanos() {
+        return totalWaitNanos;
+    }
+
+    /**
+     * @return the longest time between submission and start of evaluation, in nanoseconds
+     */
+    public long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    /**
+     * @return average time between submission and start of evaluation in nanoseconds,
+     * or 0 if no evaluation was started
+     */
+    public double getAverageWaitNanos() {
+        var started = completed + active;
+        return started == 0 ? 0.0 : (double) totalWaitNanos / started;
+    }
+
+    /**
+     * @return maximum number of evaluations waiting or running at the same time
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CalculatorExecutorStats[submitted=%d, rejected=%d, completed=%d, queueDepth=%d, " +
+                        "maxQueueDepth=%d, active=%d, totalWaitNanos=%d, maxWaitNanos=%d, capacity=%d]",
+                submitted, rejected, completed, queueDepth, maxQueueDepth, active, totalWaitNanos, maxWaitNanos,
+                capacity);
+    }
+}
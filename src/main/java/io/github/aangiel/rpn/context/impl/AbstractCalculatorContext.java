@@ -1,21 +1,32 @@
 package io.github.aangiel.rpn.context.impl;
 
 import io.github.aangiel.rpn.context.interfaces.CalculatorContext;
+import io.github.aangiel.rpn.context.operators.Operator;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
 /**
  * Base abstract class used by {@link io.github.aangiel.rpn.Calculator Calculator}.
  * This class should be extended if you want to add new type of {@link Number Numbers}
  * which you want to use with RPN Calculator
+ * <p>
+ * Context can be {@link #freeze() frozen} after all functions and operators are added. Frozen context is
+ * immutable, looks up functions and operators in table optimized for that and can be shared by many threads
+ * without synchronization.
  *
  * @param <T> extends {@link Number Number}.
  * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
  */
 public abstract class AbstractCalculatorContext<T extends Number> implements CalculatorContext<T> {
 
-    private final Map<String, Function<LinkedList<T>, T>> functions;
+    private final Map<String, Operator<T>> functions;
+
+    private final AtomicLong version = new AtomicLong();
+
+    // Not volatile, because table has only final fields
+    private OperatorTable<Operator<T>> frozen;
 
     protected AbstractCalculatorContext() {
         functions = new HashMap<>();
@@ -52,19 +63,70 @@ public abstract class AbstractCalculatorContext<T extends Number> implements Cal
      * @param function Lambda which will be used during parsing equation (e.g. args -&#62; args.get(0) + args.get(1)<br>
      *                 args is defined as {@link Function &#60;T extends Number&#62; T apply(List&#60;T&#62; args)}
      * @return this
-     * @throws NullPointerException     if one of parameters is null
-     * @throws RuntimeException         like {@link Map#put(Object, Object)}
-     * @throws IllegalArgumentException if function/operator already exists
+     * @throws NullPointerException          if one of parameters is null
+     * @throws RuntimeException              like {@link Map#put(Object, Object)}
+     * @throws IllegalArgumentException      if function/operator already exists
+     * @throws UnsupportedOperationException if context is {@link #freeze() frozen}
      */
     @Override
     public CalculatorContext<T> addFunctionOrOperator(String name, Function<LinkedList<T>, T> function) {
         Objects.requireNonNull(name);
         Objects.requireNonNull(function);
 
-        functions.put(name, function);
+        return addOperator(name, Operator.legacy(function));
+    }
+
+    /**
+     * @param name     Name of the function or operator (e.g. "*" for multiplying or "sin" for sinus)
+     * @param operator function or operator with declared arity
+     * @return this
+     * @throws NullPointerException          if one of parameters is null
+     * @throws UnsupportedOperationException if context is {@link #freeze() frozen}
+     */
+    @Override
+    public CalculatorContext<T> addOperator(String name, Operator<T> operator) {
+        Objects.requireNonNull(name);
+        Objects.requireNonNull(operator);
+        checkNotFrozen();
+
+        functions.put(name, operator);
+        version.incrementAndGet();
+        return self();
+    }
+
+    /**
+     * Makes this context immutable. Functions and operators are copied to table in which operators named with
+     * single character are found by array indexing, and adding functions or operators throws
+     * {@link UnsupportedOperationException}. Context should be frozen before it's shared by threads.
+     *
+     * @return this
+     */
+    public CalculatorContext<T> freeze() {
+        if (frozen == null)
+            frozen = OperatorTable.of(functions);
         return self();
     }
 
+    /**
+     * @return true if context is {@link #freeze() frozen}
+     */
+    public boolean isFrozen() {
+        return frozen != null;
+    }
+
+    /**
+     * @throws UnsupportedOperationException if context is {@link #freeze() frozen}
+     */
+    protected final void checkNotFrozen() {
+        if (frozen != null)
+            throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
     @Override
     public Set<String> getAvailableFunctionsAndOperators() {
         return Collections.unmodifiableSet(functions.keySet());
@@ -73,8 +135,19 @@ public abstract class AbstractCalculatorContext<T extends Number> implements Cal
 
     @Override
     public Optional<Function<LinkedList<T>, T>> getFunctionOrOperator(String name) {
+        return getOperator(name).map(Operator::toFunction);
+    }
+
+    @Override
+    public Optional<Operator<T>> getOperator(String name) {
+        return Optional.ofNullable(lookupOperator(name));
+    }
+
+    @Override
+    public Operator<T> lookupOperator(String name) {
         Objects.requireNonNull(name);
-        return Optional.ofNullable(functions.get(name));
+        var table = frozen;
+        return table != null ? table.get(name) : functions.get(name);
     }
 
 }
@@ -1,21 +1,69 @@
 package io.github.aangiel.rpn.context.impl;
 
 import io.github.aangiel.rpn.context.interfaces.PrecisionContext;
+import io.github.aangiel.rpn.context.interfaces.ScopedContext;
 import org.apfloat.Apfloat;
+import org.apfloat.ApfloatContext;
 import org.apfloat.ApfloatMath;
+import org.apfloat.Apint;
 
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
 
 /**
+ * Context can have its own {@link ApfloatContext} with settings of apfloat (e.g. number of processors used
+ * for multiplication of huge numbers or disk storage of them), which calculator applies to current thread
+ * only around parsing, compiling and evaluating equations, so calculators with different settings don't
+ * conflict. Without it apfloat uses its global settings.
+ *
  * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
  * @see AbstractCalculatorContext
  */
-public final class ApfloatCalculatorContext extends AbstractCalculatorContext<Apfloat> implements PrecisionContext {
+public final class ApfloatCalculatorContext extends AbstractCalculatorContext<Apfloat>
+        implements PrecisionContext, ScopedContext {
+
+    private static final Scope NO_SETTINGS = () -> {
+    };
 
     private final long precision;
 
+    private final ApfloatContext apfloatContext;
+
+    /**
+     * Constants calculated with {@link #getPrecision() precision} of this context, computed at first use
+     */
+    private final Map<String, Apfloat> constants = new ConcurrentHashMap<>();
+
     public ApfloatCalculatorContext(long precision) {
         this.precision = precision;
+        this.apfloatContext = null;
+    }
+
+    /**
+     * Settings are best created from clone of global context, so they have all properties of it.
+     * Precision is in digits of {@link ApfloatContext#getDefaultRadix() radix} of settings and values
+     * of variables have to be in that radix too.
+     * Example usage:<br>
+     * <pre>
+     *     ApfloatContext settings = (ApfloatContext) ApfloatContext.getGlobalContext().clone();
+     *     settings.setNumberOfProcessors(16);
+     *     settings.setMaxMemoryBlockSize(1L &#60;&#60; 32);
+     *     settings.setProperty(ApfloatContext.FILE_PATH, "/scratch/");
+     *     new ApfloatCalculatorContext(1_000_000, settings);
+     * </pre>
+     *
+     * @param precision      precision of numbers
+     * @param apfloatContext settings of apfloat (number of processors, maximum memory block size, cache sizes,
+     *                       path and threshold of disk storage, radix) applied around calculations
+     * @throws NullPointerException if apfloatContext is null
+     */
+    public ApfloatCalculatorContext(long precision, ApfloatContext apfloatContext) {
+        this.precision = precision;
+        this.apfloatContext = Objects.requireNonNull(apfloatContext);
     }
 
     public ApfloatCalculatorContext() {
@@ -34,57 +82,120 @@ public final class ApfloatCalculatorContext extends AbstractCalculatorContext<Ap
 
     @Override
     protected void populateDefaultOperations() {
-        addFunctionOrOperator("+", args -> args.remove(1).add(args.pop()));
-        addFunctionOrOperator("-", args -> args.remove(1).subtract(args.pop()));
-        addFunctionOrOperator("*", args -> args.remove(1).multiply(args.pop()));
-        addFunctionOrOperator("/", args -> args.remove(1).divide(args.pop()));
+        addBinaryOperator("+", Apfloat::add);
+        addBinaryOperator("-", Apfloat::subtract);
+        addBinaryOperator("*", Apfloat::multiply);
+        addBinaryOperator("/", Apfloat::divide);
     }
 
     @Override
     protected void populateConstants() {
-        addFunctionOrOperator("pi", args -> ApfloatMath.pi(getPrecision()));
-        addFunctionOrOperator("e", args -> new Apfloat(Math.E));
+        addConstant("pi", cached("pi", ApfloatMath::pi));
+        addConstant("e", cached("e", precision -> ApfloatMath.exp(new Apfloat(1, precision))));
+        addConstant("ln2", cached("ln2", precision -> ApfloatMath.log(new Apfloat(2, precision))));
+        addConstant("ln10", cached("ln10", precision -> ApfloatMath.log(new Apfloat(10, precision))));
+        addConstant("euler", cached("euler", ApfloatCalculatorContext::euler));
+    }
+
+    private Supplier<Apfloat> cached(String name, LongFunction<Apfloat> calculation) {
+        return () -> constants.computeIfAbsent(name, key -> calculation.apply(getPrecision()));
+    }
+
+    /**
+     * Euler-Mascheroni constant calculated with Brent-McMillan algorithm, whose error is smaller than
+     * {@code pi * exp(-4n)}.
+     */
+    private static Apfloat euler(long precision) {
+        // Guard digits for rounding errors of summation
+        var workingPrecision = precision + 20;
+        var n = (long) Math.ceil(precision * Math.log(10) / 4) + 1;
+        var nSquare = new Apint(n).multiply(new Apint(n));
+
+        var a = ApfloatMath.log(new Apfloat(n, workingPrecision)).negate();
+        var b = new Apfloat(1, workingPrecision);
+        var u = a;
+        var v = b;
+        for (long k = 1; ; k++) {
+            var apK = new Apint(k);
+            b = b.multiply(nSquare).divide(apK.multiply(apK));
+            a = a.multiply(nSquare).divide(apK).add(b).divide(apK);
+            u = u.add(a);
+            v = v.add(b);
+            if (k > n && isNegligible(b, v, workingPrecision) && isNegligible(a, u, workingPrecision))
+                break;
+        }
+        return u.divide(v).precision(precision);
+    }
+
+    private static boolean isNegligible(Apfloat term, Apfloat sum, long precision) {
+        return term.signum() == 0 || term.scale() < sum.scale() - precision;
     }
 
     @Override
     protected void populateMathFunctions() {
-        addFunctionOrOperator("abs", args -> ApfloatMath.abs(args.pop()));
-        addFunctionOrOperator("acos", args -> ApfloatMath.acos(args.pop()));
-        addFunctionOrOperator("acosh", args -> ApfloatMath.acosh(args.pop()));
-        addFunctionOrOperator("agm", args -> ApfloatMath.agm(args.remove(1), args.pop()));
-        addFunctionOrOperator("asin", args -> ApfloatMath.asin(args.pop()));
-        addFunctionOrOperator("asinh", args -> ApfloatMath.asinh(args.pop()));
-        addFunctionOrOperator("atan", args -> ApfloatMath.atan(args.pop()));
-        addFunctionOrOperator("atan2", args -> ApfloatMath.atan2(args.remove(1), args.pop()));
-        addFunctionOrOperator("atanh", args -> ApfloatMath.atanh(args.pop()));
-        addFunctionOrOperator("cbrt", args -> ApfloatMath.cbrt(args.pop()));
-        addFunctionOrOperator("copySign", args -> ApfloatMath.copySign(args.remove(1), args.pop()));
-        addFunctionOrOperator("cos", args -> ApfloatMath.cos(args.pop()));
-        addFunctionOrOperator("cosh", args -> ApfloatMath.cosh(args.pop()));
-        addFunctionOrOperator("exp", args -> ApfloatMath.exp(args.pop()));
-        addFunctionOrOperator("fmod", args -> ApfloatMath.fmod(args.remove(1), args.pop()));
-        addFunctionOrOperator("frac", args -> ApfloatMath.frac(args.pop()));
-        addFunctionOrOperator("gamma", args -> ApfloatMath.gamma(args.pop()));
-        addFunctionOrOperator("log", args -> ApfloatMath.log(args.pop()));
-        addFunctionOrOperator("logWithBase", args -> ApfloatMath.log(args.remove(1), args.pop()));
-        addFunctionOrOperator("max", args -> ApfloatMath.max(args.remove(1), args.pop()));
-        addFunctionOrOperator("min", args -> ApfloatMath.min(args.remove(1), args.pop()));
-        addFunctionOrOperator("multiplyAdd", args -> ApfloatMath.multiplyAdd(args.remove(3), args.remove(2), args.remove(1), args.pop()));
-        addFunctionOrOperator("multiplySubtract", args -> ApfloatMath.multiplySubtract(args.remove(3), args.remove(2), args.remove(1), args.pop()));
-        addFunctionOrOperator("negate", args -> ApfloatMath.negate(args.pop()));
-        addFunctionOrOperator("pow", args -> ApfloatMath.pow(args.remove(1), args.pop()));
-        addFunctionOrOperator("sin", args -> ApfloatMath.sin(args.pop()));
-        addFunctionOrOperator("sinh", args -> ApfloatMath.sinh(args.pop()));
-        addFunctionOrOperator("sqrt", args -> ApfloatMath.sqrt(args.pop()));
-        addFunctionOrOperator("tan", args -> ApfloatMath.tan(args.pop()));
-        addFunctionOrOperator("tanh", args -> ApfloatMath.tanh(args.pop()));
-        addFunctionOrOperator("toDegrees", args -> ApfloatMath.toDegrees(args.pop()));
-        addFunctionOrOperator("toRadians", args -> ApfloatMath.toRadians(args.pop()));
-        addFunctionOrOperator("w", args -> ApfloatMath.w(args.pop()));
+        addUnaryOperator("abs", ApfloatMath::abs);
+        addUnaryOperator("acos", ApfloatMath::acos);
+        addUnaryOperator("acosh", ApfloatMath::acosh);
+        addBinaryOperator("agm", ApfloatMath::agm);
+        addUnaryOperator("asin", ApfloatMath::asin);
+        addUnaryOperator("asinh", ApfloatMath::asinh);
+        addUnaryOperator("atan", ApfloatMath::atan);
+        addBinaryOperator("atan2", ApfloatMath::atan2);
+        addUnaryOperator("atanh", ApfloatMath::atanh);
+        addUnaryOperator("cbrt", ApfloatMath::cbrt);
+        addBinaryOperator("copySign", ApfloatMath::copySign);
+        addUnaryOperator("cos", ApfloatMath::cos);
+        addUnaryOperator("cosh", ApfloatMath::cosh);
+        addUnaryOperator("exp", ApfloatMath::exp);
+        addBinaryOperator("fmod", ApfloatMath::fmod);
+        addUnaryOperator("frac", ApfloatMath::frac);
+        addUnaryOperator("gamma", ApfloatMath::gamma);
+        addUnaryOperator("log", ApfloatMath::log);
+        addBinaryOperator("logWithBase", ApfloatMath::log);
+        addBinaryOperator("max", ApfloatMath::max);
+        addBinaryOperator("min", ApfloatMath::min);
+        addNaryOperator("multiplyAdd", 4, args -> ApfloatMath.multiplyAdd(args.get(0), args.get(1), args.get(2), args.get(3)));
+        addNaryOperator("multiplySubtract", 4, args -> ApfloatMath.multiplySubtract(args.get(0), args.get(1), args.get(2), args.get(3)));
+        addUnaryOperator("negate", ApfloatMath::negate);
+        addBinaryOperator("pow", ApfloatMath::pow);
+        addUnaryOperator("sin", ApfloatMath::sin);
+        addUnaryOperator("sinh", ApfloatMath::sinh);
+        addUnaryOperator("sqrt", ApfloatMath::sqrt);
+        addUnaryOperator("tan", ApfloatMath::tan);
+        addUnaryOperator("tanh", ApfloatMath::tanh);
+        addUnaryOperator("toDegrees", ApfloatMath::toDegrees);
+        addUnaryOperator("toRadians", ApfloatMath::toRadians);
+        addUnaryOperator("w", ApfloatMath::w);
     }
 
     @Override
     public long getPrecision() {
         return precision;
     }
+
+    /**
+     * @return settings of apfloat applied around calculations, null if global settings are used
+     */
+    public ApfloatContext getApfloatContext() {
+        return apfloatContext;
+    }
+
+    /**
+     * Sets {@link ApfloatContext#setThreadContext(ApfloatContext) thread context} of apfloat to settings
+     * of this context.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public Scope enter() {
+        if (apfloatContext == null)
+            return NO_SETTINGS;
+        var previous = ApfloatContext.getThreadContext();
+        if (previous == apfloatContext)
+            return NO_SETTINGS;
+        ApfloatContext.setThreadContext(apfloatContext);
+        if (previous == null)
+            return ApfloatContext::removeThreadContext;
+        return () -> ApfloatContext.setThreadContext(previous);
+    }
 }
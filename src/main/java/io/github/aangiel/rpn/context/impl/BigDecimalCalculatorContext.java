@@ -1,49 +1,147 @@
 package io.github.aangiel.rpn.context.impl;
 
 import io.github.aangiel.rpn.context.interfaces.RoundingModeContext;
+import io.github.aangiel.rpn.context.operators.BigDecimalOperator;
 
 import java.math.BigDecimal;
+import java.math.MathContext;
 import java.math.RoundingMode;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
+ * Arithmetic operators round their results with {@link MathContext} and {@link ScalePolicy} of context.
+ * Exact ones (with precision 0 and {@link ScalePolicy#unchanged() unchanged} scale) are
+ * {@link BigDecimalOperator BigDecimalOperators}, so equations calculated in one pass
+ * (e.g. by {@link io.github.aangiel.rpn.Calculator#calculate(CharSequence)}) are calculated on unscaled
+ * {@code long} values as long as they fit, with the same results.
+ * <p>
+ * Functions (sqrt, exp, log, pow, sin, cos and atan) are calculated on {@link BigDecimal} to precision of
+ * {@link #getFunctionMathContext() function math context}. Constants pi and e have that precision too,
+ * except for context with precision 0, where they're values of {@link Math#PI} and {@link Math#E}.
+ * Arguments, for which calculation would need unbounded precision, throw {@link ArithmeticException}:
+ * exp of argument with more than 10 integer digits, sin and cos of argument with more than 1000 integer digits.
+ *
  * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
  * @see AbstractCalculatorContext
  */
 public final class BigDecimalCalculatorContext extends AbstractCalculatorContext<BigDecimal> implements RoundingModeContext {
 
-    private final RoundingMode roundingMode;
+    /**
+     * Number constructor of this context. Calculator recognizes it and parses plain decimal numbers itself.
+     */
+    public static final Function<String, BigDecimal> NUMBER_CONSTRUCTOR = BigDecimal::new;
+
+    private final MathContext mathContext;
+
+    private final ScalePolicy scalePolicy;
+
+    private final MathContext functionMathContext;
+
+    /**
+     * Constants calculated with precision of {@link #getFunctionMathContext() function math context},
+     * computed at first use
+     */
+    private final Map<String, BigDecimal> constants = new ConcurrentHashMap<>();
 
     public BigDecimalCalculatorContext() {
         this(RoundingMode.CEILING);
     }
 
+    /**
+     * Results of +, - and * are exact, quotient has scale of dividend.
+     *
+     * @param roundingMode rounding mode of division
+     * @throws NullPointerException if roundingMode is null
+     */
     public BigDecimalCalculatorContext(RoundingMode roundingMode) {
-        this.roundingMode = Objects.requireNonNull(roundingMode);
+        this(new MathContext(0, Objects.requireNonNull(roundingMode)));
+    }
+
+    /**
+     * @param mathContext precision and rounding mode of arithmetic operators, precision 0 makes results of
+     *                    +, - and * exact and quotient has scale of dividend
+     * @throws NullPointerException if mathContext is null
+     */
+    public BigDecimalCalculatorContext(MathContext mathContext) {
+        this(mathContext, ScalePolicy.unchanged());
+    }
+
+    /**
+     * Results of arithmetic operators are rounded once: {@link ScalePolicy#fixedScale(int) fixed scale} replaces
+     * precision of 'mathContext', {@link ScalePolicy#maxPrecision(int) maximal precision} is combined with it
+     * and other policies are applied to results rounded with 'mathContext'. Scale policy isn't applied to numbers
+     * in equations nor to other functions and operators.
+     *
+     * @param mathContext precision and rounding mode of arithmetic operators, precision 0 makes results of
+     *                    +, - and * exact and quotient has scale of dividend
+     * @param scalePolicy policy applied to results of arithmetic operators
+     * @throws NullPointerException if one of parameters is null
+     */
+    public BigDecimalCalculatorContext(MathContext mathContext, ScalePolicy scalePolicy) {
+        this.mathContext = Objects.requireNonNull(mathContext);
+        this.scalePolicy = Objects.requireNonNull(scalePolicy);
+        this.functionMathContext = mathContext.getPrecision() == 0
+                ? new MathContext(MathContext.DECIMAL64.getPrecision(), mathContext.getRoundingMode())
+                : mathContext;
+        addArithmeticOperators();
     }
 
+    /**
+     * Arithmetic operators depend on math context, which isn't set yet when super constructor calls this method,
+     * so they're added by constructor.
+     */
     @Override
     protected void populateDefaultOperations() {
-        addFunctionOrOperator("+", args -> args.remove(1).add(args.pop()));
-        addFunctionOrOperator("-", args -> args.remove(1).subtract(args.pop()));
-        addFunctionOrOperator("*", args -> args.remove(1).multiply(args.pop()));
-        addFunctionOrOperator("/", args -> args.remove(1).divide(args.pop(), getRoundingMode()));
+    }
+
+    private void addArithmeticOperators() {
+        var roundingMode = mathContext.getRoundingMode();
+        if (mathContext.getPrecision() == 0 && scalePolicy == ScalePolicy.unchanged()) {
+            addBinaryOperator("+", BigDecimalOperator.add());
+            addBinaryOperator("-", BigDecimalOperator.subtract());
+            addBinaryOperator("*", BigDecimalOperator.multiply());
+            addBinaryOperator("/", BigDecimalOperator.divide(roundingMode));
+            return;
+        }
+
+        addBinaryOperator("+", (a, b) -> scalePolicy.add(a, b, mathContext));
+        addBinaryOperator("-", (a, b) -> scalePolicy.subtract(a, b, mathContext));
+        addBinaryOperator("*", (a, b) -> scalePolicy.multiply(a, b, mathContext));
+        addBinaryOperator("/", (a, b) -> scalePolicy.divide(a, b, mathContext));
     }
 
     @Override
     protected void populateConstants() {
-        addFunctionOrOperator("pi", args -> BigDecimal.valueOf(Math.PI));
-        addFunctionOrOperator("e", args -> BigDecimal.valueOf(Math.E));
+        addConstant("pi", cached("pi", Math.PI, BigDecimalMath::pi));
+        addConstant("e", cached("e", Math.E, BigDecimalMath::e));
+    }
+
+    private Supplier<BigDecimal> cached(String name, double approximation,
+                                        Function<MathContext, BigDecimal> calculation) {
+        var value = BigDecimal.valueOf(approximation);
+        return () -> mathContext.getPrecision() == 0
+                ? value
+                : constants.computeIfAbsent(name, key -> calculation.apply(functionMathContext));
     }
 
     @Override
     protected void populateMathFunctions() {
+        addUnaryOperator("atan", x -> BigDecimalMath.atan(x, functionMathContext));
+        addUnaryOperator("cos", x -> BigDecimalMath.cos(x, functionMathContext));
+        addUnaryOperator("exp", x -> BigDecimalMath.exp(x, functionMathContext));
+        addUnaryOperator("log", x -> BigDecimalMath.log(x, functionMathContext));
+        addBinaryOperator("pow", (x, y) -> BigDecimalMath.pow(x, y, functionMathContext));
+        addUnaryOperator("sin", x -> BigDecimalMath.sin(x, functionMathContext));
+        addUnaryOperator("sqrt", x -> BigDecimalMath.sqrt(x, functionMathContext));
     }
 
     @Override
     public Function<String, BigDecimal> getNumberConstructor() {
-        return BigDecimal::new;
+        return NUMBER_CONSTRUCTOR;
     }
 
     @Override
@@ -53,6 +151,28 @@ public final class BigDecimalCalculatorContext extends AbstractCalculatorContext
 
     @Override
     public RoundingMode getRoundingMode() {
-        return roundingMode;
+        return mathContext.getRoundingMode();
+    }
+
+    /**
+     * @return precision and rounding mode of arithmetic operators
+     */
+    public MathContext getMathContext() {
+        return mathContext;
+    }
+
+    /**
+     * @return precision and rounding mode of functions and constants, math context of this context or
+     * {@link MathContext#DECIMAL64 DECIMAL64} precision with its rounding mode, if its precision is 0
+     */
+    public MathContext getFunctionMathContext() {
+        return functionMathContext;
+    }
+
+    /**
+     * @return policy applied to results of arithmetic operators
+     */
+    public ScalePolicy getScalePolicy() {
+        return scalePolicy;
     }
 }
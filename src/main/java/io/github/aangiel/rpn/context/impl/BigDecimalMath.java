@@ -0,0 +1,290 @@
+package io.github.aangiel.rpn.context.impl;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * Mathematical functions of {@link BigDecimalCalculatorContext} calculated on {@link BigDecimal} to precision
+ * of given {@link MathContext}, without converting values to other types. Every function calculates with
+ * a few guard digits and rounds the result once, with rounding mode of given {@link MathContext}.
+ * <p>
+ * Constants needed by functions (pi and ln(10)) are kept with the highest precision calculated so far,
+ * so they're calculated again only when higher precision is needed.
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+final class BigDecimalMath {
+
+    private static final int GUARD_DIGITS = 10;
+
+    // exp of number with more integer digits doesn't fit in exponent of BigDecimal
+    private static final int MAX_EXP_DIGITS = 10;
+
+    // sin and cos of number with more integer digits need pi with that many digits to reduce it
+    private static final int MAX_TRIGONOMETRIC_DIGITS = 1000;
+
+    private static final BigDecimal TWO = BigDecimal.valueOf(2);
+
+    // Mantissas of logarithm are below it, so ln(m) and n * ln(10) never cancel each other
+    private static final BigDecimal SQRT_TEN = new BigDecimal("3.1622776601683793");
+
+    // Not volatile, because BigDecimal is immutable, so the worst case is calculating constant twice
+    private static BigDecimal pi = BigDecimal.valueOf(3);
+    private static BigDecimal ln10 = BigDecimal.valueOf(2);
+
+    private BigDecimalMath() {
+    }
+
+    static BigDecimal pi(MathContext mathContext) {
+        var cached = pi;
+        if (cached.precision() < mathContext.getPrecision() + GUARD_DIGITS) {
+            cached = calculatePi(working(mathContext));
+            pi = cached;
+        }
+        return cached.round(mathContext);
+    }
+
+    static BigDecimal e(MathContext mathContext) {
+        return exp(BigDecimal.ONE, mathContext);
+    }
+
+    static BigDecimal sqrt(BigDecimal x, MathContext mathContext) {
+        return x.sqrt(mathContext);
+    }
+
+    /**
+     * Series of exp(x / 2^k) with |x / 2^k| below 1, squared k times.
+     *
+     * @throws ArithmeticException if result is out of range of {@link BigDecimal}
+     */
+    static BigDecimal exp(BigDecimal x, MathContext mathContext) {
+        if (x.signum() == 0)
+            return BigDecimal.ONE.round(mathContext);
+        var integerDigits = Math.max(0, x.precision() - x.scale());
+        if (integerDigits > MAX_EXP_DIGITS)
+            throw new ArithmeticException(x.signum() > 0 ? "Overflow" : "Underflow");
+
+        // Every squaring doubles relative error, so it needs more guard digits
+        var halvings = integerDigits * 4 + 1;
+        var working = new MathContext(mathContext.getPrecision() + GUARD_DIGITS + halvings / 3,
+                RoundingMode.HALF_EVEN);
+        var reduced = x.divide(TWO.pow(halvings), working);
+
+        var sum = BigDecimal.ONE;
+        var term = BigDecimal.ONE;
+        var epsilon = BigDecimal.ONE.movePointLeft(working.getPrecision() + 1);
+        for (int n = 1; term.abs().compareTo(epsilon) > 0; n++) {
+            term = term.multiply(reduced, working).divide(BigDecimal.valueOf(n), working);
+            sum = sum.add(term, working);
+        }
+        for (int i = 0; i < halvings; i++)
+            sum = sum.multiply(sum, working);
+        return sum.round(mathContext);
+    }
+
+    /**
+     * ln(x) = ln(m) + n * ln(10), where x = m * 10^n and 1/sqrt(10) &#60;= m &#60; sqrt(10), so |ln(m)| is at most
+     * half of ln(10) and the sum can't cancel. Logarithm of m is found by Halley's iteration on exp, starting from
+     * logarithm of double.
+     *
+     * @throws ArithmeticException if x isn't positive
+     */
+    static BigDecimal log(BigDecimal x, MathContext mathContext) {
+        if (x.signum() <= 0)
+            throw new ArithmeticException("Logarithm of non-positive number");
+
+        var exponent = x.precision() - x.scale() - 1;
+        if (x.movePointLeft(exponent).compareTo(SQRT_TEN) >= 0)
+            exponent++;
+        var mantissa = x.movePointLeft(exponent);
+        // Logarithm of mantissa close to 1 is close to 0, so it needs more digits to keep relative precision
+        var distance = mantissa.subtract(BigDecimal.ONE);
+        var leadingZeros = distance.signum() == 0 ? 0 : Math.max(0, distance.scale() - distance.precision());
+        var working = new MathContext(mathContext.getPrecision() + GUARD_DIGITS + leadingZeros,
+                RoundingMode.HALF_EVEN);
+        var result = distance.signum() == 0 ? BigDecimal.ZERO : logOfMantissa(mantissa, working);
+        if (exponent != 0)
+            result = result.add(ln10(working).multiply(BigDecimal.valueOf(exponent), working), working);
+        return result.round(mathContext);
+    }
+
+    /**
+     * @throws ArithmeticException if x is negative and y isn't integer, or x is zero and y is negative
+     */
+    static BigDecimal pow(BigDecimal x, BigDecimal y, MathContext mathContext) {
+        if (isInteger(y) && y.abs().compareTo(BigDecimal.valueOf(999_999_999)) <= 0) {
+            var working = new MathContext(mathContext.getPrecision() + GUARD_DIGITS + y.precision(),
+                    RoundingMode.HALF_EVEN);
+            return x.pow(y.intValueExact(), working).round(mathContext);
+        }
+        if (x.signum() == 0) {
+            if (y.signum() < 0)
+                throw new ArithmeticException("Zero raised to negative power");
+            return BigDecimal.ZERO;
+        }
+        if (x.signum() < 0)
+            throw new ArithmeticException("Negative number raised to fractional power");
+
+        // Error of logarithm is multiplied by y
+        var working = new MathContext(mathContext.getPrecision() + GUARD_DIGITS
+                + Math.max(0, y.precision() - y.scale()), RoundingMode.HALF_EVEN);
+        return exp(y.multiply(log(x, working), working), mathContext);
+    }
+
+    /**
+     * @throws ArithmeticException if x has more than 1000 integer digits
+     */
+    static BigDecimal sin(BigDecimal x, MathContext mathContext) {
+        return sin(x, 0, mathContext);
+    }
+
+    /**
+     * @throws ArithmeticException if x has more than 1000 integer digits
+     */
+    static BigDecimal cos(BigDecimal x, MathContext mathContext) {
+        // cos(x) = sin(x + pi/2)
+        return sin(x, 1, mathContext);
+    }
+
+    /**
+     * Argument is reduced with atan(x) = 2 * atan(x / (1 + sqrt(1 + x^2))) until it's small enough for series
+     * to converge quickly.
+     */
+    static BigDecimal atan(BigDecimal x, MathContext mathContext) {
+        var working = working(mathContext);
+        var reduced = x;
+        int doublings = 0;
+        for (var limit = new BigDecimal("0.1"); reduced.abs().compareTo(limit) > 0; doublings++) {
+            var root = BigDecimal.ONE.add(reduced.multiply(reduced, working), working).sqrt(working);
+            reduced = reduced.divide(BigDecimal.ONE.add(root, working), working);
+        }
+
+        // atan(x) = x - x^3/3 + x^5/5 - ...
+        var square = reduced.multiply(reduced, working);
+        var power = reduced;
+        var sum = reduced;
+        var epsilon = BigDecimal.ONE.movePointLeft(working.getPrecision() + 1);
+        for (int n = 3; power.abs().compareTo(epsilon) > 0; n += 2) {
+            power = power.multiply(square, working).negate();
+            sum = sum.add(power.divide(BigDecimal.valueOf(n), working), working);
+        }
+        return sum.multiply(TWO.pow(doublings), working).round(mathContext);
+    }
+
+    /**
+     * sin(x + quadrants * pi/2), where x = r + k * pi/2 and |r| &#60;= pi/4, is +-sin(r) or +-cos(r)
+     * depending on (k + quadrants) mod 4. Digits of r lost by cancellation, when x is close to multiple of pi/2, are
+     * calculated again with more digits of pi, so r keeps relative precision.
+     */
+    private static BigDecimal sin(BigDecimal x, int quadrants, MathContext mathContext) {
+        if (x.precision() - x.scale() > MAX_TRIGONOMETRIC_DIGITS)
+            throw new ArithmeticException("Argument too large");
+        var base = working(mathContext, x);
+        var working = base;
+        BigDecimal k;
+        BigDecimal reduced;
+        while (true) {
+            var halfPi = pi(working).divide(TWO);
+            k = x.divide(halfPi, 0, RoundingMode.HALF_EVEN);
+            if (k.signum() == 0) {
+                reduced = x;
+                break;
+            }
+            reduced = x.subtract(halfPi.multiply(k), working);
+            // Leading zeros of r are digits lost by cancellation
+            var lost = reduced.signum() == 0 ? working.getPrecision() : reduced.scale() - reduced.precision();
+            if (lost <= working.getPrecision() - base.getPrecision())
+                break;
+            working = new MathContext(base.getPrecision() + lost, RoundingMode.HALF_EVEN);
+        }
+
+        var quadrant = k.toBigInteger().add(BigInteger.valueOf(quadrants)).intValue() & 3;
+        // sin(r) = r - r^3/3! + r^5/5! - ..., cos(r) = 1 - r^2/2! + r^4/4! - ...
+        var result = quadrant % 2 == 0
+                ? series(reduced, reduced, 1, working)
+                : series(reduced, BigDecimal.ONE, 0, working);
+        return (quadrant < 2 ? result : result.negate()).round(mathContext);
+    }
+
+    /**
+     * Sum of series starting from 'first' with term x^n/n!, every next one with n bigger by 2 and opposite sign.
+     * |x| is at most pi/4, so the sum is close to 'first' and terms are compared with it.
+     */
+    private static BigDecimal series(BigDecimal x, BigDecimal first, int n, MathContext working) {
+        var square = x.multiply(x, working);
+        var term = first;
+        var sum = first;
+        var epsilon = first.abs().movePointLeft(working.getPrecision() + 1);
+        while (term.abs().compareTo(epsilon) > 0) {
+            term = term.multiply(square, working).divide(BigDecimal.valueOf((long) (n + 1) * (n + 2)), working)
+                    .negate();
+            sum = sum.add(term, working);
+            n += 2;
+        }
+        return sum;
+    }
+
+    private static BigDecimal logOfMantissa(BigDecimal x, MathContext working) {
+        var result = BigDecimal.valueOf(Math.log(x.doubleValue()));
+        // Error after correction c is about c^3, so the last correction is the first one smaller than cube root
+        // of required error
+        var epsilon = BigDecimal.ONE.movePointLeft((working.getPrecision() + 2) / 3);
+        while (true) {
+            // y = y + 2 * (x - exp(y)) / (x + exp(y)), which triples number of correct digits
+            var exp = exp(result, working);
+            var correction = TWO.multiply(x.subtract(exp, working)).divide(x.add(exp, working), working);
+            result = result.add(correction, working);
+            if (correction.abs().compareTo(epsilon) <= 0)
+                return result;
+        }
+    }
+
+    private static BigDecimal ln10(MathContext working) {
+        var cached = ln10;
+        if (cached.precision() < working.getPrecision()) {
+            cached = logOfMantissa(BigDecimal.TEN, new MathContext(working.getPrecision() + GUARD_DIGITS,
+                    RoundingMode.HALF_EVEN));
+            ln10 = cached;
+        }
+        return cached;
+    }
+
+    /**
+     * Gauss-Legendre algorithm, which doubles number of correct digits with every iteration.
+     */
+    private static BigDecimal calculatePi(MathContext working) {
+        var a = BigDecimal.ONE;
+        var b = BigDecimal.ONE.divide(TWO.sqrt(working), working);
+        var t = new BigDecimal("0.25");
+        var p = BigDecimal.ONE;
+        var epsilon = BigDecimal.ONE.movePointLeft(working.getPrecision());
+        while (a.subtract(b).abs().compareTo(epsilon) > 0) {
+            var next = a.add(b).divide(TWO, working);
+            b = a.multiply(b, working).sqrt(working);
+            var difference = a.subtract(next);
+            t = t.subtract(p.multiply(difference.multiply(difference, working)), working);
+            a = next;
+            p = p.multiply(TWO);
+        }
+        var sum = a.add(b);
+        return sum.multiply(sum, working).divide(t.multiply(BigDecimal.valueOf(4)), working);
+    }
+
+    private static boolean isInteger(BigDecimal value) {
+        return value.signum() == 0 || value.scale() <= 0 || value.stripTrailingZeros().scale() <= 0;
+    }
+
+    private static MathContext working(MathContext mathContext) {
+        return new MathContext(mathContext.getPrecision() + GUARD_DIGITS, RoundingMode.HALF_EVEN);
+    }
+
+    /**
+     * @return working precision for trigonometric functions, which lose integer digits of x when reducing it
+     */
+    private static MathContext working(MathContext mathContext, BigDecimal x) {
+        var integerDigits = Math.max(0, x.precision() - x.scale());
+        return new MathContext(mathContext.getPrecision() + GUARD_DIGITS + integerDigits, RoundingMode.HALF_EVEN);
+    }
+}
@@ -0,0 +1,127 @@
+package io.github.aangiel.rpn.context.impl;
+
+import io.github.aangiel.rpn.context.interfaces.CalculatorContext;
+import io.github.aangiel.rpn.context.operators.Operator;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Context which keeps only functions and operators added to it and takes all others, together with number
+ * constructor, from base context. Many derived contexts (e.g. one per customer) can share one base context,
+ * so built-in functions and operators aren't created again for each of them.
+ * <p>
+ * Context derived from another derived context copies its functions and operators and uses its base context,
+ * so looking up function or operator never checks more than two contexts, no matter how many times contexts
+ * were derived. Functions and operators added later to that derived context aren't visible in this one,
+ * but these added to base context are. Base context is best {@link #freeze() frozen}.
+ * Example usage:<br>
+ * <pre>
+ *     BigDecimalCalculatorContext base = new BigDecimalCalculatorContext();
+ *     base.freeze();
+ *     DerivedCalculatorContext&#60;BigDecimal&#62; tenant = DerivedCalculatorContext.of(base);
+ *     tenant.addUnaryOperator("vat", a -&#62; a.multiply(new BigDecimal("1.23")));
+ * </pre>
+ *
+ * @param <T> extends {@link Number Number}.
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ * @see DerivedDoubleCalculatorContext
+ */
+public class DerivedCalculatorContext<T extends Number> extends AbstractCalculatorContext<T> {
+
+    private final CalculatorContext<T> base;
+
+    DerivedCalculatorContext(CalculatorContext<T> base) {
+        Objects.requireNonNull(base);
+        if (base instanceof DerivedCalculatorContext) {
+            var parent = (DerivedCalculatorContext<T>) base;
+            for (var name : parent.getOwnFunctionsAndOperators())
+                super.addOperator(name, parent.lookupOwnOperator(name));
+            this.base = parent.base;
+        } else {
+            this.base = base;
+        }
+    }
+
+    /**
+     * @param base context from which functions and operators not added to new context are taken
+     * @param <T>  extends Number
+     * @return new context without own functions and operators
+     * @throws NullPointerException if base is null
+     */
+    public static <T extends Number> DerivedCalculatorContext<T> of(CalculatorContext<T> base) {
+        return new DerivedCalculatorContext<>(base);
+    }
+
+    /**
+     * @return context from which functions and operators not added to this context are taken
+     */
+    public CalculatorContext<T> getBase() {
+        return base;
+    }
+
+    @Override
+    protected void populateDefaultOperations() {
+    }
+
+    @Override
+    protected void populateConstants() {
+    }
+
+    @Override
+    protected void populateMathFunctions() {
+    }
+
+    @Override
+    public Function<String, T> getNumberConstructor() {
+        return base.getNumberConstructor();
+    }
+
+    @Override
+    public DerivedCalculatorContext<T> self() {
+        return this;
+    }
+
+    @Override
+    public Operator<T> lookupOperator(String name) {
+        var operator = lookupOwnOperator(name);
+        return operator != null ? operator : base.lookupOperator(name);
+    }
+
+    /**
+     * Changes when function or operator is added to this or base context.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public long getVersion() {
+        return super.getVersion() + base.getVersion();
+    }
+
+    /**
+     * @return functions and operators of this and base context
+     */
+    @Override
+    public Set<String> getAvailableFunctionsAndOperators() {
+        var names = new HashSet<>(base.getAvailableFunctionsAndOperators());
+        names.addAll(getOwnFunctionsAndOperators());
+        return Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * @return functions and operators added to this context
+     */
+    public Set<String> getOwnFunctionsAndOperators() {
+        return super.getAvailableFunctionsAndOperators();
+    }
+
+    /**
+     * @return function or operator added to this context, or null
+     */
+    Operator<T> lookupOwnOperator(String name) {
+        return super.lookupOperator(name);
+    }
+}
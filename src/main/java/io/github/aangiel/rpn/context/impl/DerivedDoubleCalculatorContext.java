@@ -0,0 +1,126 @@
+package io.github.aangiel.rpn.context.impl;
+
+import io.github.aangiel.rpn.context.interfaces.PrimitiveDoubleContext;
+import io.github.aangiel.rpn.context.operators.DoubleOperator;
+import io.github.aangiel.rpn.context.operators.Operator;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * {@link DerivedCalculatorContext} of {@link PrimitiveDoubleContext}, which keeps primitive versions of functions
+ * and operators, so {@link io.github.aangiel.rpn.DoubleCalculator DoubleCalculator} can evaluate equations
+ * using functions and operators of both contexts without boxing.
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ * @see DerivedCalculatorContext
+ */
+public final class DerivedDoubleCalculatorContext extends DerivedCalculatorContext<Double> implements PrimitiveDoubleContext {
+
+    private final Map<String, DoubleOperator> doubleFunctions = new HashMap<>();
+
+    // Not volatile, because table has only final fields
+    private OperatorTable<DoubleOperator> frozenDoubleFunctions;
+
+    private DerivedDoubleCalculatorContext(PrimitiveDoubleContext base) {
+        super(base);
+        if (base instanceof DerivedDoubleCalculatorContext) {
+            var parent = (DerivedDoubleCalculatorContext) base;
+            for (var name : parent.getOwnFunctionsAndOperators()) {
+                var operator = parent.lookupOwnDoubleOperator(name);
+                if (operator != null)
+                    doubleFunctions.put(name, operator);
+            }
+        }
+    }
+
+    /**
+     * @param base context from which functions and operators not added to new context are taken
+     * @return new context without own functions and operators
+     * @throws NullPointerException if base is null
+     */
+    public static DerivedDoubleCalculatorContext of(PrimitiveDoubleContext base) {
+        return new DerivedDoubleCalculatorContext(base);
+    }
+
+    @Override
+    public PrimitiveDoubleContext getBase() {
+        // It always works, because base is given to constructor as PrimitiveDoubleContext
+        return (PrimitiveDoubleContext) super.getBase();
+    }
+
+    @Override
+    public DerivedDoubleCalculatorContext self() {
+        return this;
+    }
+
+    @Override
+    public Optional<DoubleOperator> getDoubleFunctionOrOperator(String name) {
+        return Optional.ofNullable(lookupDoubleOperator(name));
+    }
+
+    /**
+     * Function or operator added to this context only in boxed version hides primitive version of base context.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public DoubleOperator lookupDoubleOperator(String name) {
+        if (lookupOwnOperator(name) != null)
+            return lookupOwnDoubleOperator(name);
+        return getBase().lookupDoubleOperator(name);
+    }
+
+    /**
+     * @param name     Name of the function or operator (e.g. "*" for multiplying or "sin" for sinus)
+     * @param operator primitive function or operator
+     * @return this
+     * @throws NullPointerException          if one of parameters is null
+     * @throws UnsupportedOperationException if context is {@link #freeze() frozen}
+     */
+    @Override
+    public DerivedDoubleCalculatorContext addDoubleFunctionOrOperator(String name, DoubleOperator operator) {
+        Objects.requireNonNull(name);
+        Objects.requireNonNull(operator);
+        checkNotFrozen();
+
+        doubleFunctions.put(name, operator);
+        super.addOperator(name, operator.toOperator());
+        return self();
+    }
+
+    /**
+     * Operator added this way hides primitive one with the same name, so equations using it
+     * are evaluated on boxed values.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public DerivedDoubleCalculatorContext addOperator(String name, Operator<Double> operator) {
+        checkNotFrozen();
+        doubleFunctions.remove(name);
+        super.addOperator(name, operator);
+        return self();
+    }
+
+    /**
+     * Freezes also primitive functions and operators.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public DerivedDoubleCalculatorContext freeze() {
+        if (frozenDoubleFunctions == null)
+            frozenDoubleFunctions = OperatorTable.of(doubleFunctions);
+        super.freeze();
+        return self();
+    }
+
+    private DoubleOperator lookupOwnDoubleOperator(String name) {
+        Objects.requireNonNull(name);
+        var table = frozenDoubleFunctions;
+        return table != null ? table.get(name) : doubleFunctions.get(name);
+    }
+}
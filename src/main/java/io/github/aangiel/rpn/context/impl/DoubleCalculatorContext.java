@@ -1,25 +1,42 @@
 package io.github.aangiel.rpn.context.impl;
 
+import io.github.aangiel.rpn.context.interfaces.PrimitiveDoubleContext;
+import io.github.aangiel.rpn.context.operators.DoubleOperator;
+import io.github.aangiel.rpn.context.operators.Operator;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.function.Function;
 
 /**
+ * Built-in functions and operators are added as {@link DoubleOperator primitive ones}, so
+ * {@link io.github.aangiel.rpn.DoubleCalculator DoubleCalculator} can evaluate them without boxing.
+ *
  * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
  * @see AbstractCalculatorContext
  */
-public final class DoubleCalculatorContext extends AbstractCalculatorContext<Double> {
+public final class DoubleCalculatorContext extends AbstractCalculatorContext<Double> implements PrimitiveDoubleContext {
+
+    // Not initialized in declaration, because populate* methods are invoked from super constructor
+    private Map<String, DoubleOperator> doubleFunctions;
+
+    // Not volatile, because table has only final fields
+    private OperatorTable<DoubleOperator> frozenDoubleFunctions;
 
     @Override
     protected void populateDefaultOperations() {
-        addFunctionOrOperator("+", args -> args.remove(1) + args.pop());
-        addFunctionOrOperator("-", args -> args.remove(1) - args.pop());
-        addFunctionOrOperator("*", args -> args.remove(1) * args.pop());
-        addFunctionOrOperator("/", args -> args.remove(1) / args.pop());
+        addDoubleFunctionOrOperator("+", DoubleOperator.add());
+        addDoubleFunctionOrOperator("-", DoubleOperator.subtract());
+        addDoubleFunctionOrOperator("*", DoubleOperator.multiply());
+        addDoubleFunctionOrOperator("/", DoubleOperator.divide());
     }
 
     @Override
     protected void populateConstants() {
-        addFunctionOrOperator("pi", args -> Math.PI);
-        addFunctionOrOperator("e", args -> Math.E);
+        addDoubleFunctionOrOperator("pi", DoubleOperator.constant(Math.PI));
+        addDoubleFunctionOrOperator("e", DoubleOperator.constant(Math.E));
     }
 
     @Override
@@ -32,42 +49,105 @@ public final class DoubleCalculatorContext extends AbstractCalculatorContext<Dou
         return this;
     }
 
+    @Override
+    public Optional<DoubleOperator> getDoubleFunctionOrOperator(String name) {
+        return Optional.ofNullable(lookupDoubleOperator(name));
+    }
+
+    @Override
+    public DoubleOperator lookupDoubleOperator(String name) {
+        Objects.requireNonNull(name);
+        var table = frozenDoubleFunctions;
+        return table != null ? table.get(name) : getDoubleFunctions().get(name);
+    }
+
+    /**
+     * Freezes also primitive functions and operators.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public DoubleCalculatorContext freeze() {
+        if (frozenDoubleFunctions == null)
+            frozenDoubleFunctions = OperatorTable.of(getDoubleFunctions());
+        super.freeze();
+        return self();
+    }
+
+    /**
+     * @param name     Name of the function or operator (e.g. "*" for multiplying or "sin" for sinus)
+     * @param operator primitive function or operator
+     * @return this
+     * @throws NullPointerException          if one of parameters is null
+     * @throws UnsupportedOperationException if context is {@link #freeze() frozen}
+     */
+    @Override
+    public DoubleCalculatorContext addDoubleFunctionOrOperator(String name, DoubleOperator operator) {
+        Objects.requireNonNull(name);
+        Objects.requireNonNull(operator);
+        checkNotFrozen();
+
+        getDoubleFunctions().put(name, operator);
+        super.addOperator(name, operator.toOperator());
+        return self();
+    }
+
+    /**
+     * Operator added this way replaces primitive one with the same name, so equations using it
+     * are evaluated on boxed values.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public DoubleCalculatorContext addOperator(String name, Operator<Double> operator) {
+        checkNotFrozen();
+        getDoubleFunctions().remove(name);
+        super.addOperator(name, operator);
+        return self();
+    }
+
+    private Map<String, DoubleOperator> getDoubleFunctions() {
+        if (doubleFunctions == null)
+            doubleFunctions = new HashMap<>();
+        return doubleFunctions;
+    }
+
     @Override
     protected void populateMathFunctions() {
-        addFunctionOrOperator("IEEEremainder", args -> Math.IEEEremainder(args.remove(1), args.pop()));
-        addFunctionOrOperator("abs", args -> Math.abs(args.pop()));
-        addFunctionOrOperator("acos", args -> Math.acos(args.pop()));
-        addFunctionOrOperator("asin", args -> Math.asin(args.pop()));
-        addFunctionOrOperator("atan", args -> Math.atan(args.pop()));
-        addFunctionOrOperator("atan2", args -> Math.atan2(args.remove(1), args.pop()));
-        addFunctionOrOperator("cbrt", args -> Math.cbrt(args.pop()));
-        addFunctionOrOperator("ceil", args -> Math.ceil(args.pop()));
-        addFunctionOrOperator("copySign", args -> Math.copySign(args.remove(1), args.pop()));
-        addFunctionOrOperator("cos", args -> Math.cos(args.pop()));
-        addFunctionOrOperator("cosh", args -> Math.cosh(args.pop()));
-        addFunctionOrOperator("exp", args -> Math.exp(args.pop()));
-        addFunctionOrOperator("expm1", args -> Math.expm1(args.pop()));
-        addFunctionOrOperator("floor", args -> Math.floor(args.pop()));
-        addFunctionOrOperator("fma", args -> Math.fma(args.remove(2), args.remove(1), args.pop()));
-        addFunctionOrOperator("hypot", args -> Math.hypot(args.remove(1), args.pop()));
-        addFunctionOrOperator("log", args -> Math.log(args.pop()));
-        addFunctionOrOperator("log10", args -> Math.log10(args.pop()));
-        addFunctionOrOperator("log1p", args -> Math.log1p(args.pop()));
-        addFunctionOrOperator("max", args -> Math.max(args.remove(1), args.pop()));
-        addFunctionOrOperator("min", args -> Math.min(args.remove(1), args.pop()));
-        addFunctionOrOperator("nextAfter", args -> Math.nextAfter(args.remove(1), args.pop()));
-        addFunctionOrOperator("nextDown", args -> Math.nextDown(args.pop()));
-        addFunctionOrOperator("nextUp", args -> Math.nextUp(args.pop()));
-        addFunctionOrOperator("pow", args -> Math.pow(args.remove(1), args.pop()));
-        addFunctionOrOperator("rint", args -> Math.rint(args.pop()));
-        addFunctionOrOperator("signum", args -> Math.signum(args.pop()));
-        addFunctionOrOperator("sin", args -> Math.sin(args.pop()));
-        addFunctionOrOperator("sinh", args -> Math.sinh(args.pop()));
-        addFunctionOrOperator("sqrt", args -> Math.sqrt(args.pop()));
-        addFunctionOrOperator("tan", args -> Math.tan(args.pop()));
-        addFunctionOrOperator("tanh", args -> Math.tanh(args.pop()));
-        addFunctionOrOperator("toDegrees", args -> Math.toDegrees(args.pop()));
-        addFunctionOrOperator("toRadians", args -> Math.toRadians(args.pop()));
-        addFunctionOrOperator("ulp", args -> Math.ulp(args.pop()));
+        addDoubleFunctionOrOperator("IEEEremainder", DoubleOperator.binary(Math::IEEEremainder));
+        addDoubleFunctionOrOperator("abs", DoubleOperator.unary(Math::abs));
+        addDoubleFunctionOrOperator("acos", DoubleOperator.unary(Math::acos));
+        addDoubleFunctionOrOperator("asin", DoubleOperator.unary(Math::asin));
+        addDoubleFunctionOrOperator("atan", DoubleOperator.unary(Math::atan));
+        addDoubleFunctionOrOperator("atan2", DoubleOperator.binary(Math::atan2));
+        addDoubleFunctionOrOperator("cbrt", DoubleOperator.unary(Math::cbrt));
+        addDoubleFunctionOrOperator("ceil", DoubleOperator.unary(Math::ceil));
+        addDoubleFunctionOrOperator("copySign", DoubleOperator.binary(Math::copySign));
+        addDoubleFunctionOrOperator("cos", DoubleOperator.unary(Math::cos));
+        addDoubleFunctionOrOperator("cosh", DoubleOperator.unary(Math::cosh));
+        addDoubleFunctionOrOperator("exp", DoubleOperator.unary(Math::exp));
+        addDoubleFunctionOrOperator("expm1", DoubleOperator.unary(Math::expm1));
+        addDoubleFunctionOrOperator("floor", DoubleOperator.unary(Math::floor));
+        addDoubleFunctionOrOperator("fma", DoubleOperator.ternary(Math::fma));
+        addDoubleFunctionOrOperator("hypot", DoubleOperator.binary(Math::hypot));
+        addDoubleFunctionOrOperator("log", DoubleOperator.unary(Math::log));
+        addDoubleFunctionOrOperator("log10", DoubleOperator.unary(Math::log10));
+        addDoubleFunctionOrOperator("log1p", DoubleOperator.unary(Math::log1p));
+        addDoubleFunctionOrOperator("max", DoubleOperator.binary(Math::max));
+        addDoubleFunctionOrOperator("min", DoubleOperator.binary(Math::min));
+        addDoubleFunctionOrOperator("nextAfter", DoubleOperator.binary(Math::nextAfter));
+        addDoubleFunctionOrOperator("nextDown", DoubleOperator.unary(Math::nextDown));
+        addDoubleFunctionOrOperator("nextUp", DoubleOperator.unary(Math::nextUp));
+        addDoubleFunctionOrOperator("pow", DoubleOperator.binary(Math::pow));
+        addDoubleFunctionOrOperator("rint", DoubleOperator.unary(Math::rint));
+        addDoubleFunctionOrOperator("signum", DoubleOperator.unary(Math::signum));
+        addDoubleFunctionOrOperator("sin", DoubleOperator.unary(Math::sin));
+        addDoubleFunctionOrOperator("sinh", DoubleOperator.unary(Math::sinh));
+        addDoubleFunctionOrOperator("sqrt", DoubleOperator.unary(Math::sqrt));
+        addDoubleFunctionOrOperator("tan", DoubleOperator.unary(Math::tan));
+        addDoubleFunctionOrOperator("tanh", DoubleOperator.unary(Math::tanh));
+        addDoubleFunctionOrOperator("toDegrees", DoubleOperator.unary(Math::toDegrees));
+        addDoubleFunctionOrOperator("toRadians", DoubleOperator.unary(Math::toRadians));
+        addDoubleFunctionOrOperator("ulp", DoubleOperator.unary(Math::ulp));
     }
 }
@@ -0,0 +1,73 @@
+package io.github.aangiel.rpn.context.impl;
+
+import java.util.Map;
+
+/**
+ * Immutable table of functions or operators optimized for lookup by name. Operators named with single ASCII
+ * character (like {@code + - * /}) are found by indexing array with that character. Other names are kept in
+ * open addressing hash table at most half full, so lookup usually compares one name.
+ * <p>
+ * All fields are final, so table is safe to read by many threads without synchronization.
+ *
+ * @param <O> type of function or operator
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+final class OperatorTable<O> {
+
+    private static final int ASCII = 128;
+
+    private final Object[] characters;
+    private final String[] names;
+    private final Object[] operators;
+    private final int mask;
+
+    private OperatorTable(Map<String, ? extends O> functions) {
+        characters = new Object[ASCII];
+        var capacity = Integer.highestOneBit(Math.max(functions.size(), 1) * 4 - 1);
+        names = new String[capacity];
+        operators = new Object[capacity];
+        mask = capacity - 1;
+        for (var entry : functions.entrySet()) {
+            var name = entry.getKey();
+            if (isCharacter(name)) {
+                characters[name.charAt(0)] = entry.getValue();
+                continue;
+            }
+            var i = index(name);
+            while (names[i] != null)
+                i = (i + 1) & mask;
+            names[i] = name;
+            operators[i] = entry.getValue();
+        }
+    }
+
+    static <O> OperatorTable<O> of(Map<String, ? extends O> functions) {
+        return new OperatorTable<>(functions);
+    }
+
+    /**
+     * @param name name of function or operator
+     * @return function or operator, or null if there is no such one
+     */
+    @SuppressWarnings("unchecked")
+    O get(String name) {
+        if (isCharacter(name))
+            return (O) characters[name.charAt(0)];
+
+        for (var i = index(name); names[i] != null; i = (i + 1) & mask) {
+            if (names[i].equals(name))
+                return (O) operators[i];
+        }
+        return null;
+    }
+
+    private int index(String name) {
+        var hash = name.hashCode();
+        // Spreads higher bits, because names often differ only at the end
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static boolean isCharacter(String name) {
+        return name.length() == 1 && name.charAt(0) < ASCII;
+    }
+}
@@ -0,0 +1,185 @@
+package io.github.aangiel.rpn.context.impl;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * Limits size of results of arithmetic operators of {@link BigDecimalCalculatorContext}, so long chains
+ * of operations (e.g. multiplications) don't produce bigger and bigger {@link BigDecimal BigDecimals},
+ * which are slower with every step. Results are rounded once, with rounding mode of context, so policy
+ * drives the operation itself (e.g. quotient is calculated directly to fixed scale) instead of rounding
+ * result which was already rounded.<br>
+ * Example usage:<br>
+ * <pre>
+ *     new BigDecimalCalculatorContext(MathContext.DECIMAL64, ScalePolicy.fixedScale(2));
+ * </pre>
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ * @see BigDecimalCalculatorContext#BigDecimalCalculatorContext(MathContext, ScalePolicy)
+ */
+public abstract class ScalePolicy {
+
+    private static final ScalePolicy UNCHANGED = new ScalePolicy() {
+        @Override
+        public BigDecimal apply(BigDecimal value, RoundingMode roundingMode) {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return "unchanged";
+        }
+    };
+
+    private static final ScalePolicy STRIP_TRAILING_ZEROS = new ScalePolicy() {
+        @Override
+        public BigDecimal apply(BigDecimal value, RoundingMode roundingMode) {
+            return value.stripTrailingZeros();
+        }
+
+        @Override
+        public String toString() {
+            return "stripTrailingZeros";
+        }
+    };
+
+    private ScalePolicy() {
+    }
+
+    /**
+     * @return policy leaving results as calculated by {@link BigDecimal} operations
+     */
+    public static ScalePolicy unchanged() {
+        return UNCHANGED;
+    }
+
+    /**
+     * Results of +, - and * are calculated exactly and quotient directly to given scale, so precision
+     * of math context of {@link BigDecimalCalculatorContext} isn't used by arithmetic operators.
+     *
+     * @param scale scale of every result (e.g. 2 for money amounts)
+     * @return policy setting scale of results
+     */
+    public static ScalePolicy fixedScale(int scale) {
+        return new ScalePolicy() {
+            @Override
+            public BigDecimal apply(BigDecimal value, RoundingMode roundingMode) {
+                return value.setScale(scale, roundingMode);
+            }
+
+            @Override
+            BigDecimal add(BigDecimal a, BigDecimal b, MathContext mathContext) {
+                return apply(a.add(b), mathContext.getRoundingMode());
+            }
+
+            @Override
+            BigDecimal subtract(BigDecimal a, BigDecimal b, MathContext mathContext) {
+                return apply(a.subtract(b), mathContext.getRoundingMode());
+            }
+
+            @Override
+            BigDecimal multiply(BigDecimal a, BigDecimal b, MathContext mathContext) {
+                return apply(a.multiply(b), mathContext.getRoundingMode());
+            }
+
+            @Override
+            BigDecimal divide(BigDecimal a, BigDecimal b, MathContext mathContext) {
+                return a.divide(b, scale, mathContext.getRoundingMode());
+            }
+
+            @Override
+            public String toString() {
+                return "fixedScale(" + scale + ")";
+            }
+        };
+    }
+
+    /**
+     * Results are rounded to the lower of given precision and precision of math context of
+     * {@link BigDecimalCalculatorContext} (given one, if precision of math context is 0).
+     *
+     * @param precision maximum number of significant digits of results
+     * @return policy rounding results to given precision
+     * @throws IllegalArgumentException if precision isn't positive
+     */
+    public static ScalePolicy maxPrecision(int precision) {
+        if (precision <= 0)
+            throw new IllegalArgumentException(String.valueOf(precision));
+        return new ScalePolicy() {
+            @Override
+            public BigDecimal apply(BigDecimal value, RoundingMode roundingMode) {
+                return value.precision() <= precision ? value : value.round(new MathContext(precision, roundingMode));
+            }
+
+            @Override
+            BigDecimal add(BigDecimal a, BigDecimal b, MathContext mathContext) {
+                return a.add(b, limit(mathContext));
+            }
+
+            @Override
+            BigDecimal subtract(BigDecimal a, BigDecimal b, MathContext mathContext) {
+                return a.subtract(b, limit(mathContext));
+            }
+
+            @Override
+            BigDecimal multiply(BigDecimal a, BigDecimal b, MathContext mathContext) {
+                return a.multiply(b, limit(mathContext));
+            }
+
+            @Override
+            BigDecimal divide(BigDecimal a, BigDecimal b, MathContext mathContext) {
+                return a.divide(b, limit(mathContext));
+            }
+
+            private MathContext limit(MathContext mathContext) {
+                return mathContext.getPrecision() != 0 && mathContext.getPrecision() <= precision
+                        ? mathContext
+                        : new MathContext(precision, mathContext.getRoundingMode());
+            }
+
+            @Override
+            public String toString() {
+                return "maxPrecision(" + precision + ")";
+            }
+        };
+    }
+
+    /**
+     * @return policy removing trailing zeros of results (e.g. 1.50 becomes 1.5)
+     */
+    public static ScalePolicy stripTrailingZeros() {
+        return STRIP_TRAILING_ZEROS;
+    }
+
+    /**
+     * @param value        result of arithmetic operator
+     * @param roundingMode rounding mode of context
+     * @return value with scale changed by this policy
+     */
+    public abstract BigDecimal apply(BigDecimal value, RoundingMode roundingMode);
+
+    /*
+     * Arithmetic operators of BigDecimalCalculatorContext. Policies, which don't round, are applied to results
+     * rounded with math context (precision 0 makes results of +, - and * exact and quotient has scale of dividend).
+     */
+
+    BigDecimal add(BigDecimal a, BigDecimal b, MathContext mathContext) {
+        return apply(a.add(b, mathContext), mathContext.getRoundingMode());
+    }
+
+    BigDecimal subtract(BigDecimal a, BigDecimal b, MathContext mathContext) {
+        return apply(a.subtract(b, mathContext), mathContext.getRoundingMode());
+    }
+
+    BigDecimal multiply(BigDecimal a, BigDecimal b, MathContext mathContext) {
+        return apply(a.multiply(b, mathContext), mathContext.getRoundingMode());
+    }
+
+    BigDecimal divide(BigDecimal a, BigDecimal b, MathContext mathContext) {
+        var quotient = mathContext.getPrecision() == 0
+                ? a.divide(b, mathContext.getRoundingMode())
+                : a.divide(b, mathContext);
+        return apply(quotient, mathContext.getRoundingMode());
+    }
+}
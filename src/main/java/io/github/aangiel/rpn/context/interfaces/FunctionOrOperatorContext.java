@@ -1,9 +1,16 @@
 package io.github.aangiel.rpn.context.interfaces;
 
+import io.github.aangiel.rpn.context.operators.Operator;
+import io.github.aangiel.rpn.context.operators.TernaryOperator;
+
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.BinaryOperator;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 /**
  * @param <T> extends {@link Number}
@@ -20,6 +27,30 @@ public interface FunctionOrOperatorContext<T extends Number> {
      */
     Optional<Function<LinkedList<T>, T>> getFunctionOrOperator(String name);
 
+    /**
+     * Returns function or operator together with its' arity, so calculator can take arguments from stack itself.
+     * Default implementation returns {@link Operator#legacy(Function) legacy} operator
+     * made from {@link #getFunctionOrOperator(String)}.
+     *
+     * @param name function or operator to be returned
+     * @return function or operator
+     */
+    default Optional<Operator<T>> getOperator(String name) {
+        return getFunctionOrOperator(name).map(Operator::legacy);
+    }
+
+    /**
+     * Same as {@link #getOperator(String)}, but without wrapping result in {@link Optional}, so calculator
+     * doesn't allocate anything to look up function or operator. Default implementation delegates to
+     * {@link #getOperator(String)}.
+     *
+     * @param name function or operator to be returned
+     * @return function or operator, or null if there is no such one
+     */
+    default Operator<T> lookupOperator(String name) {
+        return getOperator(name).orElse(null);
+    }
+
     /**
      * Adds function or operator for use in equations passed as String to
      * {@link io.github.aangiel.rpn.Calculator#calculate(String) Calculator.calculate(String)}
@@ -32,6 +63,94 @@ public interface FunctionOrOperatorContext<T extends Number> {
      */
     CalculatorContext<T> addFunctionOrOperator(String name, Function<LinkedList<T>, T> function);
 
+    /**
+     * Adds function or operator with declared arity. Default implementation adds it with
+     * {@link #addFunctionOrOperator(String, Function)}, so arity is lost.
+     *
+     * @param name     Name of the function or operator (e.g. "*" for multiplying or "sin" for sinus)
+     * @param operator function or operator (e.g. {@code Operator.binary(BigDecimal::multiply)})
+     * @return this for chaining of adding functions or operators
+     */
+    default CalculatorContext<T> addOperator(String name, Operator<T> operator) {
+        return addFunctionOrOperator(name, operator.toFunction());
+    }
+
+    /**
+     * Adds function or operator which can return different results for the same arguments (e.g. random number
+     * or current time), so calculator calculates it at every evaluation instead of optimizing it out.
+     * Functions and operators added other ways are treated as {@link Operator#isPure() pure}.
+     *
+     * @param name     Name of the function or operator (e.g. "random")
+     * @param operator function or operator (e.g. {@code Operator.constant(() -> BigDecimal.valueOf(Math.random()))})
+     * @return this for chaining of adding functions or operators
+     * @see Operator#impure()
+     */
+    default CalculatorContext<T> addImpureOperator(String name, Operator<T> operator) {
+        return addOperator(name, operator.impure());
+    }
+
+    /**
+     * @param name     Name of the constant (e.g. "pi")
+     * @param constant lambda returning value of constant
+     * @return this for chaining of adding functions or operators
+     * @see Operator#constant(Supplier)
+     */
+    default CalculatorContext<T> addConstant(String name, Supplier<T> constant) {
+        return addOperator(name, Operator.constant(constant));
+    }
+
+    /**
+     * @param name     Name of the function (e.g. "sin")
+     * @param operator lambda taking one argument
+     * @return this for chaining of adding functions or operators
+     * @see Operator#unary(UnaryOperator)
+     */
+    default CalculatorContext<T> addUnaryOperator(String name, UnaryOperator<T> operator) {
+        return addOperator(name, Operator.unary(operator));
+    }
+
+    /**
+     * @param name     Name of the function or operator (e.g. "*")
+     * @param operator lambda taking two arguments, the second one from top of stack
+     * @return this for chaining of adding functions or operators
+     * @see Operator#binary(BinaryOperator)
+     */
+    default CalculatorContext<T> addBinaryOperator(String name, BinaryOperator<T> operator) {
+        return addOperator(name, Operator.binary(operator));
+    }
+
+    /**
+     * @param name     Name of the function (e.g. "fma")
+     * @param operator lambda taking three arguments, the third one from top of stack
+     * @return this for chaining of adding functions or operators
+     * @see Operator#ternary(TernaryOperator)
+     */
+    default CalculatorContext<T> addTernaryOperator(String name, TernaryOperator<T> operator) {
+        return addOperator(name, Operator.ternary(operator));
+    }
+
+    /**
+     * @param name     Name of the function (e.g. "multiplyAdd")
+     * @param arity    number of arguments
+     * @param operator lambda taking list of arguments, the last one from top of stack
+     * @return this for chaining of adding functions or operators
+     * @see Operator#nary(int, Function)
+     */
+    default CalculatorContext<T> addNaryOperator(String name, int arity, Function<List<T>, T> operator) {
+        return addOperator(name, Operator.nary(arity, operator));
+    }
+
+    /**
+     * Returns number which changes every time function or operator is added, so calculators can find out
+     * that equations compiled earlier may use outdated functions or operators.
+     * Default implementation always returns 0, so it should be overridden by mutable contexts.
+     *
+     * @return version of functions and operators
+     */
+    default long getVersion() {
+        return 0L;
+    }
+
     /**
      * Returns set of available functions and operators just for check what operations are available with this library.
      *
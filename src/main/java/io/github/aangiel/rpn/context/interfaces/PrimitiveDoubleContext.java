@@ -0,0 +1,60 @@
+package io.github.aangiel.rpn.context.interfaces;
+
+import io.github.aangiel.rpn.context.operators.DoubleOperator;
+
+import java.util.Optional;
+
+/**
+ * Context of {@link Double} calculator which additionally keeps functions and operators working on
+ * primitive {@code double} values. Equations using only such functions and operators are evaluated
+ * on {@code double[]} stack without boxing.
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ * @see io.github.aangiel.rpn.DoubleCalculator
+ */
+public interface PrimitiveDoubleContext extends CalculatorContext<Double> {
+
+    /**
+     * Returns primitive version of function or operator. It's empty when there is no such function or operator
+     * or when it was added only with {@link #addFunctionOrOperator(String, java.util.function.Function)
+     * addFunctionOrOperator(String, Function)}.
+     *
+     * @param name function or operator to be returned
+     * @return primitive function or operator
+     */
+    Optional<DoubleOperator> getDoubleFunctionOrOperator(String name);
+
+    /**
+     * Same as {@link #getDoubleFunctionOrOperator(String)}, but without wrapping result in {@link Optional}.
+     * Default implementation delegates to {@link #getDoubleFunctionOrOperator(String)}.
+     *
+     * @param name function or operator to be returned
+     * @return primitive function or operator, or null if there is no such one
+     */
+    default DoubleOperator lookupDoubleOperator(String name) {
+        return getDoubleFunctionOrOperator(name).orElse(null);
+    }
+
+    /**
+     * Adds function or operator working on primitive values. It's also available through
+     * {@link #getFunctionOrOperator(String) getFunctionOrOperator(String)}.
+     *
+     * @param name     Name of the function or operator (e.g. "*" for multiplying or "sin" for sinus)
+     * @param operator primitive function or operator (e.g. {@code DoubleOperator.binary((a, b) -> a * b)})
+     * @return this for chaining of adding functions or operators
+     */
+    PrimitiveDoubleContext addDoubleFunctionOrOperator(String name, DoubleOperator operator);
+
+    /**
+     * Adds primitive function or operator which can return different results for the same arguments
+     * (e.g. random number or current time), so calculator calculates it at every evaluation.
+     *
+     * @param name     Name of the function or operator (e.g. "random")
+     * @param operator primitive function or operator (e.g. {@code DoubleOperator.nullary(Math::random)})
+     * @return this for chaining of adding functions or operators
+     * @see DoubleOperator#impure()
+     */
+    default PrimitiveDoubleContext addImpureDoubleFunctionOrOperator(String name, DoubleOperator operator) {
+        return addDoubleFunctionOrOperator(name, operator.impure());
+    }
+}
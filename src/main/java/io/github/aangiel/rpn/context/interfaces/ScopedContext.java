@@ -0,0 +1,32 @@
+package io.github.aangiel.rpn.context.interfaces;
+
+/**
+ * Context with settings, which are applied to current thread only while calculator uses the context
+ * (e.g. settings of library doing arithmetic), so calculators with different settings don't conflict
+ * with each other, even in one thread.
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+public interface ScopedContext {
+
+    /**
+     * Applies settings of this context to current thread. Calculator calls it around parsing, compiling
+     * and evaluating equations.
+     *
+     * @return scope, which restores previous settings of current thread when closed
+     */
+    Scope enter();
+
+    /**
+     * Settings applied to current thread by {@link #enter()}.
+     */
+    @FunctionalInterface
+    interface Scope extends AutoCloseable {
+
+        /**
+         * Restores settings of current thread from before {@link #enter()}.
+         */
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,140 @@
+package io.github.aangiel.rpn.context.operators;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Objects;
+import java.util.function.BinaryOperator;
+
+/**
+ * Basic arithmetic operation on {@link BigDecimal} values, which calculator recognizes in equations calculated
+ * in one pass and calculates on unscaled {@code long} values with scale as long as they fit, without creating
+ * {@link BigDecimal} for every intermediate result. Results are always the same as of the corresponding
+ * {@link BigDecimal} method.<br>
+ * Example usage:<br>
+ * <pre>
+ *     context.addBinaryOperator("+", BigDecimalOperator.add());
+ *     context.addBinaryOperator("/", BigDecimalOperator.divide(RoundingMode.HALF_EVEN));
+ * </pre>
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ * @see io.github.aangiel.rpn.context.impl.BigDecimalCalculatorContext
+ */
+public abstract class BigDecimalOperator implements BinaryOperator<BigDecimal> {
+
+    /**
+     * Kind of arithmetic operation.
+     *
+     * @see #getIntrinsic()
+     */
+    public enum Intrinsic {
+        ADD, SUBTRACT, MULTIPLY, DIVIDE
+    }
+
+    private static final BigDecimalOperator ADD = new Add();
+    private static final BigDecimalOperator SUBTRACT = new Subtract();
+    private static final BigDecimalOperator MULTIPLY = new Multiply();
+
+    private final Intrinsic intrinsic;
+
+    private BigDecimalOperator(Intrinsic intrinsic) {
+        this.intrinsic = intrinsic;
+    }
+
+    /**
+     * @return operator doing {@link BigDecimal#add(BigDecimal)}
+     */
+    public static BigDecimalOperator add() {
+        return ADD;
+    }
+
+    /**
+     * @return operator doing {@link BigDecimal#subtract(BigDecimal)}
+     */
+    public static BigDecimalOperator subtract() {
+        return SUBTRACT;
+    }
+
+    /**
+     * @return operator doing {@link BigDecimal#multiply(BigDecimal)}
+     */
+    public static BigDecimalOperator multiply() {
+        return MULTIPLY;
+    }
+
+    /**
+     * @param roundingMode rounding mode of quotient, which has scale of dividend
+     * @return operator doing {@link BigDecimal#divide(BigDecimal, RoundingMode)}
+     * @throws NullPointerException if roundingMode is null
+     */
+    public static BigDecimalOperator divide(RoundingMode roundingMode) {
+        return new Divide(Objects.requireNonNull(roundingMode));
+    }
+
+    /**
+     * @return kind of arithmetic operation
+     */
+    public final Intrinsic getIntrinsic() {
+        return intrinsic;
+    }
+
+    /**
+     * @return rounding mode of {@link #divide(RoundingMode) division}, null for other operations
+     */
+    public RoundingMode getRoundingMode() {
+        return null;
+    }
+
+    // Every operation has its own small method, so JIT can inline it into generated code
+
+    private static final class Add extends BigDecimalOperator {
+        private Add() {
+            super(Intrinsic.ADD);
+        }
+
+        @Override
+        public BigDecimal apply(BigDecimal a, BigDecimal b) {
+            return a.add(b);
+        }
+    }
+
+    private static final class Subtract extends BigDecimalOperator {
+        private Subtract() {
+            super(Intrinsic.SUBTRACT);
+        }
+
+        @Override
+        public BigDecimal apply(BigDecimal a, BigDecimal b) {
+            return a.subtract(b);
+        }
+    }
+
+    private static final class Multiply extends BigDecimalOperator {
+        private Multiply() {
+            super(Intrinsic.MULTIPLY);
+        }
+
+        @Override
+        public BigDecimal apply(BigDecimal a, BigDecimal b) {
+            return a.multiply(b);
+        }
+    }
+
+    private static final class Divide extends BigDecimalOperator {
+        private final RoundingMode roundingMode;
+
+        private Divide(RoundingMode roundingMode) {
+            super(Intrinsic.DIVIDE);
+            this.roundingMode = roundingMode;
+        }
+
+        @Override
+        public BigDecimal apply(BigDecimal a, BigDecimal b) {
+            return a.divide(b, roundingMode);
+        }
+
+        @Override
+        public RoundingMode getRoundingMode() {
+            return roundingMode;
+        }
+    }
+}
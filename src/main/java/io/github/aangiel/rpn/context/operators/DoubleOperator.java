@@ -0,0 +1,457 @@
+package io.github.aangiel.rpn.context.operators;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleSupplier;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Function or operator working on primitive {@code double} values with known number of arguments,
+ * so it can be evaluated on {@code double[]} stack without boxing.<br>
+ * Example usage:<br>
+ * <pre>
+ *     context.addDoubleFunctionOrOperator("hypot", DoubleOperator.binary(Math::hypot));
+ * </pre>
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ * @see io.github.aangiel.rpn.context.interfaces.PrimitiveDoubleContext
+ */
+public abstract class DoubleOperator {
+
+    /**
+     * Basic arithmetic operation, which compiled expressions can evaluate directly instead of invoking lambda.
+     *
+     * @see #getIntrinsic()
+     */
+    public enum Intrinsic {
+        NONE, ADD, SUBTRACT, MULTIPLY, DIVIDE
+    }
+
+    private static final DoubleOperator ADD = new Add();
+    private static final DoubleOperator SUBTRACT = new Subtract();
+    private static final DoubleOperator MULTIPLY = new Multiply();
+    private static final DoubleOperator DIVIDE = new Divide();
+
+    private final int arity;
+
+    private DoubleOperator(int arity) {
+        this.arity = arity;
+    }
+
+    /**
+     * @return operator adding two arguments
+     */
+    public static DoubleOperator add() {
+        return ADD;
+    }
+
+    /**
+     * @return operator subtracting argument from top of stack from the previous one
+     */
+    public static DoubleOperator subtract() {
+        return SUBTRACT;
+    }
+
+    /**
+     * @return operator multiplying two arguments
+     */
+    public static DoubleOperator multiply() {
+        return MULTIPLY;
+    }
+
+    /**
+     * @return operator dividing previous argument by the one from top of stack
+     */
+    public static DoubleOperator divide() {
+        return DIVIDE;
+    }
+
+    /**
+     * @param value value of constant (e.g. {@link Math#PI})
+     * @return operator without arguments always returning 'value'
+     */
+    public static DoubleOperator constant(double value) {
+        return new Constant(value);
+    }
+
+    /**
+     * @param supplier lambda calculating value at every evaluation (e.g. {@code Math::random})
+     * @return operator without arguments
+     * @throws NullPointerException if supplier is null
+     */
+    public static DoubleOperator nullary(DoubleSupplier supplier) {
+        return new Nullary(Objects.requireNonNull(supplier));
+    }
+
+    /**
+     * @param operator lambda taking argument from top of stack
+     * @return operator with one argument
+     * @throws NullPointerException if operator is null
+     */
+    public static DoubleOperator unary(DoubleUnaryOperator operator) {
+        return new Unary(Objects.requireNonNull(operator));
+    }
+
+    /**
+     * @param operator lambda taking two arguments, the second one from top of stack
+     * @return operator with two arguments
+     * @throws NullPointerException if operator is null
+     */
+    public static DoubleOperator binary(DoubleBinaryOperator operator) {
+        return new Binary(Objects.requireNonNull(operator));
+    }
+
+    /**
+     * @param operator lambda taking three arguments, the third one from top of stack
+     * @return operator with three arguments
+     * @throws NullPointerException if operator is null
+     */
+    public static DoubleOperator ternary(DoubleTernaryOperator operator) {
+        return new Ternary(Objects.requireNonNull(operator));
+    }
+
+    /**
+     * @return number of arguments taken from stack
+     */
+    public final int getArity() {
+        return arity;
+    }
+
+    /**
+     * Pure operator always returns the same result for the same arguments and has no side effects,
+     * so calculator can calculate it at compile time or reuse its result. Operators are pure unless
+     * created with {@link #impure()}.
+     *
+     * @return false for operators like random number or current time
+     */
+    public boolean isPure() {
+        return true;
+    }
+
+    /**
+     * @return operator doing the same as this one, but {@link #isPure() impure}
+     */
+    public DoubleOperator impure() {
+        return new Impure(this);
+    }
+
+    /**
+     * Calculates value from {@link #getArity() arity} arguments placed in 'stack' starting from index 'base'.
+     * Doesn't modify the stack.
+     *
+     * @param stack array with arguments, the deepest one first
+     * @param base  index of first argument
+     * @return result of operation
+     */
+    public abstract double apply(double[] stack, int base);
+
+    /**
+     * Calculates values for first 'length' rows of arguments placed in columns of 'stack' starting from
+     * column 'base' and stores them in column 'base'. Other columns aren't modified.
+     *
+     * @param stack  array of columns with arguments, the deepest one first
+     * @param base   index of column with first argument
+     * @param length number of rows to calculate
+     */
+    public abstract void applyColumns(double[][] stack, int base, int length);
+
+    /**
+     * @return operator with the same arity working on boxed values
+     */
+    public abstract Operator<Double> toOperator();
+
+    /**
+     * @return lambda given to factory method which created this operator (e.g. {@link DoubleBinaryOperator} for
+     * {@link #binary(DoubleBinaryOperator) binary} operator, {@link DoubleSupplier} for constant),
+     * so generated code can invoke it directly
+     */
+    public abstract Object getFunction();
+
+    /**
+     * @return kind of arithmetic operation if this is one of {@link #add()}, {@link #subtract()},
+     * {@link #multiply()} or {@link #divide()}, {@link Intrinsic#NONE} otherwise
+     */
+    public Intrinsic getIntrinsic() {
+        return Intrinsic.NONE;
+    }
+
+    private static final class Constant extends DoubleOperator {
+        private final double value;
+
+        private Constant(double value) {
+            super(0);
+            this.value = value;
+        }
+
+        @Override
+        public double apply(double[] stack, int base) {
+            return value;
+        }
+
+        @Override
+        public void applyColumns(double[][] stack, int base, int length) {
+            Arrays.fill(stack[base], 0, length, value);
+        }
+
+        @Override
+        public Operator<Double> toOperator() {
+            Double boxed = value;
+            return Operator.constant(() -> boxed);
+        }
+
+        @Override
+        public Object getFunction() {
+            return (DoubleSupplier) () -> value;
+        }
+    }
+
+    private static final class Nullary extends DoubleOperator {
+        private final DoubleSupplier supplier;
+
+        private Nullary(DoubleSupplier supplier) {
+            super(0);
+            this.supplier = supplier;
+        }
+
+        @Override
+        public double apply(double[] stack, int base) {
+            return supplier.getAsDouble();
+        }
+
+        @Override
+        public void applyColumns(double[][] stack, int base, int length) {
+            var a = stack[base];
+            for (int i = 0; i < length; i++)
+                a[i] = supplier.getAsDouble();
+        }
+
+        @Override
+        public Operator<Double> toOperator() {
+            return Operator.constant(supplier::getAsDouble);
+        }
+
+        @Override
+        public Object getFunction() {
+            return supplier;
+        }
+    }
+
+    private static final class Unary extends DoubleOperator {
+        private final DoubleUnaryOperator operator;
+
+        private Unary(DoubleUnaryOperator operator) {
+            super(1);
+            this.operator = operator;
+        }
+
+        @Override
+        public double apply(double[] stack, int base) {
+            return operator.applyAsDouble(stack[base]);
+        }
+
+        @Override
+        public void applyColumns(double[][] stack, int base, int length) {
+            var a = stack[base];
+            for (int i = 0; i < length; i++)
+                a[i] = operator.applyAsDouble(a[i]);
+        }
+
+        @Override
+        public Operator<Double> toOperator() {
+            return Operator.unary(operator::applyAsDouble);
+        }
+
+        @Override
+        public Object getFunction() {
+            return operator;
+        }
+    }
+
+    private static class Binary extends DoubleOperator {
+        private final DoubleBinaryOperator operator;
+
+        private Binary(DoubleBinaryOperator operator) {
+            super(2);
+            this.operator = operator;
+        }
+
+        @Override
+        public double apply(double[] stack, int base) {
+            return operator.applyAsDouble(stack[base], stack[base + 1]);
+        }
+
+        @Override
+        public void applyColumns(double[][] stack, int base, int length) {
+            var a = stack[base];
+            var b = stack[base + 1];
+            for (int i = 0; i < length; i++)
+                a[i] = operator.applyAsDouble(a[i], b[i]);
+        }
+
+        @Override
+        public Operator<Double> toOperator() {
+            return Operator.binary(operator::applyAsDouble);
+        }
+
+        @Override
+        public Object getFunction() {
+            return operator;
+        }
+    }
+
+    private static final class Ternary extends DoubleOperator {
+        private final DoubleTernaryOperator operator;
+
+        private Ternary(DoubleTernaryOperator operator) {
+            super(3);
+            this.operator = operator;
+        }
+
+        @Override
+        public double apply(double[] stack, int base) {
+            return operator.applyAsDouble(stack[base], stack[base + 1], stack[base + 2]);
+        }
+
+        @Override
+        public void applyColumns(double[][] stack, int base, int length) {
+            var a = stack[base];
+            var b = stack[base + 1];
+            var c = stack[base + 2];
+            for (int i = 0; i < length; i++)
+                a[i] = operator.applyAsDouble(a[i], b[i], c[i]);
+        }
+
+        @Override
+        public Operator<Double> toOperator() {
+            return Operator.ternary(operator::applyAsDouble);
+        }
+
+        @Override
+        public Object getFunction() {
+            return operator;
+        }
+    }
+
+    private static final class Impure extends DoubleOperator {
+        private final DoubleOperator operator;
+
+        private Impure(DoubleOperator operator) {
+            super(operator.getArity());
+            this.operator = operator;
+        }
+
+        @Override
+        public boolean isPure() {
+            return false;
+        }
+
+        @Override
+        public DoubleOperator impure() {
+            return this;
+        }
+
+        @Override
+        public double apply(double[] stack, int base) {
+            return operator.apply(stack, base);
+        }
+
+        @Override
+        public void applyColumns(double[][] stack, int base, int length) {
+            operator.applyColumns(stack, base, length);
+        }
+
+        @Override
+        public Operator<Double> toOperator() {
+            return operator.toOperator().impure();
+        }
+
+        @Override
+        public Object getFunction() {
+            return operator.getFunction();
+        }
+
+        @Override
+        public Intrinsic getIntrinsic() {
+            return operator.getIntrinsic();
+        }
+    }
+
+    // Loops of arithmetic operators don't invoke lambda, so JIT can vectorize them
+
+    private static final class Add extends Binary {
+        private Add() {
+            super((a, b) -> a + b);
+        }
+
+        @Override
+        public void applyColumns(double[][] stack, int base, int length) {
+            var a = stack[base];
+            var b = stack[base + 1];
+            for (int i = 0; i < length; i++)
+                a[i] += b[i];
+        }
+
+        @Override
+        public Intrinsic getIntrinsic() {
+            return Intrinsic.ADD;
+        }
+    }
+
+    private static final class Subtract extends Binary {
+        private Subtract() {
+            super((a, b) -> a - b);
+        }
+
+        @Override
+        public void applyColumns(double[][] stack, int base, int length) {
+            var a = stack[base];
+            var b = stack[base + 1];
+            for (int i = 0; i < length; i++)
+                a[i] -= b[i];
+        }
+
+        @Override
+        public Intrinsic getIntrinsic() {
+            return Intrinsic.SUBTRACT;
+        }
+    }
+
+    private static final class Multiply extends Binary {
+        private Multiply() {
+            super((a, b) -> a * b);
+        }
+
+        @Override
+        public void applyColumns(double[][] stack, int base, int length) {
+            var a = stack[base];
+            var b = stack[base + 1];
+            for (int i = 0; i < length; i++)
+                a[i] *= b[i];
+        }
+
+        @Override
+        public Intrinsic getIntrinsic() {
+            return Intrinsic.MULTIPLY;
+        }
+    }
+
+    private static final class Divide extends Binary {
+        private Divide() {
+            super((a, b) -> a / b);
+        }
+
+        @Override
+        public void applyColumns(double[][] stack, int base, int length) {
+            var a = stack[base];
+            var b = stack[base + 1];
+            for (int i = 0; i < length; i++)
+                a[i] /= b[i];
+        }
+
+        @Override
+        public Intrinsic getIntrinsic() {
+            return Intrinsic.DIVIDE;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package io.github.aangiel.rpn.context.operators;
+
+/**
+ * Primitive specialization of operator taking three {@code double} arguments,
+ * missing counterpart of {@link java.util.function.DoubleBinaryOperator DoubleBinaryOperator}.
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+@FunctionalInterface
+public interface DoubleTernaryOperator {
+
+    /**
+     * @param first  deepest argument on stack
+     * @param second middle argument on stack
+     * @param third  argument from top of stack
+     * @return result of operation
+     */
+    double applyAsDouble(double first, double second, double third);
+}
@@ -0,0 +1,343 @@
+package io.github.aangiel.rpn.context.operators;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Function or operator with declared number of arguments. Calculator takes arguments from stack itself and
+ * passes them as plain parameters, so lambdas don't have to dig into stack.<br>
+ * Example usage:<br>
+ * <pre>
+ *     context.addOperator("hypot", Operator.binary((a, b) -&#62; ...));
+ *     // or shorter
+ *     context.addBinaryOperator("hypot", (a, b) -&#62; ...);
+ * </pre>
+ * Functions added with {@link io.github.aangiel.rpn.context.interfaces.FunctionOrOperatorContext#addFunctionOrOperator(String, Function)
+ * addFunctionOrOperator(String, Function)} are kept as {@link #legacy(Function) legacy} operators with
+ * {@link #UNKNOWN_ARITY unknown arity}, which get whole stack as {@link LinkedList}.
+ *
+ * @param <T> extends {@link Number}
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ * @see DoubleOperator
+ */
+public abstract class Operator<T extends Number> {
+
+    /**
+     * Arity of {@link #legacy(Function) legacy} operators, which take as many arguments from stack as they want.
+     */
+    public static final int UNKNOWN_ARITY = -1;
+
+    private final int arity;
+
+    private Operator(int arity) {
+        this.arity = arity;
+    }
+
+    /**
+     * @param supplier lambda returning constant (e.g. {@code () -> BigDecimal.valueOf(Math.PI)})
+     * @param <T>      extends Number
+     * @return operator without arguments
+     * @throws NullPointerException if supplier is null
+     */
+    public static <T extends Number> Operator<T> constant(Supplier<T> supplier) {
+        return new Constant<>(Objects.requireNonNull(supplier));
+    }
+
+    /**
+     * @param operator lambda taking argument from top of stack
+     * @param <T>      extends Number
+     * @return operator with one argument
+     * @throws NullPointerException if operator is null
+     */
+    public static <T extends Number> Operator<T> unary(UnaryOperator<T> operator) {
+        return new Unary<>(Objects.requireNonNull(operator));
+    }
+
+    /**
+     * @param operator lambda taking two arguments, the second one from top of stack
+     * @param <T>      extends Number
+     * @return operator with two arguments
+     * @throws NullPointerException if operator is null
+     */
+    public static <T extends Number> Operator<T> binary(BinaryOperator<T> operator) {
+        return new Binary<>(Objects.requireNonNull(operator));
+    }
+
+    /**
+     * @param operator lambda taking three arguments, the third one from top of stack
+     * @param <T>      extends Number
+     * @return operator with three arguments
+     * @throws NullPointerException if operator is null
+     */
+    public static <T extends Number> Operator<T> ternary(TernaryOperator<T> operator) {
+        return new Ternary<>(Objects.requireNonNull(operator));
+    }
+
+    /**
+     * @param arity    number of arguments
+     * @param operator lambda taking list of 'arity' arguments, the last one from top of stack
+     * @param <T>      extends Number
+     * @return operator with 'arity' arguments
+     * @throws NullPointerException     if operator is null
+     * @throws IllegalArgumentException if arity is negative
+     */
+    public static <T extends Number> Operator<T> nary(int arity, Function<List<T>, T> operator) {
+        if (arity < 0)
+            throw new IllegalArgumentException(String.valueOf(arity));
+        return new Nary<>(arity, Objects.requireNonNull(operator));
+    }
+
+    /**
+     * @param function lambda working directly on stack, where index 0 is top of stack
+     *                 (e.g. {@code args -> args.remove(1).add(args.pop())})
+     * @param <T>      extends Number
+     * @return operator with {@link #UNKNOWN_ARITY unknown arity}
+     * @throws NullPointerException if function is null
+     */
+    public static <T extends Number> Operator<T> legacy(Function<LinkedList<T>, T> function) {
+        return new Legacy<>(Objects.requireNonNull(function));
+    }
+
+    /**
+     * @return number of arguments taken from stack or {@link #UNKNOWN_ARITY}
+     */
+    public final int getArity() {
+        return arity;
+    }
+
+    /**
+     * Pure operator always returns the same result for the same arguments and has no side effects,
+     * so calculator can calculate it at compile time or reuse its result. Operators are pure unless
+     * created with {@link #impure()}.
+     *
+     * @return false for operators like random number or current time
+     */
+    public boolean isPure() {
+        return true;
+    }
+
+    /**
+     * @return operator doing the same as this one, but {@link #isPure() impure}
+     */
+    public Operator<T> impure() {
+        return new Impure<>(this);
+    }
+
+    /**
+     * Calculates value from {@link #getArity() arity} arguments placed in 'stack' starting from index 'base'.
+     * Doesn't modify the stack.
+     *
+     * @param stack array with arguments, the deepest one first
+     * @param base  index of first argument
+     * @return result of operation
+     * @throws UnsupportedOperationException for operators with {@link #UNKNOWN_ARITY unknown arity}
+     */
+    public abstract T apply(T[] stack, int base);
+
+    /**
+     * @return lambda working directly on stack, as used by
+     * {@link io.github.aangiel.rpn.context.interfaces.FunctionOrOperatorContext#getFunctionOrOperator(String)
+     * getFunctionOrOperator(String)}
+     */
+    public abstract Function<LinkedList<T>, T> toFunction();
+
+    /**
+     * @return lambda given to factory method which created this operator (e.g. {@link BinaryOperator} for
+     * {@link #binary(BinaryOperator) binary} operator), so generated code can invoke it directly,
+     * or null for {@link #nary(int, Function) nary} and {@link #legacy(Function) legacy} operators,
+     * which take arguments as collection
+     */
+    public abstract Object getFunction();
+
+    private static final class Constant<T extends Number> extends Operator<T> {
+        private final Supplier<T> supplier;
+
+        private Constant(Supplier<T> supplier) {
+            super(0);
+            this.supplier = supplier;
+        }
+
+        @Override
+        public T apply(T[] stack, int base) {
+            return supplier.get();
+        }
+
+        @Override
+        public Function<LinkedList<T>, T> toFunction() {
+            return args -> supplier.get();
+        }
+
+        @Override
+        public Object getFunction() {
+            return supplier;
+        }
+    }
+
+    private static final class Unary<T extends Number> extends Operator<T> {
+        private final UnaryOperator<T> operator;
+
+        private Unary(UnaryOperator<T> operator) {
+            super(1);
+            this.operator = operator;
+        }
+
+        @Override
+        public T apply(T[] stack, int base) {
+            return operator.apply(stack[base]);
+        }
+
+        @Override
+        public Function<LinkedList<T>, T> toFunction() {
+            return args -> operator.apply(args.remove(0));
+        }
+
+        @Override
+        public Object getFunction() {
+            return operator;
+        }
+    }
+
+    private static final class Binary<T extends Number> extends Operator<T> {
+        private final BinaryOperator<T> operator;
+
+        private Binary(BinaryOperator<T> operator) {
+            super(2);
+            this.operator = operator;
+        }
+
+        @Override
+        public T apply(T[] stack, int base) {
+            return operator.apply(stack[base], stack[base + 1]);
+        }
+
+        @Override
+        public Function<LinkedList<T>, T> toFunction() {
+            return args -> operator.apply(args.remove(1), args.remove(0));
+        }
+
+        @Override
+        public Object getFunction() {
+            return operator;
+        }
+    }
+
+    private static final class Ternary<T extends Number> extends Operator<T> {
+        private final TernaryOperator<T> operator;
+
+        private Ternary(TernaryOperator<T> operator) {
+            super(3);
+            this.operator = operator;
+        }
+
+        @Override
+        public T apply(T[] stack, int base) {
+            return operator.apply(stack[base], stack[base + 1], stack[base + 2]);
+        }
+
+        @Override
+        public Function<LinkedList<T>, T> toFunction() {
+            return args -> operator.apply(args.remove(2), args.remove(1), args.remove(0));
+        }
+
+        @Override
+        public Object getFunction() {
+            return operator;
+        }
+    }
+
+    private static final class Nary<T extends Number> extends Operator<T> {
+        private final Function<List<T>, T> operator;
+
+        private Nary(int arity, Function<List<T>, T> operator) {
+            super(arity);
+            this.operator = operator;
+        }
+
+        @Override
+        public T apply(T[] stack, int base) {
+            return operator.apply(Arrays.asList(Arrays.copyOfRange(stack, base, base + getArity())));
+        }
+
+        @Override
+        public Function<LinkedList<T>, T> toFunction() {
+            return args -> {
+                var arity = getArity();
+                if (args.size() < arity)
+                    throw new IndexOutOfBoundsException(arity);
+                var list = new LinkedList<T>();
+                for (int i = 0; i < arity; i++)
+                    list.addFirst(args.pop());
+                return operator.apply(list);
+            };
+        }
+
+        @Override
+        public Object getFunction() {
+            return null;
+        }
+    }
+
+    private static final class Legacy<T extends Number> extends Operator<T> {
+        private final Function<LinkedList<T>, T> function;
+
+        private Legacy(Function<LinkedList<T>, T> function) {
+            super(UNKNOWN_ARITY);
+            this.function = function;
+        }
+
+        @Override
+        public T apply(T[] stack, int base) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Function<LinkedList<T>, T> toFunction() {
+            return function;
+        }
+
+        @Override
+        public Object getFunction() {
+            return null;
+        }
+    }
+
+    private static final class Impure<T extends Number> extends Operator<T> {
+        private final Operator<T> operator;
+
+        private Impure(Operator<T> operator) {
+            super(operator.getArity());
+            this.operator = operator;
+        }
+
+        @Override
+        public boolean isPure() {
+            return false;
+        }
+
+        @Override
+        public Operator<T> impure() {
+            return this;
+        }
+
+        @Override
+        public T apply(T[] stack, int base) {
+            return operator.apply(stack, base);
+        }
+
+        @Override
+        public Function<LinkedList<T>, T> toFunction() {
+            return operator.toFunction();
+        }
+
+        @Override
+        public Object getFunction() {
+            return operator.getFunction();
+        }
+    }
+}
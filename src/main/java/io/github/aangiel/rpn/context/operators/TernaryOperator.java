@@ -0,0 +1,20 @@
+package io.github.aangiel.rpn.context.operators;
+
+/**
+ * Operation on three operands of the same type, missing counterpart of
+ * {@link java.util.function.BinaryOperator BinaryOperator}.
+ *
+ * @param <T> type of operands and result
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+@FunctionalInterface
+public interface TernaryOperator<T> {
+
+    /**
+     * @param first  deepest argument on stack
+     * @param second middle argument on stack
+     * @param third  argument from top of stack
+     * @return result of operation
+     */
+    T apply(T first, T second, T third);
+}
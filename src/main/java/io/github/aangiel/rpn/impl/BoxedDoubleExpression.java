@@ -0,0 +1,101 @@
+package io.github.aangiel.rpn.impl;
+
+import io.github.aangiel.rpn.DoubleCompiledExpression;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link DoubleCompiledExpression} for equations using functions or operators without primitive versions.
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+final class BoxedDoubleExpression implements DoubleCompiledExpression, MeasuredExpression {
+
+    private final CompiledExpressionImpl<Double> expression;
+    private final Variables variables;
+
+    BoxedDoubleExpression(CompiledExpressionImpl<Double> expression, Variables variables) {
+        this.expression = expression;
+        this.variables = variables;
+    }
+
+    @Override
+    public double evaluateAsDouble() {
+        return expression.evaluate();
+    }
+
+    @Override
+    public double evaluateAsDouble(double... values) {
+        return evaluate(Arrays.asList(Arrays.stream(values).boxed().toArray(Double[]::new)));
+    }
+
+    @Override
+    public double[] evaluateColumns(double[]... columns) {
+        var results = new double[columns.length == 0 ? 0 : columns[0].length];
+        evaluateColumns(columns, results);
+        return results;
+    }
+
+    /**
+     * Functions or operators without primitive versions can't be applied to columns,
+     * so equation is calculated row by row.
+     */
+    @Override
+    public void evaluateColumns(double[][] columns, double[] results) {
+        variables.checkColumns(columns, results.length);
+        var values = new Double[columns.length];
+        var row = Arrays.asList(values);
+        for (int r = 0; r < results.length; r++) {
+            for (int i = 0; i < values.length; i++)
+                values[i] = columns[i][r];
+            results[r] = expression.evaluate(row);
+        }
+    }
+
+    @Override
+    public Double evaluate() {
+        return expression.evaluate();
+    }
+
+    @Override
+    public Double evaluate(List<? extends Double> values) {
+        return expression.evaluate(values);
+    }
+
+    @Override
+    public Double evaluate(Map<String, ? extends Double> values) {
+        return expression.evaluate(values);
+    }
+
+    @Override
+    public List<String> getVariables() {
+        return expression.getVariables();
+    }
+
+    @Override
+    public int getVariableIndex(String name) {
+        return expression.getVariableIndex(name);
+    }
+
+    @Override
+    public int getTokenCount() {
+        return expression.getTokenCount();
+    }
+
+    @Override
+    public int getMaxStackDepth() {
+        return expression.getMaxStackDepth();
+    }
+
+    @Override
+    public String getEquation() {
+        return expression.getEquation();
+    }
+
+    @Override
+    public String toString() {
+        return expression.toString();
+    }
+}
@@ -1,32 +1,127 @@
 package io.github.aangiel.rpn.impl;
 
+import io.github.aangiel.rpn.CalculationError;
+import io.github.aangiel.rpn.CalculationResult;
 import io.github.aangiel.rpn.Calculator;
+import io.github.aangiel.rpn.CompiledExpression;
+import io.github.aangiel.rpn.context.impl.DerivedCalculatorContext;
 import io.github.aangiel.rpn.context.interfaces.CalculatorContext;
-import io.github.aangiel.rpn.translation.Messages;
-import org.apache.commons.lang3.math.NumberUtils;
-import org.jetbrains.annotations.Contract;
-import org.jetbrains.annotations.NotNull;
+import io.github.aangiel.rpn.context.interfaces.PrimitiveDoubleContext;
+import io.github.aangiel.rpn.context.interfaces.ScopedContext;
+import io.github.aangiel.rpn.metrics.CalculationListener;
 
-import java.util.LinkedList;
 import java.util.Objects;
-import java.util.function.Function;
-import java.util.regex.Pattern;
+import java.util.Optional;
 
 /**
  * Implementation of interface {@link Calculator} for Reverse Polish Notation calculations.
- * This is the only one implementation.
+ * Use {@link #of(CalculatorContext)} to get the most specific implementation for given context.
+ * <p>
+ * Settings of {@link ScopedContext} (also base context of {@link DerivedCalculatorContext}) are applied
+ * around parsing, compiling and evaluating equations, including evaluations of compiled equations.
  *
  * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
  * @see Calculator
  */
 public class CalculatorImpl<T extends Number> implements Calculator<T> {
 
+    /**
+     * Number of compiled equations kept by calculator created without given capacity.
+     */
+    public static final int DEFAULT_PLAN_CACHE_CAPACITY = 1024;
+
+    /**
+     * Number of evaluations of compiled equation, after which bytecode is generated for it,
+     * used by calculator created without given threshold.
+     */
+    public static final int DEFAULT_COMPILE_THRESHOLD = 10_000;
+
     private final CalculatorContext<T> context;
 
-    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private final PlanCache<CompiledExpression<T>> planCache;
+
+    private final int compileThreshold;
+
+    private final CalculationListener listener;
+
+    private final ScopedContext scope;
 
     public CalculatorImpl(CalculatorContext<T> context) {
+        this(context, DEFAULT_PLAN_CACHE_CAPACITY);
+    }
+
+    /**
+     * @param context           context of calculator
+     * @param planCacheCapacity maximum number of compiled equations kept for {@link #calculate(String)},
+     *                          0 disables the cache
+     * @throws IllegalArgumentException if planCacheCapacity is negative
+     */
+    public CalculatorImpl(CalculatorContext<T> context, int planCacheCapacity) {
+        this(context, planCacheCapacity, DEFAULT_COMPILE_THRESHOLD);
+    }
+
+    /**
+     * Compiled equations are interpreted until they're evaluated 'compileThreshold' times. Then JVM class
+     * is generated for them, which evaluates the equation without dispatching on every token, so JIT can
+     * compile it like hand-written code. Results of generated and interpreted equations are the same.
+     *
+     * @param context           context of calculator
+     * @param planCacheCapacity maximum number of compiled equations kept for {@link #calculate(String)},
+     *                          0 disables the cache
+     * @param compileThreshold  number of evaluations of compiled equation before generating bytecode for it,
+     *                          0 generates it at first evaluation, {@link Integer#MAX_VALUE} never generates it
+     * @throws IllegalArgumentException if planCacheCapacity or compileThreshold is negative
+     */
+    public CalculatorImpl(CalculatorContext<T> context, int planCacheCapacity, int compileThreshold) {
+        this(context, planCacheCapacity, compileThreshold, null);
+    }
+
+    /**
+     * Calculator reports every calculation to 'listener'. Without listener nothing is measured,
+     * so calculations aren't slower.
+     *
+     * @param context           context of calculator
+     * @param planCacheCapacity maximum number of compiled equations kept for {@link #calculate(String)},
+     *                          0 disables the cache
+     * @param compileThreshold  number of evaluations of compiled equation before generating bytecode for it,
+     *                          0 generates it at first evaluation, {@link Integer#MAX_VALUE} never generates it
+     * @param listener          listener receiving measurements of calculations, or null
+     * @throws IllegalArgumentException if planCacheCapacity or compileThreshold is negative
+     */
+    public CalculatorImpl(CalculatorContext<T> context, int planCacheCapacity, int compileThreshold,
+                          CalculationListener listener) {
+        if (planCacheCapacity < 0)
+            throw new IllegalArgumentException(String.valueOf(planCacheCapacity));
+        if (compileThreshold < 0)
+            throw new IllegalArgumentException(String.valueOf(compileThreshold));
+
         this.context = context;
+        this.planCache = planCacheCapacity == 0 ? null : new PlanCache<>(planCacheCapacity);
+        this.compileThreshold = compileThreshold;
+        this.listener = listener;
+        this.scope = scopeOf(context);
+    }
+
+    private static ScopedContext scopeOf(CalculatorContext<?> context) {
+        var settings = context instanceof DerivedCalculatorContext
+                ? ((DerivedCalculatorContext<?>) context).getBase()
+                : context;
+        return settings instanceof ScopedContext ? (ScopedContext) settings : null;
+    }
+
+    /**
+     * @param context context of calculator
+     * @param <T>     extends Number
+     * @return {@link DoubleCalculatorImpl} for {@link PrimitiveDoubleContext}, otherwise {@link CalculatorImpl}
+     */
+    public static <T extends Number> Calculator<T> of(CalculatorContext<T> context) {
+        if (context instanceof PrimitiveDoubleContext) {
+            // It always works, because PrimitiveDoubleContext is CalculatorContext<Double>
+            @SuppressWarnings("unchecked")
+            var calculator = (Calculator<T>) new DoubleCalculatorImpl((PrimitiveDoubleContext) context);
+            return calculator;
+        }
+        return new CalculatorImpl<>(context);
     }
 
     @Override
@@ -34,82 +129,175 @@ public class CalculatorImpl<T extends Number> implements Calculator<T> {
         return context;
     }
 
+    /**
+     * Equations are compiled once and kept in size-bounded cache, so calculating the same equation again
+     * doesn't parse it. Cache is safe to use by many threads.
+     * <p>
+     * {@inheritDoc}
+     */
     @Override
     public T calculate(final String equation) {
-        return new Calculator<>(context, equation).calculateEquation();
+        if (listener == null)
+            return plan(equation).evaluate();
+
+        var start = System.nanoTime();
+        CompiledExpression<T> expression;
+        T result;
+        try {
+            expression = plan(equation);
+            result = expression.evaluate();
+        } catch (RuntimeException e) {
+            throw onError(equation, e);
+        }
+        onCalculation(equation, expression, start);
+        return result;
     }
 
-    private static class Calculator<T extends Number> {
+    /**
+     * Equation is validated by {@link EquationValidator} without creating any number or calling any function
+     * or operator.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<CalculationError> validate(final String equation) {
+        return EquationValidator.validate(context, equation);
+    }
 
-        private final CalculatorContext<T> context;
-        private final String equation;
-        private final LinkedList<T> stack;
-        private int currentPosition;
+    @Override
+    public Optional<CalculationError> validate(final String equation, final String... variables) {
+        return EquationValidator.validate(context, equation, variables);
+    }
 
-        public Calculator(CalculatorContext<T> context, String equation) {
-            this.context = Objects.requireNonNull(context);
-            this.equation = Objects.requireNonNull(equation);
-            this.stack = new LinkedList<>();
-            this.currentPosition = 1;
+    /**
+     * Equation found in cache of compiled equations is evaluated at once. Other equations are
+     * {@link EquationValidator validated} first, which is as cheap as looking them up, and compiled only if they're
+     * correct, so incorrect equations don't create exceptions. Errors found while evaluating equations with
+     * legacy functions or operators are returned as well.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public CalculationResult<T> tryCalculate(final String equation) {
+        var start = listener == null ? 0 : System.nanoTime();
+        var expression = planCache == null ? null : planCache.getIfPresent(equation, context.getVersion());
+        if (expression == null) {
+            var error = EquationValidator.validate(context, equation);
+            if (error.isPresent())
+                return onError(equation, error.get());
         }
 
-        private T calculateEquation() {
-            checkEquation();
-            processEquation();
-            return getResult();
+        T result;
+        try {
+            if (expression == null)
+                expression = plan(equation);
+            result = expression.evaluate();
+        } catch (RuntimeException e) {
+            var error = Errors.errorOf(e);
+            if (error == null)
+                throw listener == null ? e : onError(equation, e);
+            return onError(equation, error);
         }
+        if (listener != null)
+            onCalculation(equation, expression, start);
+        return CalculationResult.success(equation, result);
+    }
 
-        private void checkEquation() {
-            if (equation.isBlank())
-                throw new IllegalArgumentException(Messages.EMPTY_EQUATION.get());
+    /**
+     * Equation is evaluated in one pass without compiling it, so it's meant for equations calculated once
+     * (e.g. lines of large file). Results and thrown exceptions are the same as of {@link #calculate(String)}.
+     * Calculator with {@link CalculationListener} calculates them by {@link #calculate(String)}.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public T calculate(final CharSequence equation, final int offset, final int length) {
+        Objects.checkFromIndexSize(offset, length, equation.length());
+        if (listener != null)
+            return calculate(equation.subSequence(offset, offset + length).toString());
+        if (scope == null)
+            return InPlaceEvaluator.evaluate(context, equation, offset, offset + length);
+        var entered = scope.enter();
+        try {
+            return InPlaceEvaluator.evaluate(context, equation, offset, offset + length);
+        } finally {
+            entered.close();
         }
+    }
 
-        private void processEquation() {
-            for (String token : WHITESPACE.split(equation)) {
-                processNext(token);
-                currentPosition++;
-            }
-        }
+    @Override
+    public CompiledExpression<T> compile(final String equation) {
+        return compile(equation, Variables.NONE);
+    }
 
-        private T getResult() {
-            var result = stack.pop();
-            if (stack.isEmpty())
-                return result;
-            else
-                throw new IllegalArgumentException(Messages.LEFT_ON_STACK.get(stack));
+    /**
+     * Expression compiled for {@link ScopedContext} applies settings of the context around every evaluation.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public CompiledExpression<T> compile(final String equation, final String... variables) {
+        if (scope == null)
+            return ExpressionCompiler.compile(context, equation, compileThreshold, listener, variables);
+        // Numbers are created and constant parts are calculated while compiling
+        var entered = scope.enter();
+        try {
+            return new ScopedExpression<>(
+                    ExpressionCompiler.compile(context, equation, compileThreshold, listener, variables), scope);
+        } finally {
+            entered.close();
         }
+    }
 
-        private void processNext(String token) {
-            assert token != null;
-            if (NumberUtils.isCreatable(token))
-                stack.push(createNumber(token));
-            else
-                stack.push(calculateValue(token));
-        }
+    /**
+     * @return number of evaluations of compiled equation before generating bytecode for it
+     */
+    public int getCompileThreshold() {
+        return compileThreshold;
+    }
 
-        private T createNumber(String token) {
-            assert token != null;
-            return context.getNumberConstructor().apply(token);
-        }
+    /**
+     * @return listener receiving measurements of calculations, or null
+     */
+    public CalculationListener getListener() {
+        return listener;
+    }
 
-        private T calculateValue(String token) {
-            assert token != null;
-            try {
-                return getFunctionOrOperator(token).apply(stack);
-            } catch (IndexOutOfBoundsException e) {
-                throw new ArithmeticException(Messages.LACK_OF_ARGUMENTS.get(token, currentPosition));
-            }
-        }
+    /**
+     * @return statistics of compiled equations cache, all zeros if the cache is disabled
+     */
+    public PlanCacheStats getPlanCacheStats() {
+        return planCache == null ? new PlanCacheStats(0, 0, 0, 0, 0) : planCache.getStats();
+    }
 
-        @NotNull
-        @Contract("null -> fail")
-        private Function<LinkedList<T>, T> getFunctionOrOperator(String token) {
-            assert token != null;
-            var result = context.getFunctionOrOperator(token);
-            if (result.isPresent())
-                return result.get();
-            else
-                throw new IllegalArgumentException(Messages.BAD_ITEM.get(token, currentPosition));
+    /**
+     * @return compiled equation from cache, or just compiled if the cache is disabled
+     */
+    CompiledExpression<T> plan(final String equation) {
+        if (planCache == null)
+            return compile(equation);
+        return planCache.get(equation, context.getVersion(), this::compile);
+    }
+
+    void onCalculation(final String equation, final CompiledExpression<?> expression, final long start) {
+        var nanos = System.nanoTime() - start;
+        if (expression instanceof MeasuredExpression) {
+            var measured = (MeasuredExpression) expression;
+            listener.onCalculation(equation, measured.getTokenCount(), measured.getMaxStackDepth(), nanos);
+        } else {
+            // Expression compiled by subclass
+            listener.onCalculation(equation, 0, 0, nanos);
         }
     }
+
+    private CalculationResult<T> onError(final String equation, final CalculationError error) {
+        if (listener != null)
+            listener.onError(equation, error.getType(), null);
+        return CalculationResult.failure(equation, error);
+    }
+
+    RuntimeException onError(final String equation, final RuntimeException exception) {
+        listener.onError(equation, Errors.typeOf(exception), exception);
+        return exception;
+    }
 }
@@ -0,0 +1,261 @@
+package io.github.aangiel.rpn.impl;
+
+import io.github.aangiel.rpn.CompiledExpression;
+import io.github.aangiel.rpn.context.operators.Operator;
+import io.github.aangiel.rpn.translation.Messages;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Program produced by {@link ExpressionCompiler}. Each token of the equation is stored as opcode
+ * with already created literal or already resolved operator, so evaluation doesn't do any parsing.
+ * <p>
+ * Program is evaluated on array stack. When all operators have known arity, the stack is sized up front
+ * to maximum depth of the equation and calculator takes arguments for operators itself. Lack of arguments
+ * before the first legacy operator is found when equation is compiled, so evaluation fails before any function
+ * or operator is called.
+ * {@link Operator#legacy(java.util.function.Function) Legacy} operators get copy of the stack as {@link LinkedList}.
+ * <p>
+ * Evaluations are counted and after given threshold the program is replaced with class generated by
+ * {@link ProgramGenerator}, if all operators have known arity. Equation, literals and operators never change
+ * and both the counter and the program are safe to update by many threads, so one expression can be
+ * evaluated by many threads at once.
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+final class CompiledExpressionImpl<T extends Number> implements CompiledExpression<T>, MeasuredExpression {
+
+    static final byte PUSH = 0;
+    static final byte APPLY = 1;
+    static final byte LOAD = 2;
+    /**
+     * Copies value from top of stack to temporary slot, doesn't change the stack.
+     */
+    static final byte STORE = 3;
+    /**
+     * Pushes value of temporary slot on stack.
+     */
+    static final byte RECALL = 4;
+
+    private static final Number[] NO_VALUES = new Number[0];
+
+    private final String equation;
+    private final String[] names;
+    private final byte[] opcodes;
+    private final T[] literals;
+    private final Operator<T>[] operators;
+    private final int[] slots;
+    private final Variables variables;
+    private final int temporaries;
+    private final int capacity;
+    private final int lackOfArguments;
+    private final int tokens;
+    private final int compileThreshold;
+    private final Program<T> interpreter = this::interpret;
+
+    // Volatile, so all threads switch to generated program; the worst case is generating it twice
+    private volatile Program<T> program;
+    private final AtomicInteger evaluations = new AtomicInteger();
+
+    /**
+     * @param slots            indexes of variables for {@link #LOAD} opcodes
+     *                         or temporary values for {@link #STORE} and {@link #RECALL} opcodes
+     * @param temporaries      number of temporary values
+     * @param capacity         initial size of stack, which is enough for whole equation if it has no legacy operators
+     * @param lackOfArguments  index of first function or operator without enough arguments on stack, found before
+     *                         any legacy operator, or -1
+     * @param tokens           number of tokens of equation before optimization
+     * @param compileThreshold number of interpreted evaluations before generating bytecode,
+     *                         {@link Integer#MAX_VALUE} to never generate it
+     */
+    CompiledExpressionImpl(String equation, String[] names, byte[] opcodes, T[] literals, Operator<T>[] operators,
+                           int[] slots, Variables variables, int temporaries, int capacity, int lackOfArguments,
+                           int tokens, int compileThreshold) {
+        this.equation = equation;
+        this.names = names;
+        this.opcodes = opcodes;
+        this.literals = literals;
+        this.operators = operators;
+        this.slots = slots;
+        this.variables = variables;
+        this.temporaries = temporaries;
+        this.capacity = capacity;
+        this.lackOfArguments = lackOfArguments;
+        this.tokens = tokens;
+        this.compileThreshold = compileThreshold;
+        this.program = compileThreshold == Integer.MAX_VALUE ? interpreter : null;
+    }
+
+    @Override
+    public T evaluate() {
+        variables.checkCount(0);
+        return run(newValues(0));
+    }
+
+    @Override
+    public T evaluate(List<? extends T> values) {
+        variables.checkCount(values.size());
+        T[] array = newValues(values.size());
+        for (int i = 0; i < array.length; i++)
+            array[i] = Objects.requireNonNull(values.get(i));
+        return run(array);
+    }
+
+    @Override
+    public T evaluate(Map<String, ? extends T> values) {
+        return run(variables.bind(values, newValues(variables.size())));
+    }
+
+    @Override
+    public List<String> getVariables() {
+        return variables.names();
+    }
+
+    @Override
+    public int getVariableIndex(String name) {
+        return variables.resolve(name);
+    }
+
+    private T run(T[] values) {
+        return getProgram().evaluate(values);
+    }
+
+    private Program<T> getProgram() {
+        var current = program;
+        if (current != null)
+            return current;
+        if (evaluations.getAndIncrement() < compileThreshold)
+            return interpreter;
+
+        current = ProgramGenerator.generate(opcodes, literals, operators, slots, temporaries);
+        if (current == null)
+            current = interpreter;
+        program = current;
+        return current;
+    }
+
+    private T interpret(T[] values) {
+        // Fails before calculating anything, which can be expensive
+        if (lackOfArguments >= 0)
+            throw lackOfArguments(lackOfArguments);
+
+        T[] stack = newStack(capacity);
+        T[] temporaryValues = newValues(temporaries);
+        int size = 0;
+        for (int i = 0; i < opcodes.length; i++) {
+            if (opcodes[i] == PUSH) {
+                if (size == stack.length)
+                    stack = Arrays.copyOf(stack, size * 2);
+                stack[size++] = literals[i];
+                continue;
+            }
+            if (opcodes[i] == LOAD) {
+                if (size == stack.length)
+                    stack = Arrays.copyOf(stack, size * 2);
+                stack[size++] = values[slots[i]];
+                continue;
+            }
+            if (opcodes[i] == STORE) {
+                temporaryValues[slots[i]] = stack[size - 1];
+                continue;
+            }
+            if (opcodes[i] == RECALL) {
+                if (size == stack.length)
+                    stack = Arrays.copyOf(stack, size * 2);
+                stack[size++] = temporaryValues[slots[i]];
+                continue;
+            }
+
+            var operator = operators[i];
+            var arity = operator.getArity();
+            if (arity == Operator.UNKNOWN_ARITY) {
+                stack = applyLegacy(i, stack, size);
+                size = stack.length;
+                continue;
+            }
+            if (size < arity)
+                throw lackOfArguments(i);
+            if (size == stack.length)
+                stack = Arrays.copyOf(stack, size * 2 + 1);
+
+            var base = size - arity;
+            stack[base] = operator.apply(stack, base);
+            size = base + 1;
+        }
+        return getResult(stack, size);
+    }
+
+    @Override
+    public int getTokenCount() {
+        return tokens;
+    }
+
+    @Override
+    public int getMaxStackDepth() {
+        return capacity;
+    }
+
+    @Override
+    public String getEquation() {
+        return equation;
+    }
+
+    @Override
+    public String toString() {
+        return equation;
+    }
+
+    /**
+     * @return new stack with exact size, because size of stack after legacy operator is unknown
+     */
+    private T[] applyLegacy(int index, T[] stack, int size) {
+        var args = new LinkedList<T>();
+        for (int i = size - 1; i >= 0; i--)
+            args.add(stack[i]);
+
+        T result;
+        try {
+            result = operators[index].toFunction().apply(args);
+        } catch (IndexOutOfBoundsException | NoSuchElementException e) {
+            throw lackOfArguments(index);
+        }
+
+        T[] newStack = newStack(args.size() + 1);
+        var i = args.size();
+        newStack[i] = result;
+        for (var arg : args)
+            newStack[--i] = arg;
+        return newStack;
+    }
+
+    private ArithmeticException lackOfArguments(int index) {
+        return Errors.arithmeticAt(Messages.LACK_OF_ARGUMENTS, index + 1, names[index], index + 1);
+    }
+
+    private T getResult(T[] stack, int size) {
+        if (size == 1)
+            return stack[0];
+
+        // Same form as LinkedList stack, where result is popped from the top
+        var left = new LinkedList<T>();
+        for (int i = size - 2; i >= 0; i--)
+            left.add(stack[i]);
+        throw Errors.illegalArgumentAt(Messages.LEFT_ON_STACK, tokens, left);
+    }
+
+    private static <T extends Number> T[] newStack(int capacity) {
+        return newValues(Math.max(capacity, 1));
+    }
+
+    // Erasure of T is Number, so Number[] is always T[]
+    @SuppressWarnings("unchecked")
+    private static <T extends Number> T[] newValues(int size) {
+        return (T[]) (size == 0 ? NO_VALUES : new Number[size]);
+    }
+}
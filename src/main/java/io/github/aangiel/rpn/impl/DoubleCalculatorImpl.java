@@ -0,0 +1,116 @@
+package io.github.aangiel.rpn.impl;
+
+import io.github.aangiel.rpn.DoubleCalculator;
+import io.github.aangiel.rpn.DoubleCompiledExpression;
+import io.github.aangiel.rpn.context.interfaces.PrimitiveDoubleContext;
+import io.github.aangiel.rpn.metrics.CalculationListener;
+
+import java.util.Objects;
+
+/**
+ * Implementation of interface {@link DoubleCalculator} which evaluates equations on primitive values
+ * whenever {@link PrimitiveDoubleContext} has primitive versions of all used functions and operators.
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ * @see DoubleCalculator
+ */
+public class DoubleCalculatorImpl extends CalculatorImpl<Double> implements DoubleCalculator {
+
+    private final PrimitiveDoubleContext context;
+
+    public DoubleCalculatorImpl(PrimitiveDoubleContext context) {
+        this(context, DEFAULT_PLAN_CACHE_CAPACITY);
+    }
+
+    /**
+     * @param context           context of calculator
+     * @param planCacheCapacity maximum number of compiled equations kept for {@link #calculate(String)},
+     *                          0 disables the cache
+     * @throws IllegalArgumentException if planCacheCapacity is negative
+     */
+    public DoubleCalculatorImpl(PrimitiveDoubleContext context, int planCacheCapacity) {
+        this(context, planCacheCapacity, DEFAULT_COMPILE_THRESHOLD);
+    }
+
+    /**
+     * @param context           context of calculator
+     * @param planCacheCapacity maximum number of compiled equations kept for {@link #calculate(String)},
+     *                          0 disables the cache
+     * @param compileThreshold  number of evaluations of compiled equation before generating bytecode for it,
+     *                          0 generates it at first evaluation, {@link Integer#MAX_VALUE} never generates it
+     * @throws IllegalArgumentException if planCacheCapacity or compileThreshold is negative
+     * @see CalculatorImpl#CalculatorImpl(io.github.aangiel.rpn.context.interfaces.CalculatorContext, int, int)
+     */
+    public DoubleCalculatorImpl(PrimitiveDoubleContext context, int planCacheCapacity, int compileThreshold) {
+        this(context, planCacheCapacity, compileThreshold, null);
+    }
+
+    /**
+     * @param context           context of calculator
+     * @param planCacheCapacity maximum number of compiled equations kept for {@link #calculate(String)},
+     *                          0 disables the cache
+     * @param compileThreshold  number of evaluations of compiled equation before generating bytecode for it,
+     *                          0 generates it at first evaluation, {@link Integer#MAX_VALUE} never generates it
+     * @param listener          listener receiving measurements of calculations, or null
+     * @throws IllegalArgumentException if planCacheCapacity or compileThreshold is negative
+     * @see CalculatorImpl#CalculatorImpl(io.github.aangiel.rpn.context.interfaces.CalculatorContext, int, int, CalculationListener)
+     */
+    public DoubleCalculatorImpl(PrimitiveDoubleContext context, int planCacheCapacity, int compileThreshold,
+                                CalculationListener listener) {
+        super(context, planCacheCapacity, compileThreshold, listener);
+        this.context = context;
+    }
+
+    @Override
+    public PrimitiveDoubleContext getContext() {
+        return context;
+    }
+
+    @Override
+    public double calculateAsDouble(final String equation) {
+        if (getListener() == null)
+            // It always works, because compile(String) returns DoubleCompiledExpression
+            return ((DoubleCompiledExpression) plan(equation)).evaluateAsDouble();
+
+        var start = System.nanoTime();
+        DoubleCompiledExpression expression;
+        double result;
+        try {
+            expression = (DoubleCompiledExpression) plan(equation);
+            result = expression.evaluateAsDouble();
+        } catch (RuntimeException e) {
+            throw onError(equation, e);
+        }
+        onCalculation(equation, expression, start);
+        return result;
+    }
+
+    @Override
+    public Double calculate(final CharSequence equation, final int offset, final int length) {
+        return calculateAsDouble(equation, offset, length);
+    }
+
+    /**
+     * Equation is evaluated in one pass without compiling it, like by
+     * {@link CalculatorImpl#calculate(CharSequence, int, int)}.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public double calculateAsDouble(final CharSequence equation, final int offset, final int length) {
+        Objects.checkFromIndexSize(offset, length, equation.length());
+        if (getListener() != null)
+            return calculateAsDouble(equation.subSequence(offset, offset + length).toString());
+        return InPlaceEvaluator.evaluate(context, equation, offset, offset + length);
+    }
+
+    @Override
+    public DoubleCompiledExpression compile(final String equation) {
+        return compile(equation, Variables.NONE);
+    }
+
+    @Override
+    public DoubleCompiledExpression compile(final String equation, final String... variables) {
+        return ExpressionCompiler.compile(context, equation, getCompileThreshold(), getListener(), variables);
+    }
+}
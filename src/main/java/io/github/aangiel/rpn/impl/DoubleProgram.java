@@ -0,0 +1,16 @@
+package io.github.aangiel.rpn.impl;
+
+/**
+ * Executable form of {@link PrimitiveDoubleExpression}, either interpreter or class generated by {@link ProgramGenerator}.
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+@FunctionalInterface
+interface DoubleProgram {
+
+    /**
+     * @param values values of variables, already checked
+     * @return result of calculation
+     */
+    double evaluate(double[] values);
+}
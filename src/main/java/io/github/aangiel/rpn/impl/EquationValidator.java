@@ -0,0 +1,86 @@
+package io.github.aangiel.rpn.impl;
+
+import io.github.aangiel.rpn.CalculationError;
+import io.github.aangiel.rpn.context.interfaces.CalculatorContext;
+import io.github.aangiel.rpn.context.operators.Operator;
+import io.github.aangiel.rpn.translation.Messages;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Checks structure of equation without calculating it: whether all tokens are numbers, variables or known
+ * functions and operators, whether every function or operator has enough arguments on stack and whether
+ * exactly one value is left on stack at the end. Numbers aren't created and functions or operators aren't
+ * called, so validation is cheap even for contexts with expensive arithmetic.
+ * <p>
+ * Errors are found in the same order as by {@link CalculatorImpl#calculate(String)}. Stack after
+ * {@link Operator#legacy(java.util.function.Function) legacy} operator can have any size, so stack isn't checked
+ * after it.
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ * @see io.github.aangiel.rpn.Calculator#validate(String)
+ */
+final class EquationValidator {
+
+    private EquationValidator() {
+    }
+
+    /**
+     * Error of type {@link Messages#LEFT_ON_STACK} has message {@link Messages#LEFT_ON_STACK_COUNT} with number
+     * of values left on stack besides the result, because values aren't calculated.
+     *
+     * @param context   context with functions and operators
+     * @param equation  equation to validate
+     * @param variables names of variables used in equation
+     * @return the first error in equation, empty if equation is correct
+     * @throws NullPointerException     if any parameter or variable is null
+     * @throws IllegalArgumentException if variable name is duplicated, contains whitespace or is a number
+     */
+    static Optional<CalculationError> validate(CalculatorContext<?> context, String equation, String... variables) {
+        Objects.requireNonNull(context);
+        Objects.requireNonNull(equation);
+        var declared = Variables.of(variables);
+
+        var tokenizer = new Tokenizer(equation);
+        int count = 0;
+        int depth = 0;
+        var knownDepth = true;
+        int lackOfArguments = 0;
+        String lackingName = null;
+        while (tokenizer.next()) {
+            count++;
+            if (tokenizer.isNumber()) {
+                depth++;
+            } else {
+                var name = tokenizer.text();
+                if (declared.indexOf(name) >= 0) {
+                    depth++;
+                    continue;
+                }
+
+                var operator = context.lookupOperator(name);
+                if (operator == null)
+                    return Optional.of(CalculationError.of(Messages.BAD_ITEM, count, name, count));
+                var arity = operator.getArity();
+                if (arity == Operator.UNKNOWN_ARITY) {
+                    knownDepth = false;
+                } else {
+                    if (depth < arity && knownDepth && lackingName == null) {
+                        lackOfArguments = count;
+                        lackingName = name;
+                    }
+                    depth = Math.max(depth, arity) - arity + 1;
+                }
+            }
+        }
+
+        if (count == 0)
+            return Optional.of(CalculationError.of(Messages.EMPTY_EQUATION, 0));
+        if (lackingName != null)
+            return Optional.of(CalculationError.of(Messages.LACK_OF_ARGUMENTS, lackOfArguments, lackingName, lackOfArguments));
+        if (knownDepth && depth != 1)
+            return Optional.of(CalculationError.leftOnStack(count, depth - 1));
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,90 @@
+package io.github.aangiel.rpn.impl;
+
+import io.github.aangiel.rpn.CalculationError;
+import io.github.aangiel.rpn.translation.Messages;
+
+/**
+ * Creates exceptions thrown by calculator, which remember {@link CalculationError} used for their message,
+ * so type and position of error can be reported without parsing the message.
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+final class Errors {
+
+    private Errors() {
+    }
+
+    static IllegalArgumentException illegalArgument(Messages type, Object... arguments) {
+        return illegalArgumentAt(type, 0, arguments);
+    }
+
+    /**
+     * @param position position of token (counted from 1) at which error was found
+     */
+    static IllegalArgumentException illegalArgumentAt(Messages type, int position, Object... arguments) {
+        var error = CalculationError.of(type, position, arguments);
+        return new TypedIllegalArgumentException(error);
+    }
+
+    /**
+     * @param position position of token (counted from 1) at which error was found
+     */
+    static ArithmeticException arithmeticAt(Messages type, int position, Object... arguments) {
+        var error = CalculationError.of(type, position, arguments);
+        return new TypedArithmeticException(error);
+    }
+
+    /**
+     * @return type of exception created by this class, null for other exceptions
+     * (e.g. thrown by function or operator)
+     */
+    static Messages typeOf(Throwable exception) {
+        var error = errorOf(exception);
+        return error == null ? null : error.getType();
+    }
+
+    /**
+     * @return error described by exception created by this class, null for other exceptions
+     */
+    static CalculationError errorOf(Throwable exception) {
+        return exception instanceof Typed ? ((Typed) exception).getError() : null;
+    }
+
+    private interface Typed {
+        CalculationError getError();
+    }
+
+    private static final class TypedIllegalArgumentException extends IllegalArgumentException implements Typed {
+        private static final long serialVersionUID = 1L;
+
+        // Not serialized, so deserialized exception isn't typed anymore
+        private final transient CalculationError error;
+
+        private TypedIllegalArgumentException(CalculationError error) {
+            super(error.getMessage());
+            this.error = error;
+        }
+
+        @Override
+        public CalculationError getError() {
+            return error;
+        }
+    }
+
+    private static final class TypedArithmeticException extends ArithmeticException implements Typed {
+        private static final long serialVersionUID = 1L;
+
+        // Not serialized, so deserialized exception isn't typed anymore
+        private final transient CalculationError error;
+
+        private TypedArithmeticException(CalculationError error) {
+            super(error.getMessage());
+            this.error = error;
+        }
+
+        @Override
+        public CalculationError getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package io.github.aangiel.rpn.impl;
+
+import io.github.aangiel.rpn.DoubleCompiledExpression;
+import io.github.aangiel.rpn.context.interfaces.CalculatorContext;
+import io.github.aangiel.rpn.context.interfaces.PrimitiveDoubleContext;
+import io.github.aangiel.rpn.context.operators.DoubleOperator;
+import io.github.aangiel.rpn.context.operators.Operator;
+import io.github.aangiel.rpn.metrics.CalculationListener;
+import io.github.aangiel.rpn.translation.Messages;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Parses equation into {@link CompiledExpressionImpl}, resolving literals and functions or operators up front.
+ * Parsed program is then rewritten by {@link ExpressionOptimizer}.
+ * <p>
+ * If {@link CalculationListener} measures operators, resolved functions and operators are wrapped by
+ * {@link MeasuredOperators}.
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+final class ExpressionCompiler<T extends Number> {
+
+    private final CalculatorContext<T> context;
+    private final String equation;
+    private final Variables variables;
+    private final int maxTokens;
+    private final int compileThreshold;
+    private final CalculationListener listener;
+
+    private ExpressionCompiler(CalculatorContext<T> context, String equation, int compileThreshold,
+                               CalculationListener listener, String[] variables) {
+        this.context = Objects.requireNonNull(context);
+        this.equation = Objects.requireNonNull(equation);
+        this.variables = Variables.of(variables);
+        // Tokens are separated by at least one whitespace
+        this.maxTokens = (equation.length() + 1) / 2;
+        this.compileThreshold = compileThreshold;
+        this.listener = listener != null && listener.isMeasuringOperators() ? listener : null;
+    }
+
+    /**
+     * @param listener listener measuring operators, or null
+     */
+    static <T extends Number> CompiledExpressionImpl<T> compile(CalculatorContext<T> context, String equation,
+                                                                int compileThreshold, CalculationListener listener,
+                                                                String... variables) {
+        return new ExpressionCompiler<>(context, equation, compileThreshold, listener, variables).compileEquation();
+    }
+
+    /**
+     * Compiles equation to primitive program if all its' functions and operators have primitive versions,
+     * otherwise falls back to program working on boxed values.
+     */
+    static DoubleCompiledExpression compile(PrimitiveDoubleContext context, String equation, int compileThreshold,
+                                            CalculationListener listener, String... variables) {
+        var compiler = new ExpressionCompiler<>(context, equation, compileThreshold, listener, variables);
+        var primitive = compiler.compilePrimitive(context);
+        if (primitive != null)
+            return primitive;
+        else
+            return new BoxedDoubleExpression(compiler.compileEquation(), compiler.variables);
+    }
+
+    private CompiledExpressionImpl<T> compileEquation() {
+        var tokenizer = new Tokenizer(equation);
+        var names = new String[maxTokens];
+        var opcodes = new byte[maxTokens];
+        @SuppressWarnings("unchecked")
+        var literals = (T[]) new Number[maxTokens];
+        @SuppressWarnings("unchecked")
+        var operators = (Operator<T>[]) new Operator<?>[maxTokens];
+        var slots = new int[maxTokens];
+        int count = 0;
+        int depth = 0;
+        int maxDepth = 0;
+        int lackOfArguments = -1;
+        var legacy = false;
+
+        for (; tokenizer.next(); count++) {
+            if (tokenizer.isNumber()) {
+                opcodes[count] = CompiledExpressionImpl.PUSH;
+                literals[count] = createNumber(context.getNumberConstructor(), tokenizer.text(), count + 1);
+                depth++;
+            } else {
+                names[count] = tokenizer.text();
+                slots[count] = variables.indexOf(names[count]);
+                if (slots[count] >= 0) {
+                    opcodes[count] = CompiledExpressionImpl.LOAD;
+                    depth++;
+                } else {
+                    opcodes[count] = CompiledExpressionImpl.APPLY;
+                    operators[count] = getOperator(names[count], count + 1);
+                    var arity = operators[count].getArity();
+                    // Stack after legacy operator can have any size, so it's only initial capacity
+                    legacy |= arity == Operator.UNKNOWN_ARITY;
+                    if (depth < arity && !legacy && lackOfArguments < 0)
+                        lackOfArguments = count;
+                    depth = arity == Operator.UNKNOWN_ARITY ? depth + 1 : Math.max(depth, arity) - arity + 1;
+                }
+            }
+            maxDepth = Math.max(maxDepth, depth);
+        }
+        checkEquation(count);
+
+        names = Arrays.copyOf(names, count);
+        opcodes = Arrays.copyOf(opcodes, count);
+        literals = Arrays.copyOf(literals, count);
+        operators = Arrays.copyOf(operators, count);
+        slots = Arrays.copyOf(slots, count);
+        var optimized = ExpressionOptimizer.optimize(names, opcodes, Arrays.asList(literals), Arrays.asList(operators),
+                slots, new BoxedOperations<T>());
+        if (optimized == null)
+            return new CompiledExpressionImpl<>(equation, names, opcodes, literals, operators, slots,
+                    variables, 0, maxDepth, lackOfArguments, count, compileThreshold);
+
+        @SuppressWarnings("unchecked")
+        var optimizedLiterals = optimized.values.toArray((T[]) new Number[0]);
+        @SuppressWarnings("unchecked")
+        var optimizedOperators = (Operator<T>[]) optimized.operators.toArray(new Operator<?>[0]);
+        return new CompiledExpressionImpl<>(equation, optimized.names, optimized.opcodes, optimizedLiterals,
+                optimizedOperators, optimized.slots, variables, optimized.temporaries, optimized.maxDepth, -1, count,
+                compileThreshold);
+    }
+
+    private PrimitiveDoubleExpression compilePrimitive(PrimitiveDoubleContext doubleContext) {
+        var tokenizer = new Tokenizer(equation);
+        var names = new String[maxTokens];
+        var opcodes = new byte[maxTokens];
+        var values = new double[maxTokens];
+        var operators = new DoubleOperator[maxTokens];
+        var slots = new int[maxTokens];
+        int count = 0;
+        int depth = 0;
+        int maxDepth = 0;
+        int lackOfArguments = -1;
+
+        for (; tokenizer.next(); count++) {
+            if (tokenizer.isNumber()) {
+                opcodes[count] = CompiledExpressionImpl.PUSH;
+                values[count] = createNumber(doubleContext.getNumberConstructor(), tokenizer.text(), count + 1);
+                depth++;
+            } else {
+                names[count] = tokenizer.text();
+                slots[count] = variables.indexOf(names[count]);
+                if (slots[count] >= 0) {
+                    opcodes[count] = CompiledExpressionImpl.LOAD;
+                    depth++;
+                } else {
+                    var operator = doubleContext.lookupDoubleOperator(names[count]);
+                    if (operator == null) {
+                        // Function exists only in boxed version or doesn't exist at all
+                        getOperator(names[count], count + 1);
+                        return null;
+                    }
+                    opcodes[count] = CompiledExpressionImpl.APPLY;
+                    operators[count] = listener == null ? operator
+                            : MeasuredOperators.measure(operator, names[count], listener);
+                    var arity = operators[count].getArity();
+                    if (depth < arity && lackOfArguments < 0)
+                        lackOfArguments = count;
+                    depth = Math.max(depth, arity) - arity + 1;
+                }
+            }
+            maxDepth = Math.max(maxDepth, depth);
+        }
+        checkEquation(count);
+
+        names = Arrays.copyOf(names, count);
+        opcodes = Arrays.copyOf(opcodes, count);
+        values = Arrays.copyOf(values, count);
+        operators = Arrays.copyOf(operators, count);
+        slots = Arrays.copyOf(slots, count);
+        var optimized = ExpressionOptimizer.optimize(names, opcodes, Arrays.stream(values).boxed().collect(Collectors.toList()),
+                Arrays.asList(operators), slots, PRIMITIVE_OPERATIONS);
+        if (optimized == null)
+            return new PrimitiveDoubleExpression(equation, names, opcodes, values, operators, slots,
+                    variables, 0, maxDepth, depth, lackOfArguments, count, compileThreshold);
+
+        // Only equations with correct structure are optimized
+        var optimizedValues = optimized.values.stream().mapToDouble(value -> value == null ? 0 : value).toArray();
+        return new PrimitiveDoubleExpression(equation, optimized.names, optimized.opcodes, optimizedValues,
+                optimized.operators.toArray(new DoubleOperator[0]), optimized.slots, variables, optimized.temporaries,
+                optimized.maxDepth, 1, -1, count, compileThreshold);
+    }
+
+    private static final ExpressionOptimizer.Operations<Double, DoubleOperator> PRIMITIVE_OPERATIONS =
+            new ExpressionOptimizer.Operations<>() {
+                @Override
+                public int getArity(DoubleOperator operator) {
+                    return operator.getArity();
+                }
+
+                @Override
+                public boolean isPure(DoubleOperator operator) {
+                    return operator.isPure();
+                }
+
+                @Override
+                public Double apply(DoubleOperator operator, List<Double> arguments) {
+                    return operator.apply(arguments.stream().mapToDouble(Double::doubleValue).toArray(), 0);
+                }
+            };
+
+    private static final class BoxedOperations<T extends Number> implements ExpressionOptimizer.Operations<T, Operator<T>> {
+        @Override
+        public int getArity(Operator<T> operator) {
+            return operator.getArity();
+        }
+
+        @Override
+        public boolean isPure(Operator<T> operator) {
+            return operator.isPure();
+        }
+
+        @Override
+        public T apply(Operator<T> operator, List<T> arguments) {
+            @SuppressWarnings("unchecked")
+            var stack = arguments.toArray((T[]) new Number[0]);
+            return operator.apply(stack, 0);
+        }
+    }
+
+    private static void checkEquation(int count) {
+        if (count == 0)
+            throw Errors.illegalArgument(Messages.EMPTY_EQUATION);
+    }
+
+    /**
+     * Tokenizer recognizes numbers by their first characters, so token which number constructor of context
+     * can't parse (e.g. 0x10) is reported as bad item.
+     *
+     * @param position position of token (counted from 1)
+     */
+    static <N> N createNumber(Function<String, ? extends N> constructor, String token, int position) {
+        assert token != null;
+        try {
+            return constructor.apply(token);
+        } catch (RuntimeException e) {
+            var badItem = Errors.illegalArgumentAt(Messages.BAD_ITEM, position, token, position);
+            badItem.initCause(e);
+            throw badItem;
+        }
+    }
+
+    private Operator<T> getOperator(String token, int position) {
+        assert token != null;
+        var result = context.lookupOperator(token);
+        if (result != null)
+            return listener == null ? result : MeasuredOperators.measure(result, token, listener);
+        else
+            throw Errors.illegalArgumentAt(Messages.BAD_ITEM, position, token, position);
+    }
+}
@@ -0,0 +1,253 @@
+package io.github.aangiel.rpn.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rewrites program parsed by {@link ExpressionCompiler} before it's evaluated for the first time:
+ * <ul>
+ *     <li>subtrees consisting only of literals and pure functions or operators are calculated once at compile time
+ *     with the same functions and operators, so the result is the same as at evaluation (constant folding)</li>
+ *     <li>structurally identical subtrees of pure functions or operators are evaluated once, their value is
+ *     {@link CompiledExpressionImpl#STORE stored} in temporary slot and {@link CompiledExpressionImpl#RECALL recalled}
+ *     for other occurrences (common subexpression elimination)</li>
+ * </ul>
+ * Programs with legacy operators or with wrong structure (lack of arguments or items left on stack) aren't
+ * optimized, so they fail exactly the same way. Calculation which throws exception at compile time is left
+ * for evaluation. Impure functions and operators are evaluated as many times and in the same order as written.
+ *
+ * @param <V> type of literals
+ * @param <O> type of functions and operators
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+final class ExpressionOptimizer<V, O> {
+
+    /**
+     * Access to functions and operators of given type.
+     */
+    interface Operations<V, O> {
+
+        /**
+         * @return number of arguments or negative value if it's unknown
+         */
+        int getArity(O operator);
+
+        boolean isPure(O operator);
+
+        /**
+         * @param arguments arguments, the deepest one first
+         * @return result of operator
+         */
+        V apply(O operator, List<V> arguments);
+    }
+
+    private final Operations<V, O> operations;
+    private final List<Node<V, O>> nodes = new ArrayList<>();
+    private final Map<List<Object>, Integer> nodeIndexes = new HashMap<>();
+    private boolean changed;
+
+    private ExpressionOptimizer(Operations<V, O> operations) {
+        this.operations = operations;
+    }
+
+    /**
+     * @param values    literals at indexes of {@link CompiledExpressionImpl#PUSH} opcodes
+     * @param operators functions and operators at indexes of {@link CompiledExpressionImpl#APPLY} opcodes
+     * @param slots     indexes of variables at indexes of {@link CompiledExpressionImpl#LOAD} opcodes
+     * @return optimized program or null if it can't be optimized
+     */
+    static <V, O> Optimized<V, O> optimize(String[] names, byte[] opcodes, List<V> values, List<O> operators,
+                                            int[] slots, Operations<V, O> operations) {
+        var optimizer = new ExpressionOptimizer<>(operations);
+        var root = optimizer.buildTree(names, opcodes, values, operators, slots);
+        if (root < 0 || !optimizer.changed)
+            return null;
+        return optimizer.emit(root);
+    }
+
+    /**
+     * @return index of root node or -1 if program can't be optimized
+     */
+    private int buildTree(String[] names, byte[] opcodes, List<V> values, List<O> operators, int[] slots) {
+        var stack = new int[opcodes.length];
+        int size = 0;
+        for (int i = 0; i < opcodes.length; i++) {
+            if (opcodes[i] == CompiledExpressionImpl.PUSH) {
+                stack[size++] = literal(values.get(i));
+            } else if (opcodes[i] == CompiledExpressionImpl.LOAD) {
+                stack[size++] = node(new Node<>(CompiledExpressionImpl.LOAD, null, null, null, slots[i], new int[0]),
+                        List.of(CompiledExpressionImpl.LOAD, slots[i]));
+            } else {
+                var operator = operators.get(i);
+                var arity = operations.getArity(operator);
+                if (arity < 0 || arity > size)
+                    return -1;
+                size -= arity;
+                stack[size] = apply(names[i], operator, Arrays.copyOfRange(stack, size, size + arity));
+                size++;
+            }
+        }
+        return size == 1 ? stack[0] : -1;
+    }
+
+    private int apply(String name, O operator, int[] children) {
+        var pure = operations.isPure(operator);
+        if (pure && Arrays.stream(children).allMatch(child -> nodes.get(child).opcode == CompiledExpressionImpl.PUSH)) {
+            var arguments = new ArrayList<V>(children.length);
+            for (var child : children)
+                arguments.add(nodes.get(child).value);
+            try {
+                var value = operations.apply(operator, arguments);
+                if (value != null) {
+                    changed = true;
+                    return literal(value);
+                }
+            } catch (RuntimeException e) {
+                // It will throw again at evaluation
+            }
+        }
+
+        var node = new Node<V, O>(CompiledExpressionImpl.APPLY, null, operator, name, -1, children);
+        if (!pure) {
+            // Never shared with other nodes
+            return add(node);
+        }
+        var key = new ArrayList<Object>(children.length + 2);
+        key.add(CompiledExpressionImpl.APPLY);
+        key.add(operator);
+        for (var child : children)
+            key.add(child);
+        return node(node, key);
+    }
+
+    private int literal(V value) {
+        return node(new Node<>(CompiledExpressionImpl.PUSH, value, null, null, -1, new int[0]),
+                List.of(CompiledExpressionImpl.PUSH, value));
+    }
+
+    /**
+     * @return index of the same node created earlier, or of just added node
+     */
+    private int node(Node<V, O> node, List<Object> key) {
+        var index = nodeIndexes.get(key);
+        if (index != null) {
+            if (node.opcode == CompiledExpressionImpl.APPLY)
+                changed = true;
+            return index;
+        }
+        index = add(node);
+        nodeIndexes.put(key, index);
+        return index;
+    }
+
+    private int add(Node<V, O> node) {
+        for (var child : node.children)
+            nodes.get(child).uses++;
+        nodes.add(node);
+        return nodes.size() - 1;
+    }
+
+    private Optimized<V, O> emit(int root) {
+        var result = new Optimized<V, O>(nodes.size());
+        // Nodes to visit, with lowest bit set when their children were already emitted
+        var stack = new int[16];
+        int size = 0;
+        stack[size++] = root << 1;
+        while (size > 0) {
+            var entry = stack[--size];
+            var node = nodes.get(entry >> 1);
+            if (node.temporary >= 0) {
+                result.add(CompiledExpressionImpl.RECALL, null, null, null, node.temporary, 0);
+            } else if ((entry & 1) == 0 && node.children.length > 0) {
+                if (size + node.children.length + 1 > stack.length)
+                    stack = Arrays.copyOf(stack, (size + node.children.length + 1) * 2);
+                stack[size++] = entry | 1;
+                for (int i = node.children.length - 1; i >= 0; i--)
+                    stack[size++] = node.children[i] << 1;
+            } else {
+                result.add(node.opcode, node.value, node.operator, node.name, node.slot, node.children.length);
+                if (node.opcode == CompiledExpressionImpl.APPLY && node.uses > 1) {
+                    node.temporary = result.temporaries++;
+                    result.add(CompiledExpressionImpl.STORE, null, null, null, node.temporary, 0);
+                }
+            }
+        }
+        return result.trim();
+    }
+
+    private static final class Node<V, O> {
+        private final byte opcode;
+        private final V value;
+        private final O operator;
+        private final String name;
+        private final int slot;
+        private final int[] children;
+        private int uses;
+        private int temporary = -1;
+
+        private Node(byte opcode, V value, O operator, String name, int slot, int[] children) {
+            this.opcode = opcode;
+            this.value = value;
+            this.operator = operator;
+            this.name = name;
+            this.slot = slot;
+            this.children = children;
+        }
+    }
+
+    /**
+     * Program after optimization, in the same form as produced by {@link ExpressionCompiler}. Slots of
+     * {@link CompiledExpressionImpl#STORE STORE} and {@link CompiledExpressionImpl#RECALL RECALL} opcodes
+     * are indexes of temporary values.
+     */
+    static final class Optimized<V, O> {
+        String[] names;
+        byte[] opcodes;
+        final List<V> values;
+        final List<O> operators;
+        int[] slots;
+        int temporaries;
+        int maxDepth;
+        private int count;
+        private int depth;
+
+        private Optimized(int capacity) {
+            capacity = Math.max(capacity, 1);
+            names = new String[capacity];
+            opcodes = new byte[capacity];
+            values = new ArrayList<>(capacity);
+            operators = new ArrayList<>(capacity);
+            slots = new int[capacity];
+        }
+
+        private void add(byte opcode, V value, O operator, String name, int slot, int arity) {
+            if (count == opcodes.length) {
+                names = Arrays.copyOf(names, count * 2);
+                opcodes = Arrays.copyOf(opcodes, count * 2);
+                slots = Arrays.copyOf(slots, count * 2);
+            }
+            if (opcode == CompiledExpressionImpl.APPLY)
+                depth += 1 - arity;
+            else if (opcode != CompiledExpressionImpl.STORE)
+                depth++;
+            maxDepth = Math.max(maxDepth, depth);
+
+            names[count] = name;
+            opcodes[count] = opcode;
+            values.add(value);
+            operators.add(operator);
+            slots[count] = slot;
+            count++;
+        }
+
+        private Optimized<V, O> trim() {
+            names = Arrays.copyOf(names, count);
+            opcodes = Arrays.copyOf(opcodes, count);
+            slots = Arrays.copyOf(slots, count);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package io.github.aangiel.rpn.impl;
+
+import io.github.aangiel.rpn.context.impl.BigDecimalCalculatorContext;
+import io.github.aangiel.rpn.context.interfaces.CalculatorContext;
+import io.github.aangiel.rpn.context.interfaces.PrimitiveDoubleContext;
+import io.github.aangiel.rpn.context.operators.Operator;
+import io.github.aangiel.rpn.translation.Messages;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Evaluates equation in one pass directly from range of {@link CharSequence}, without copying it into
+ * {@link String} and without compiling it. It's meant for equations calculated only once.
+ * <p>
+ * Results, calls of functions and operators and thrown exceptions are exactly the same as of
+ * {@link CalculatorImpl#calculate(String)}. Compiled equation reports errors found by compiling it (bad items
+ * and lack of arguments before the first legacy operator) before calling any function or operator, so they're
+ * reported before exception of function or operator, and the rest of equation is checked for them before
+ * the first impure or {@link Operator#legacy(java.util.function.Function) legacy} function or operator is called.
+ * Legacy operators get copy of the stack as {@link LinkedList}, like in compiled equation.
+ * Equations of {@link BigDecimalCalculatorContext} are evaluated by {@link ScaledDecimalEvaluator}.
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+final class InPlaceEvaluator {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private InPlaceEvaluator() {
+    }
+
+    static <T extends Number> T evaluate(CalculatorContext<T> context, CharSequence equation, int start, int end) {
+        var numbers = context.getNumberConstructor();
+        if (numbers == BigDecimalCalculatorContext.NUMBER_CONSTRUCTOR) {
+            // Context creating BigDecimal numbers is CalculatorContext<BigDecimal>
+            @SuppressWarnings("unchecked")
+            var result = (T) ScaledDecimalEvaluator.evaluate((CalculatorContext<BigDecimal>) context, equation,
+                    start, end);
+            return result;
+        }
+
+        var tokenizer = new Tokenizer(equation, start, end);
+        @SuppressWarnings("unchecked")
+        var stack = (T[]) new Number[INITIAL_CAPACITY];
+        int size = 0;
+        int count = 0;
+        // Whether the rest of equation is already checked for errors
+        var checked = false;
+        while (tokenizer.next()) {
+            count++;
+            if (size == stack.length)
+                stack = Arrays.copyOf(stack, size * 2);
+            if (tokenizer.isNumber()) {
+                stack[size++] = ExpressionCompiler.createNumber(numbers, tokenizer.text(), count);
+                continue;
+            }
+
+            var name = tokenizer.text();
+            var operator = context.lookupOperator(name);
+            if (operator == null)
+                throw badItem(name, count);
+            var arity = operator.getArity();
+            if (arity == Operator.UNKNOWN_ARITY) {
+                if (!checked)
+                    checkRest(context, equation, tokenizer, end, count, -1);
+                checked = true;
+                var args = new LinkedList<T>();
+                for (int i = size - 1; i >= 0; i--)
+                    args.add(stack[i]);
+                var result = applyLegacy(operator, args, name, count);
+                size = args.size() + 1;
+                if (size > stack.length)
+                    stack = Arrays.copyOf(stack, size * 2);
+                var i = args.size();
+                stack[i] = result;
+                for (var arg : args)
+                    stack[--i] = arg;
+                continue;
+            }
+            if (arity > size)
+                throw lackOfArguments(context, tokenizer, name, count);
+            var base = size - arity;
+            if (!checked && !operator.isPure()) {
+                checkRest(context, equation, tokenizer, end, count, base + 1);
+                checked = true;
+            }
+            try {
+                stack[base] = operator.apply(stack, base);
+            } catch (RuntimeException e) {
+                throw checked ? e : errorOfRest(context, tokenizer, count, base + 1, e);
+            }
+            size = base + 1;
+        }
+        if (size != 1)
+            throw leftOnStack(Arrays.asList(stack).subList(0, size), count);
+        return stack[0];
+    }
+
+    /**
+     * Functions and operators existing only in boxed version are applied to boxed values, like in equation
+     * compiled for them.
+     */
+    static double evaluate(PrimitiveDoubleContext context, CharSequence equation, int start, int end) {
+        var numbers = context.getNumberConstructor();
+        var tokenizer = new Tokenizer(equation, start, end);
+        var stack = new double[INITIAL_CAPACITY];
+        int size = 0;
+        int count = 0;
+        // Whether the rest of equation is already checked for errors
+        var checked = false;
+        while (tokenizer.next()) {
+            count++;
+            if (size == stack.length)
+                stack = Arrays.copyOf(stack, size * 2);
+            if (tokenizer.isNumber()) {
+                stack[size++] = ExpressionCompiler.createNumber(numbers, tokenizer.text(), count);
+                continue;
+            }
+
+            var name = tokenizer.text();
+            var operator = context.lookupDoubleOperator(name);
+            var boxed = operator == null ? context.lookupOperator(name) : null;
+            if (operator == null && boxed == null)
+                throw badItem(name, count);
+            var arity = operator != null ? operator.getArity() : boxed.getArity();
+            if (arity == Operator.UNKNOWN_ARITY) {
+                if (!checked)
+                    checkRest(context, equation, tokenizer, end, count, -1);
+                checked = true;
+                var args = new LinkedList<Double>();
+                for (int i = size - 1; i >= 0; i--)
+                    args.add(stack[i]);
+                var result = applyLegacy(boxed, args, name, count);
+                size = args.size() + 1;
+                if (size > stack.length)
+                    stack = Arrays.copyOf(stack, size * 2);
+                var i = args.size();
+                stack[i] = result;
+                for (var arg : args)
+                    stack[--i] = arg;
+                continue;
+            }
+            if (arity > size)
+                throw lackOfArguments(context, tokenizer, name, count);
+            var base = size - arity;
+            if (!checked && !(operator != null ? operator.isPure() : boxed.isPure())) {
+                checkRest(context, equation, tokenizer, end, count, base + 1);
+                checked = true;
+            }
+            try {
+                if (operator != null) {
+                    stack[base] = operator.apply(stack, base);
+                } else {
+                    var args = new Double[arity];
+                    for (int i = 0; i < arity; i++)
+                        args[i] = stack[base + i];
+                    stack[base] = boxed.apply(args, 0);
+                }
+            } catch (RuntimeException e) {
+                throw checked ? e : errorOfRest(context, tokenizer, count, base + 1, e);
+            }
+            size = base + 1;
+        }
+        if (size != 1) {
+            var left = new Double[size];
+            for (int i = 0; i < size; i++)
+                left[i] = stack[i];
+            throw leftOnStack(Arrays.asList(left), count);
+        }
+        return stack[0];
+    }
+
+    /**
+     * Checks the rest of equation after current token, before the first impure or legacy function or operator
+     * is called.
+     *
+     * @param tokenizer tokenizer at current token
+     * @param end       end of equation
+     * @param count     number of tokens before the rest of equation
+     * @param depth     size of stack after current token, or -1 after legacy operator
+     * @throws RuntimeException the first error found by compiling the rest of equation
+     */
+    static void checkRest(CalculatorContext<?> context, CharSequence equation, Tokenizer tokenizer, int end,
+                          int count, int depth) {
+        var error = errorOfRest(context, new Tokenizer(equation, tokenizer.end(), end), count, depth, null);
+        if (error != null)
+            throw error;
+    }
+
+    /**
+     * Applies legacy operator the same way as compiled equation.
+     *
+     * @param args copy of the stack from its top, modified by operator
+     * @throws ArithmeticException lack of arguments, if operator takes more arguments than there are on stack
+     */
+    static <T extends Number> T applyLegacy(Operator<T> operator, LinkedList<T> args, String name, int position) {
+        try {
+            return operator.toFunction().apply(args);
+        } catch (IndexOutOfBoundsException | NoSuchElementException e) {
+            throw Errors.arithmeticAt(Messages.LACK_OF_ARGUMENTS, position, name, position);
+        }
+    }
+
+    static RuntimeException badItem(String name, int position) {
+        return Errors.illegalArgumentAt(Messages.BAD_ITEM, position, name, position);
+    }
+
+    /**
+     * @return error of the rest of equation found by compiling it, otherwise lack of arguments of given operator
+     */
+    static RuntimeException lackOfArguments(CalculatorContext<?> context, Tokenizer tokenizer, String name,
+                                            int position) {
+        var lackOfArguments = Errors.arithmeticAt(Messages.LACK_OF_ARGUMENTS, position, name, position);
+        return errorOfRest(context, tokenizer, position, -1, lackOfArguments);
+    }
+
+    /**
+     * Checks the rest of equation after exception of function or operator the same way as it's compiled:
+     * numbers are created, functions and operators are looked up and stack depth is counted until the first
+     * legacy operator.
+     *
+     * @param count     number of tokens before the rest of equation
+     * @param depth     size of stack before the rest of equation, or -1 when lack of arguments is already found
+     * @param exception exception thrown by function or operator, or lack of arguments
+     * @return the first error found by compiling the rest of equation, otherwise the exception
+     */
+    static RuntimeException errorOfRest(CalculatorContext<?> context, Tokenizer tokenizer, int count, int depth,
+                                        RuntimeException exception) {
+        RuntimeException lackOfArguments = null;
+        var knownDepth = depth >= 0;
+        while (tokenizer.next()) {
+            count++;
+            if (tokenizer.isNumber()) {
+                ExpressionCompiler.createNumber(context.getNumberConstructor(), tokenizer.text(), count);
+                depth++;
+                continue;
+            }
+
+            var name = tokenizer.text();
+            var operator = context.lookupOperator(name);
+            if (operator == null)
+                return badItem(name, count);
+            var arity = operator.getArity();
+            if (arity == Operator.UNKNOWN_ARITY) {
+                knownDepth = false;
+            } else {
+                if (depth < arity && knownDepth && lackOfArguments == null)
+                    lackOfArguments = Errors.arithmeticAt(Messages.LACK_OF_ARGUMENTS, count, name, count);
+                depth = Math.max(depth, arity) - arity + 1;
+            }
+        }
+        return lackOfArguments == null ? exception : lackOfArguments;
+    }
+
+    /**
+     * @param stack values on stack from the bottom, the last one is the result
+     * @param count number of tokens of equation
+     */
+    static RuntimeException leftOnStack(List<?> stack, int count) {
+        if (count == 0)
+            return Errors.illegalArgument(Messages.EMPTY_EQUATION);
+
+        // Same form as LinkedList stack of compiled equation, where result is popped from the top
+        var left = new LinkedList<Object>();
+        for (int i = stack.size() - 2; i >= 0; i--)
+            left.add(stack.get(i));
+        return Errors.illegalArgumentAt(Messages.LEFT_ON_STACK, count, left);
+    }
+}
@@ -0,0 +1,20 @@
+package io.github.aangiel.rpn.impl;
+
+/**
+ * Size of compiled equation, reported to {@link io.github.aangiel.rpn.metrics.CalculationListener}.
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+interface MeasuredExpression {
+
+    /**
+     * @return number of tokens of equation
+     */
+    int getTokenCount();
+
+    /**
+     * @return the highest number of values on stack during evaluation
+     * (initial size of stack for equations with legacy operators)
+     */
+    int getMaxStackDepth();
+}
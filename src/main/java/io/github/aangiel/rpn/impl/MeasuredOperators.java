@@ -0,0 +1,176 @@
+package io.github.aangiel.rpn.impl;
+
+import io.github.aangiel.rpn.context.operators.DoubleOperator;
+import io.github.aangiel.rpn.context.operators.DoubleTernaryOperator;
+import io.github.aangiel.rpn.context.operators.Operator;
+import io.github.aangiel.rpn.context.operators.TernaryOperator;
+import io.github.aangiel.rpn.metrics.CalculationListener;
+
+import java.util.function.BinaryOperator;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleSupplier;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Wraps functions and operators, so every invocation is reported to {@link CalculationListener#onOperator(String, long)}.
+ * Wrapped operator has the same arity and purity, so equation is compiled and optimized the same way.
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+final class MeasuredOperators {
+
+    private MeasuredOperators() {
+    }
+
+    static <T extends Number> Operator<T> measure(Operator<T> operator, String name, CalculationListener listener) {
+        // N-ary operators of any known arity have no function of that arity
+        var measured = operator.getArity() != Operator.UNKNOWN_ARITY && operator.getFunction() == null
+                ? measureNary(operator, name, listener)
+                : measureFunction(operator, name, listener);
+        return operator.isPure() ? measured : measured.impure();
+    }
+
+    private static <T extends Number> Operator<T> measureFunction(Operator<T> operator, String name,
+                                                                  CalculationListener listener) {
+        Operator<T> measured;
+        switch (operator.getArity()) {
+            case Operator.UNKNOWN_ARITY: {
+                var function = operator.toFunction();
+                measured = Operator.legacy(args -> {
+                    var start = System.nanoTime();
+                    try {
+                        return function.apply(args);
+                    } finally {
+                        listener.onOperator(name, System.nanoTime() - start);
+                    }
+                });
+                break;
+            }
+            case 0: {
+                @SuppressWarnings("unchecked")
+                var function = (Supplier<T>) operator.getFunction();
+                measured = Operator.constant(() -> {
+                    var start = System.nanoTime();
+                    try {
+                        return function.get();
+                    } finally {
+                        listener.onOperator(name, System.nanoTime() - start);
+                    }
+                });
+                break;
+            }
+            case 1: {
+                @SuppressWarnings("unchecked")
+                var function = (UnaryOperator<T>) operator.getFunction();
+                measured = Operator.unary(a -> {
+                    var start = System.nanoTime();
+                    try {
+                        return function.apply(a);
+                    } finally {
+                        listener.onOperator(name, System.nanoTime() - start);
+                    }
+                });
+                break;
+            }
+            case 2: {
+                @SuppressWarnings("unchecked")
+                var function = (BinaryOperator<T>) operator.getFunction();
+                measured = Operator.binary((a, b) -> {
+                    var start = System.nanoTime();
+                    try {
+                        return function.apply(a, b);
+                    } finally {
+                        listener.onOperator(name, System.nanoTime() - start);
+                    }
+                });
+                break;
+            }
+            case 3: {
+                @SuppressWarnings("unchecked")
+                var function = (TernaryOperator<T>) operator.getFunction();
+                measured = Operator.ternary((a, b, c) -> {
+                    var start = System.nanoTime();
+                    try {
+                        return function.apply(a, b, c);
+                    } finally {
+                        listener.onOperator(name, System.nanoTime() - start);
+                    }
+                });
+                break;
+            }
+            default:
+                measured = measureNary(operator, name, listener);
+        }
+        return measured;
+    }
+
+    private static <T extends Number> Operator<T> measureNary(Operator<T> operator, String name,
+                                                              CalculationListener listener) {
+        return Operator.nary(operator.getArity(), args -> {
+            @SuppressWarnings("unchecked")
+            var stack = args.toArray((T[]) new Number[0]);
+            var start = System.nanoTime();
+            try {
+                return operator.apply(stack, 0);
+            } finally {
+                listener.onOperator(name, System.nanoTime() - start);
+            }
+        });
+    }
+
+    static DoubleOperator measure(DoubleOperator operator, String name, CalculationListener listener) {
+        DoubleOperator measured;
+        switch (operator.getArity()) {
+            case 0: {
+                var function = (DoubleSupplier) operator.getFunction();
+                measured = DoubleOperator.nullary(() -> {
+                    var start = System.nanoTime();
+                    try {
+                        return function.getAsDouble();
+                    } finally {
+                        listener.onOperator(name, System.nanoTime() - start);
+                    }
+                });
+                break;
+            }
+            case 1: {
+                var function = (DoubleUnaryOperator) operator.getFunction();
+                measured = DoubleOperator.unary(a -> {
+                    var start = System.nanoTime();
+                    try {
+                        return function.applyAsDouble(a);
+                    } finally {
+                        listener.onOperator(name, System.nanoTime() - start);
+                    }
+                });
+                break;
+            }
+            case 2: {
+                var function = (DoubleBinaryOperator) operator.getFunction();
+                measured = DoubleOperator.binary((a, b) -> {
+                    var start = System.nanoTime();
+                    try {
+                        return function.applyAsDouble(a, b);
+                    } finally {
+                        listener.onOperator(name, System.nanoTime() - start);
+                    }
+                });
+                break;
+            }
+            default: {
+                var function = (DoubleTernaryOperator) operator.getFunction();
+                measured = DoubleOperator.ternary((a, b, c) -> {
+                    var start = System.nanoTime();
+                    try {
+                        return function.applyAsDouble(a, b, c);
+                    } finally {
+                        listener.onOperator(name, System.nanoTime() - start);
+                    }
+                });
+            }
+        }
+        return operator.isPure() ? measured : measured.impure();
+    }
+}
@@ -0,0 +1,134 @@
+package io.github.aangiel.rpn.impl;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Size-bounded cache from equation to its compiled version with least recently used eviction.
+ * <p>
+ * Entries are spread over independently locked segments, each being access ordered {@link LinkedHashMap},
+ * so threads sharing one calculator rarely wait for each other. Equation is compiled outside of the lock.
+ * Every entry remembers {@link io.github.aangiel.rpn.context.interfaces.FunctionOrOperatorContext#getVersion()
+ * version of context} it was compiled with and is compiled again after context is changed.
+ *
+ * @param <V> type of compiled equation
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+final class PlanCache<V> {
+
+    private final Segment<V>[] segments;
+    private final int capacity;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    PlanCache(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException(String.valueOf(capacity));
+
+        this.capacity = capacity;
+        var count = Math.min(Integer.highestOneBit(capacity),
+                Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1) << 1);
+        @SuppressWarnings("unchecked")
+        var newSegments = (Segment<V>[]) new Segment<?>[count];
+        for (int i = 0; i < count; i++)
+            newSegments[i] = new Segment<>(capacity / count + (i < capacity % count ? 1 : 0), evictions);
+        this.segments = newSegments;
+    }
+
+    /**
+     * @param equation key of cache
+     * @param version  current version of context
+     * @param compiler used to compile equation if it isn't in cache or was compiled with other version of context
+     * @return compiled equation
+     */
+    V get(String equation, long version, Function<String, V> compiler) {
+        Objects.requireNonNull(equation);
+        var segment = segmentFor(equation);
+
+        var entry = segment.find(equation);
+        if (entry != null && entry.version == version) {
+            hits.increment();
+            return entry.value;
+        }
+
+        misses.increment();
+        var value = compiler.apply(equation);
+        segment.store(equation, new CachedPlan<>(value, version));
+        return value;
+    }
+
+    /**
+     * @param equation key of cache
+     * @param version  current version of context
+     * @return compiled equation, or null if it isn't in cache or was compiled with other version of context
+     */
+    V getIfPresent(String equation, long version) {
+        Objects.requireNonNull(equation);
+        var entry = segmentFor(equation).find(equation);
+        if (entry == null || entry.version != version)
+            return null;
+
+        hits.increment();
+        return entry.value;
+    }
+
+    PlanCacheStats getStats() {
+        int size = 0;
+        for (var segment : segments)
+            size += segment.size();
+        return new PlanCacheStats(hits.sum(), misses.sum(), evictions.sum(), size, capacity);
+    }
+
+    private Segment<V> segmentFor(String equation) {
+        var hash = equation.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    private static final class CachedPlan<V> {
+        private final V value;
+        private final long version;
+
+        private CachedPlan(V value, long version) {
+            this.value = value;
+            this.version = version;
+        }
+    }
+
+    private static final class Segment<V> extends LinkedHashMap<String, CachedPlan<V>> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+        private final LongAdder evictions;
+
+        private Segment(int capacity, LongAdder evictions) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        private synchronized CachedPlan<V> find(String equation) {
+            return get(equation);
+        }
+
+        private synchronized void store(String equation, CachedPlan<V> entry) {
+            put(equation, entry);
+        }
+
+        @Override
+        public synchronized int size() {
+            return super.size();
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedPlan<V>> eldest) {
+            if (super.size() <= capacity)
+                return false;
+            evictions.increment();
+            return true;
+        }
+    }
+}
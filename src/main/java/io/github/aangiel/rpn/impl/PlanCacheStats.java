@@ -0,0 +1,73 @@
+package io.github.aangiel.rpn.impl;
+
+/**
+ * Snapshot of statistics of compiled equations cache kept by {@link CalculatorImpl}.
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ * @see CalculatorImpl#getPlanCacheStats()
+ */
+public final class PlanCacheStats {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final int size;
+    private final int capacity;
+
+    PlanCacheStats(long hits, long misses, long evictions, int size, int capacity) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return number of calculations which used already compiled equation
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of calculations which had to compile equation
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return number of compiled equations removed from cache, because it was full
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return number of compiled equations currently kept in cache
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return maximum number of compiled equations kept in cache
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return ratio of hits to all calculations, or 0 if there were no calculations
+     */
+    public double getHitRate() {
+        var requests = hits + misses;
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PlanCacheStats[hits=%d, misses=%d, evictions=%d, size=%d, capacity=%d]",
+                hits, misses, evictions, size, capacity);
+    }
+}
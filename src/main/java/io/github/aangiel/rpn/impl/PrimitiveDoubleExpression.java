@@ -0,0 +1,251 @@
+package io.github.aangiel.rpn.impl;
+
+import io.github.aangiel.rpn.DoubleCompiledExpression;
+import io.github.aangiel.rpn.context.operators.DoubleOperator;
+import io.github.aangiel.rpn.translation.Messages;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Program produced by {@link ExpressionCompiler} when all functions and operators of equation
+ * have primitive versions. It's evaluated on {@code double[]} stack, sized up front to maximum depth of
+ * the equation, so the only boxing happens when result is returned by {@link #evaluate()}.
+ * <p>
+ * Columns of values are evaluated in blocks of {@link #BLOCK_SIZE} rows on stack of columns, so every function
+ * or operator runs in a loop over the whole block.
+ * <p>
+ * Evaluations of single rows are counted and after given threshold the program is replaced with class
+ * generated by {@link ProgramGenerator}, if it's possible. Equation, values and operators never change and both
+ * the counter and the program are safe to update by many threads, so one expression can be evaluated by many
+ * threads at once.
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+final class PrimitiveDoubleExpression implements DoubleCompiledExpression, MeasuredExpression {
+
+    private static final double[] NO_VALUES = new double[0];
+
+    // Small enough to keep all columns of stack in L1/L2 cache, large enough to amortize dispatch
+    static final int BLOCK_SIZE = 1024;
+
+    private final String equation;
+    private final String[] names;
+    private final byte[] opcodes;
+    private final double[] values;
+    private final DoubleOperator[] operators;
+    private final int[] slots;
+    private final Variables variables;
+    private final int temporaries;
+    private final int maxDepth;
+    private final int resultDepth;
+    private final int lackOfArguments;
+    private final int tokens;
+    private final int compileThreshold;
+    private final DoubleProgram interpreter = this::interpret;
+
+    // Volatile, so all threads switch to generated program; the worst case is generating it twice
+    private volatile DoubleProgram program;
+    private final AtomicInteger evaluations = new AtomicInteger();
+
+    /**
+     * @param slots            indexes of variables for {@link CompiledExpressionImpl#LOAD} opcodes or temporary
+     *                         values for {@link CompiledExpressionImpl#STORE} and {@link CompiledExpressionImpl#RECALL} opcodes
+     * @param temporaries      number of temporary values
+     * @param resultDepth      size of stack after whole calculation
+     * @param lackOfArguments  index of first function or operator without enough arguments on stack, or -1
+     * @param tokens           number of tokens of equation before optimization
+     * @param compileThreshold number of interpreted evaluations before generating bytecode,
+     *                         {@link Integer#MAX_VALUE} to never generate it
+     */
+    PrimitiveDoubleExpression(String equation, String[] names, byte[] opcodes, double[] values,
+                              DoubleOperator[] operators, int[] slots, Variables variables, int temporaries,
+                              int maxDepth, int resultDepth, int lackOfArguments, int tokens, int compileThreshold) {
+        this.equation = equation;
+        this.names = names;
+        this.opcodes = opcodes;
+        this.values = values;
+        this.operators = operators;
+        this.slots = slots;
+        this.variables = variables;
+        this.temporaries = temporaries;
+        this.maxDepth = maxDepth;
+        this.resultDepth = resultDepth;
+        this.lackOfArguments = lackOfArguments;
+        this.tokens = tokens;
+        this.compileThreshold = compileThreshold;
+        this.program = compileThreshold == Integer.MAX_VALUE ? interpreter : null;
+    }
+
+    @Override
+    public double evaluateAsDouble() {
+        return evaluateAsDouble(NO_VALUES);
+    }
+
+    @Override
+    public double evaluateAsDouble(double... variableValues) {
+        variables.checkCount(variableValues.length);
+        return getProgram().evaluate(variableValues);
+    }
+
+    private DoubleProgram getProgram() {
+        var current = program;
+        if (current != null)
+            return current;
+        if (evaluations.getAndIncrement() < compileThreshold)
+            return interpreter;
+
+        // Invalid equations stay interpreted, so they fail with the same exceptions
+        if (lackOfArguments < 0 && resultDepth == 1)
+            current = ProgramGenerator.generate(opcodes, values, operators, slots, temporaries, maxDepth);
+        if (current == null)
+            current = interpreter;
+        program = current;
+        return current;
+    }
+
+    private double interpret(double[] variableValues) {
+        checkLackOfArguments();
+
+        var stack = new double[maxDepth];
+        var temporaryValues = temporaries == 0 ? NO_VALUES : new double[temporaries];
+        int size = 0;
+        for (int i = 0; i < opcodes.length; i++) {
+            if (opcodes[i] == CompiledExpressionImpl.PUSH) {
+                stack[size++] = values[i];
+            } else if (opcodes[i] == CompiledExpressionImpl.LOAD) {
+                stack[size++] = variableValues[slots[i]];
+            } else if (opcodes[i] == CompiledExpressionImpl.STORE) {
+                temporaryValues[slots[i]] = stack[size - 1];
+            } else if (opcodes[i] == CompiledExpressionImpl.RECALL) {
+                stack[size++] = temporaryValues[slots[i]];
+            } else {
+                var operator = operators[i];
+                var base = size - operator.getArity();
+                stack[base] = operator.apply(stack, base);
+                size = base + 1;
+            }
+        }
+        return getResult(stack, size);
+    }
+
+    @Override
+    public double[] evaluateColumns(double[]... columns) {
+        var results = new double[columns.length == 0 ? 0 : columns[0].length];
+        evaluateColumns(columns, results);
+        return results;
+    }
+
+    @Override
+    public void evaluateColumns(double[][] columns, double[] results) {
+        var rows = results.length;
+        variables.checkColumns(columns, rows);
+        checkLackOfArguments();
+        if (rows == 0)
+            return;
+        if (resultDepth != 1) {
+            // Throws the same exception as for single row
+            evaluateAsDouble(getRow(columns, 0));
+        }
+
+        var stack = new double[maxDepth][Math.min(rows, BLOCK_SIZE)];
+        var temporaryValues = new double[temporaries][Math.min(rows, BLOCK_SIZE)];
+        for (int from = 0; from < rows; from += BLOCK_SIZE) {
+            var length = Math.min(BLOCK_SIZE, rows - from);
+            int size = 0;
+            for (int i = 0; i < opcodes.length; i++) {
+                if (opcodes[i] == CompiledExpressionImpl.PUSH) {
+                    Arrays.fill(stack[size++], 0, length, values[i]);
+                } else if (opcodes[i] == CompiledExpressionImpl.LOAD) {
+                    System.arraycopy(columns[slots[i]], from, stack[size++], 0, length);
+                } else if (opcodes[i] == CompiledExpressionImpl.STORE) {
+                    System.arraycopy(stack[size - 1], 0, temporaryValues[slots[i]], 0, length);
+                } else if (opcodes[i] == CompiledExpressionImpl.RECALL) {
+                    System.arraycopy(temporaryValues[slots[i]], 0, stack[size++], 0, length);
+                } else {
+                    var operator = operators[i];
+                    var base = size - operator.getArity();
+                    operator.applyColumns(stack, base, length);
+                    size = base + 1;
+                }
+            }
+            System.arraycopy(stack[0], 0, results, from, length);
+        }
+    }
+
+    @Override
+    public Double evaluate() {
+        return evaluateAsDouble();
+    }
+
+    @Override
+    public Double evaluate(List<? extends Double> variableValues) {
+        var array = new double[variableValues.size()];
+        for (int i = 0; i < array.length; i++)
+            array[i] = variableValues.get(i);
+        return evaluateAsDouble(array);
+    }
+
+    @Override
+    public Double evaluate(Map<String, ? extends Double> variableValues) {
+        var array = variables.bind(variableValues, new Double[variables.size()]);
+        return evaluate(List.of(array));
+    }
+
+    @Override
+    public List<String> getVariables() {
+        return variables.names();
+    }
+
+    @Override
+    public int getVariableIndex(String name) {
+        return variables.resolve(name);
+    }
+
+    @Override
+    public int getTokenCount() {
+        return tokens;
+    }
+
+    @Override
+    public int getMaxStackDepth() {
+        return maxDepth;
+    }
+
+    @Override
+    public String getEquation() {
+        return equation;
+    }
+
+    @Override
+    public String toString() {
+        return equation;
+    }
+
+    private void checkLackOfArguments() {
+        if (lackOfArguments >= 0)
+            throw Errors.arithmeticAt(Messages.LACK_OF_ARGUMENTS, lackOfArguments + 1, names[lackOfArguments],
+                    lackOfArguments + 1);
+    }
+
+    private static double[] getRow(double[][] columns, int row) {
+        var values = new double[columns.length];
+        for (int i = 0; i < values.length; i++)
+            values[i] = columns[i][row];
+        return values;
+    }
+
+    private double getResult(double[] stack, int size) {
+        if (size == 1)
+            return stack[0];
+
+        // Same form as in boxed version, where result is popped from the top of LinkedList
+        var left = new LinkedList<Double>();
+        for (int i = size - 2; i >= 0; i--)
+            left.add(stack[i]);
+        throw Errors.illegalArgumentAt(Messages.LEFT_ON_STACK, tokens, left);
+    }
+}
@@ -0,0 +1,17 @@
+package io.github.aangiel.rpn.impl;
+
+/**
+ * Executable form of {@link CompiledExpressionImpl}, either interpreter or class generated by {@link ProgramGenerator}.
+ *
+ * @param <T> type of values
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+@FunctionalInterface
+interface Program<T> {
+
+    /**
+     * @param values values of variables, already checked
+     * @return result of calculation
+     */
+    T evaluate(T[] values);
+}
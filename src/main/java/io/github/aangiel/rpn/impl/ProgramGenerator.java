@@ -0,0 +1,458 @@
+package io.github.aangiel.rpn.impl;
+
+import io.github.aangiel.rpn.context.operators.DoubleOperator;
+import io.github.aangiel.rpn.context.operators.DoubleTernaryOperator;
+import io.github.aangiel.rpn.context.operators.Operator;
+import io.github.aangiel.rpn.context.operators.TernaryOperator;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleSupplier;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Generates JVM class with program of compiled expression written as straight-line code, so JIT compiles
+ * every hot equation to its own method. Basic arithmetic of {@link DoubleOperator} is emitted as JVM
+ * instructions, other functions and operators are invoked from their own call site, which keeps them
+ * monomorphic and lets JIT inline the lambdas.
+ * <p>
+ * On Java 15 and newer classes are defined as hidden classes, so they're unloaded together with the expression.
+ * On older versions they're defined with {@link MethodHandles.Lookup#defineClass(byte[])} and stay loaded.
+ * <p>
+ * Only programs which can't fail on structure of the equation are generated, so generated code never has
+ * to report {@link io.github.aangiel.rpn.translation.Messages#LACK_OF_ARGUMENTS LACK_OF_ARGUMENTS} or
+ * {@link io.github.aangiel.rpn.translation.Messages#LEFT_ON_STACK LEFT_ON_STACK}.
+ * Methods return null when the program can't be generated, then the expression stays interpreted.
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+final class ProgramGenerator {
+
+    // Keeps generated method far below the limit of 64KB of bytecode
+    private static final int MAX_INSTRUCTIONS = 4096;
+    // Locals are accessed by instructions with one byte index
+    private static final int MAX_LOCALS = 256;
+
+    private static final String CLASS_NAME = ProgramGenerator.class.getPackageName().replace('.', '/') + "/GeneratedProgram$";
+    private static final String OBJECT = "java/lang/Object";
+    private static final String CONSTRUCTOR = "([Ljava/lang/Object;)V";
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodHandle DEFINE_HIDDEN_CLASS = findDefineHiddenClass();
+    private static final AtomicLong COUNTER = new AtomicLong();
+
+    private ProgramGenerator() {
+    }
+
+    /**
+     * @return generated program or null if it can't be generated
+     */
+    static DoubleProgram generate(byte[] opcodes, double[] values, DoubleOperator[] operators, int[] slots,
+                                  int temporaries, int maxDepth) {
+        // Arguments of invoked functions take locals 2-7, temporary values are placed after them
+        var maxLocals = 2 + 2 * 3 + 2 * temporaries;
+        if (opcodes.length > MAX_INSTRUCTIONS || maxLocals > MAX_LOCALS)
+            return null;
+
+        var file = new ClassFile(DoubleProgram.class);
+        var code = file.code;
+        for (int i = 0; i < opcodes.length; i++) {
+            if (opcodes[i] == CompiledExpressionImpl.PUSH) {
+                code.u1(LDC2_W).u2(file.doubleConstant(values[i]));
+            } else if (opcodes[i] == CompiledExpressionImpl.LOAD) {
+                code.u1(ALOAD_1);
+                code.pushInt(slots[i]);
+                code.u1(DALOAD);
+            } else if (opcodes[i] == CompiledExpressionImpl.STORE) {
+                code.u1(DUP2).u1(DSTORE).u1(2 + 2 * 3 + 2 * slots[i]);
+            } else if (opcodes[i] == CompiledExpressionImpl.RECALL) {
+                code.u1(DLOAD).u1(2 + 2 * 3 + 2 * slots[i]);
+            } else if (!generateCall(file, operators[i])) {
+                return null;
+            }
+        }
+        code.u1(DRETURN);
+        // Arguments are stored in locals before invocation, then loaded again after receiver
+        return (DoubleProgram) file.newInstance("evaluate", "([D)D", 2 * maxDepth + 2, maxLocals);
+    }
+
+    /**
+     * @return generated program or null if it can't be generated
+     */
+    static <T extends Number> Program<T> generate(byte[] opcodes, T[] literals, Operator<T>[] operators, int[] slots,
+                                                  int temporaries) {
+        // Arguments of invoked functions take locals 2-4, temporary values are placed after them
+        var maxLocals = 2 + 3 + temporaries;
+        if (opcodes.length > MAX_INSTRUCTIONS || maxLocals > MAX_LOCALS)
+            return null;
+
+        var file = new ClassFile(Program.class);
+        var code = file.code;
+        int depth = 0;
+        int maxDepth = 0;
+        for (int i = 0; i < opcodes.length; i++) {
+            if (opcodes[i] == CompiledExpressionImpl.PUSH) {
+                code.u1(ALOAD_0).u1(GETFIELD).u2(file.field("Ljava/lang/Object;", literals[i]));
+                depth++;
+            } else if (opcodes[i] == CompiledExpressionImpl.LOAD) {
+                code.u1(ALOAD_1);
+                code.pushInt(slots[i]);
+                code.u1(AALOAD);
+                depth++;
+            } else if (opcodes[i] == CompiledExpressionImpl.STORE) {
+                code.u1(DUP).u1(ASTORE).u1(2 + 3 + slots[i]);
+            } else if (opcodes[i] == CompiledExpressionImpl.RECALL) {
+                code.u1(ALOAD).u1(2 + 3 + slots[i]);
+                depth++;
+            } else {
+                var arity = operators[i].getArity();
+                if (arity < 0 || depth < arity || !generateCall(file, operators[i]))
+                    return null;
+                depth = depth - arity + 1;
+            }
+            maxDepth = Math.max(maxDepth, depth);
+        }
+        if (depth != 1)
+            return null;
+        code.u1(ARETURN);
+
+        @SuppressWarnings("unchecked")
+        var program = (Program<T>) file.newInstance("evaluate", "([Ljava/lang/Object;)Ljava/lang/Object;", maxDepth + 1, maxLocals);
+        return program;
+    }
+
+    private static boolean generateCall(ClassFile file, DoubleOperator operator) {
+        var code = file.code;
+        switch (operator.getIntrinsic()) {
+            case ADD:
+                code.u1(DADD);
+                return true;
+            case SUBTRACT:
+                code.u1(DSUB);
+                return true;
+            case MULTIPLY:
+                code.u1(DMUL);
+                return true;
+            case DIVIDE:
+                code.u1(DDIV);
+                return true;
+            default:
+                break;
+        }
+
+        var arity = operator.getArity();
+        if (arity == 0 && operator.isPure()) {
+            // Value of pure operator without arguments can't change
+            code.u1(LDC2_W).u2(file.doubleConstant(operator.apply(new double[0], 0)));
+            return true;
+        }
+
+        var function = operator.getFunction();
+        if (arity == 0 && function instanceof DoubleSupplier)
+            generateInvocation(file, function, DoubleSupplier.class, "getAsDouble", "()D", 0, DSTORE, DLOAD, 2);
+        else if (arity == 1 && function instanceof DoubleUnaryOperator)
+            generateInvocation(file, function, DoubleUnaryOperator.class, "applyAsDouble", "(D)D", 1, DSTORE, DLOAD, 2);
+        else if (arity == 2 && function instanceof DoubleBinaryOperator)
+            generateInvocation(file, function, DoubleBinaryOperator.class, "applyAsDouble", "(DD)D", 2, DSTORE, DLOAD, 2);
+        else if (arity == 3 && function instanceof DoubleTernaryOperator)
+            generateInvocation(file, function, DoubleTernaryOperator.class, "applyAsDouble", "(DDD)D", 3, DSTORE, DLOAD, 2);
+        else
+            return false;
+        return true;
+    }
+
+    private static boolean generateCall(ClassFile file, Operator<?> operator) {
+        var arity = operator.getArity();
+        var function = operator.getFunction();
+        var object = "Ljava/lang/Object;";
+        if (arity == 0 && function instanceof Supplier)
+            generateInvocation(file, function, Supplier.class, "get", "()" + object, 0, ASTORE, ALOAD, 1);
+        else if (arity == 1 && function instanceof Function)
+            generateInvocation(file, function, Function.class, "apply", "(" + object + ")" + object, 1, ASTORE, ALOAD, 1);
+        else if (arity == 2 && function instanceof BiFunction)
+            generateInvocation(file, function, BiFunction.class, "apply", "(" + object.repeat(2) + ")" + object, 2, ASTORE, ALOAD, 1);
+        else if (arity == 3 && function instanceof TernaryOperator)
+            generateInvocation(file, function, TernaryOperator.class, "apply", "(" + object.repeat(3) + ")" + object, 3, ASTORE, ALOAD, 1);
+        else
+            return false;
+        return true;
+    }
+
+    /**
+     * Receiver of interface method has to be below its arguments, so arguments are moved to local variables
+     * starting from index 2, then loaded again after the receiver.
+     */
+    private static void generateInvocation(ClassFile file, Object function, Class<?> type, String name, String descriptor,
+                                           int arity, int store, int load, int width) {
+        var code = file.code;
+        for (int i = arity - 1; i >= 0; i--)
+            code.u1(store).u1(2 + i * width);
+        code.u1(ALOAD_0).u1(GETFIELD).u2(file.field("L" + internalName(type) + ";", function));
+        for (int i = 0; i < arity; i++)
+            code.u1(load).u1(2 + i * width);
+        code.u1(INVOKEINTERFACE).u2(file.interfaceMethod(internalName(type), name, descriptor)).u1(1 + arity * width).u1(0);
+    }
+
+    private static String internalName(Class<?> type) {
+        return type.getName().replace('.', '/');
+    }
+
+    private static MethodHandle findDefineHiddenClass() {
+        try {
+            var option = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+            var options = Array.newInstance(option, 0);
+            var defineHiddenClass = LOOKUP.findVirtual(MethodHandles.Lookup.class, "defineHiddenClass",
+                    MethodType.methodType(MethodHandles.Lookup.class, byte[].class, boolean.class, options.getClass()));
+            return MethodHandles.insertArguments(defineHiddenClass, 2, true, options);
+        } catch (ReflectiveOperationException e) {
+            // Before Java 15
+            return null;
+        }
+    }
+
+    // Opcodes of used JVM instructions
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC2_W = 0x14;
+    private static final int DLOAD = 0x18;
+    private static final int ALOAD = 0x19;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int DALOAD = 0x31;
+    private static final int AALOAD = 0x32;
+    private static final int DSTORE = 0x39;
+    private static final int ASTORE = 0x3a;
+    private static final int DUP = 0x59;
+    private static final int DUP2 = 0x5c;
+    private static final int DADD = 0x63;
+    private static final int DSUB = 0x67;
+    private static final int DMUL = 0x6b;
+    private static final int DDIV = 0x6f;
+    private static final int DRETURN = 0xaf;
+    private static final int ARETURN = 0xb0;
+    private static final int RETURN = 0xb1;
+    private static final int GETFIELD = 0xb4;
+    private static final int PUTFIELD = 0xb5;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKEINTERFACE = 0xb9;
+    private static final int CHECKCAST = 0xc0;
+
+    /**
+     * Minimal class file writer. Generated class has one final field per constant or function, filled by
+     * constructor from array, and one method without branches, so it doesn't need stack map frames.
+     */
+    private static final class ClassFile {
+        private static final int JAVA_11 = 55;
+        private static final int ACC_PUBLIC = 0x0001;
+        private static final int ACC_PRIVATE = 0x0002;
+        private static final int ACC_FINAL = 0x0010;
+        private static final int ACC_SUPER = 0x0020;
+        private static final int ACC_SYNTHETIC = 0x1000;
+
+        private final Bytes pool = new Bytes();
+        private final Map<String, Integer> poolIndexes = new HashMap<>();
+        private int poolSize = 1;
+
+        private final String name = CLASS_NAME + COUNTER.incrementAndGet();
+        private final Class<?> type;
+        private final List<String> fieldTypes = new ArrayList<>();
+        private final List<Object> fieldValues = new ArrayList<>();
+        private final Bytes code = new Bytes();
+
+        private ClassFile(Class<?> type) {
+            this.type = type;
+        }
+
+        /**
+         * @return index of Fieldref of new field initialized with 'value'
+         */
+        private int field(String descriptor, Object value) {
+            fieldTypes.add(descriptor);
+            fieldValues.add(value);
+            return reference(9, name, "f" + (fieldTypes.size() - 1), descriptor);
+        }
+
+        private int interfaceMethod(String owner, String name, String descriptor) {
+            return reference(11, owner, name, descriptor);
+        }
+
+        private int doubleConstant(double value) {
+            var bits = Double.doubleToRawLongBits(value);
+            var key = "D" + bits;
+            var index = poolIndexes.get(key);
+            if (index == null) {
+                index = poolSize;
+                pool.u1(6).u4((int) (bits >>> 32)).u4((int) bits);
+                // Double takes two entries of constant pool
+                poolSize += 2;
+                poolIndexes.put(key, index);
+            }
+            return index;
+        }
+
+        private int utf8(String value) {
+            var key = "U" + value;
+            var index = poolIndexes.get(key);
+            if (index == null) {
+                var bytes = value.getBytes(StandardCharsets.UTF_8);
+                pool.u1(1).u2(bytes.length).bytes(bytes);
+                index = add(key);
+            }
+            return index;
+        }
+
+        private int classReference(String className) {
+            var nameIndex = utf8(className);
+            var key = "C" + className;
+            var index = poolIndexes.get(key);
+            if (index == null) {
+                pool.u1(7).u2(nameIndex);
+                index = add(key);
+            }
+            return index;
+        }
+
+        private int reference(int tag, String owner, String name, String descriptor) {
+            var ownerIndex = classReference(owner);
+            var nameIndex = utf8(name);
+            var descriptorIndex = utf8(descriptor);
+            var nameAndTypeKey = "N" + name + " " + descriptor;
+            var nameAndType = poolIndexes.get(nameAndTypeKey);
+            if (nameAndType == null) {
+                pool.u1(12).u2(nameIndex).u2(descriptorIndex);
+                nameAndType = add(nameAndTypeKey);
+            }
+            var key = tag + owner + "." + name + " " + descriptor;
+            var index = poolIndexes.get(key);
+            if (index == null) {
+                pool.u1(tag).u2(ownerIndex).u2(nameAndType);
+                index = add(key);
+            }
+            return index;
+        }
+
+        private int add(String key) {
+            poolIndexes.put(key, poolSize);
+            return poolSize++;
+        }
+
+        private byte[] toBytes(String method, String descriptor, int maxStack, int maxLocals) {
+            var constructor = new Bytes();
+            constructor.u1(ALOAD_0).u1(INVOKESPECIAL).u2(reference(10, OBJECT, "<init>", "()V"));
+            for (int i = 0; i < fieldTypes.size(); i++) {
+                constructor.u1(ALOAD_0).u1(ALOAD_1);
+                constructor.pushInt(i);
+                constructor.u1(AALOAD);
+                var fieldType = fieldTypes.get(i);
+                if (!fieldType.equals("Ljava/lang/Object;"))
+                    constructor.u1(CHECKCAST).u2(classReference(fieldType.substring(1, fieldType.length() - 1)));
+                constructor.u1(PUTFIELD).u2(reference(9, name, "f" + i, fieldType));
+            }
+            constructor.u1(RETURN);
+
+            var thisClass = classReference(name);
+            var superClass = classReference(OBJECT);
+            var interfaceClass = classReference(internalName(type));
+            var codeName = utf8("Code");
+            var fields = new Bytes();
+            for (int i = 0; i < fieldTypes.size(); i++)
+                fields.u2(ACC_PRIVATE | ACC_FINAL).u2(utf8("f" + i)).u2(utf8(fieldTypes.get(i))).u2(0);
+            var methods = new Bytes();
+            writeMethod(methods, ACC_PUBLIC, utf8("<init>"), utf8(CONSTRUCTOR), codeName, constructor, 4, 2);
+            writeMethod(methods, ACC_PUBLIC | ACC_FINAL, utf8(method), utf8(descriptor), codeName, code, maxStack, maxLocals);
+
+            var bytes = new Bytes();
+            bytes.u4(0xCAFEBABE).u2(0).u2(JAVA_11);
+            bytes.u2(poolSize).bytes(pool.toArray());
+            bytes.u2(ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC).u2(thisClass).u2(superClass);
+            bytes.u2(1).u2(interfaceClass);
+            bytes.u2(fieldTypes.size()).bytes(fields.toArray());
+            bytes.u2(2).bytes(methods.toArray());
+            bytes.u2(0);
+            return bytes.toArray();
+        }
+
+        private static void writeMethod(Bytes methods, int access, int name, int descriptor, int codeName, Bytes code,
+                                        int maxStack, int maxLocals) {
+            var bytecode = code.toArray();
+            methods.u2(access).u2(name).u2(descriptor).u2(1);
+            methods.u2(codeName).u4(2 + 2 + 4 + bytecode.length + 2 + 2);
+            methods.u2(maxStack).u2(maxLocals).u4(bytecode.length).bytes(bytecode);
+            // No exception table and no attributes
+            methods.u2(0).u2(0);
+        }
+
+        /**
+         * @return instance of generated class or null if it can't be defined
+         */
+        private Object newInstance(String method, String descriptor, int maxStack, int maxLocals) {
+            try {
+                var bytes = toBytes(method, descriptor, maxStack, maxLocals);
+                var lookup = DEFINE_HIDDEN_CLASS != null
+                        ? (MethodHandles.Lookup) DEFINE_HIDDEN_CLASS.invoke(LOOKUP, bytes)
+                        : LOOKUP.in(LOOKUP.defineClass(bytes));
+                var constructor = lookup.findConstructor(lookup.lookupClass(),
+                        MethodType.methodType(void.class, Object[].class));
+                return constructor.invoke(fieldValues.toArray());
+            } catch (VirtualMachineError e) {
+                throw e;
+            } catch (Throwable e) {
+                // Interpreter is always correct fallback
+                return null;
+            }
+        }
+    }
+
+    private static final class Bytes {
+        private byte[] bytes = new byte[256];
+        private int size;
+
+        private Bytes u1(int value) {
+            if (size == bytes.length)
+                bytes = Arrays.copyOf(bytes, size * 2);
+            bytes[size++] = (byte) value;
+            return this;
+        }
+
+        private Bytes u2(int value) {
+            return u1(value >>> 8).u1(value);
+        }
+
+        private Bytes u4(int value) {
+            return u2(value >>> 16).u2(value);
+        }
+
+        private Bytes bytes(byte[] values) {
+            for (var value : values)
+                u1(value);
+            return this;
+        }
+
+        private void pushInt(int value) {
+            if (value <= 5)
+                u1(ICONST_0 + value);
+            else if (value <= Byte.MAX_VALUE)
+                u1(BIPUSH).u1(value);
+            else
+                u1(SIPUSH).u2(value);
+        }
+
+        private byte[] toArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package io.github.aangiel.rpn.impl;
+
+import io.github.aangiel.rpn.context.interfaces.CalculatorContext;
+import io.github.aangiel.rpn.context.operators.BigDecimalOperator;
+import io.github.aangiel.rpn.context.operators.Operator;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+/**
+ * {@link InPlaceEvaluator} for contexts creating numbers with
+ * {@link io.github.aangiel.rpn.context.impl.BigDecimalCalculatorContext#NUMBER_CONSTRUCTOR BigDecimal(String)}.
+ * Values are kept on stack as unscaled {@code long} with {@code int} scale. Plain decimal numbers are parsed
+ * directly from equation and {@link BigDecimalOperator BigDecimalOperators} calculate on {@code long}, so no
+ * {@link BigDecimal} or {@link String} is created until the result is returned.
+ * <p>
+ * Numbers with more than 18 digits, numbers in other forms and results of operations which would overflow
+ * {@code long} are kept as {@link BigDecimal} and created or calculated by context or operator itself,
+ * so results and thrown exceptions are exactly the same as of {@link InPlaceEvaluator}. Other functions and
+ * operators get {@link BigDecimal} arguments.
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+final class ScaledDecimalEvaluator {
+
+    // Unscaled values with at most that many digits always fit in long
+    private static final int MAX_COMPACT_PRECISION = 18;
+
+    private static final long[] POWERS_OF_TEN = new long[MAX_COMPACT_PRECISION + 1];
+    private static final long[] SCALE_LIMITS = new long[MAX_COMPACT_PRECISION + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++)
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        for (int i = 0; i < SCALE_LIMITS.length; i++)
+            SCALE_LIMITS[i] = Long.MAX_VALUE / POWERS_OF_TEN[i];
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] unscaled = new long[INITIAL_CAPACITY];
+    private int[] scales = new int[INITIAL_CAPACITY];
+    // Not null for values which aren't kept as unscaled long
+    private BigDecimal[] decimals = new BigDecimal[INITIAL_CAPACITY];
+    private int size;
+
+    private ScaledDecimalEvaluator() {
+    }
+
+    static BigDecimal evaluate(CalculatorContext<BigDecimal> context, CharSequence equation, int start, int end) {
+        return new ScaledDecimalEvaluator().run(context, equation, start, end);
+    }
+
+    private BigDecimal run(CalculatorContext<BigDecimal> context, CharSequence equation, int start, int end) {
+        var tokenizer = new Tokenizer(equation, start, end);
+        int count = 0;
+        // Whether the rest of equation is already checked for errors
+        var checked = false;
+        while (tokenizer.next()) {
+            count++;
+            ensureCapacity(size + 1);
+            if (tokenizer.isNumber()) {
+                decimals[size] = null;
+                if (!tokenizer.isDecimal() || !parse(equation, tokenizer.start(), tokenizer.end()))
+                    decimals[size] = ExpressionCompiler.createNumber(context.getNumberConstructor(), tokenizer.text(),
+                            count);
+                size++;
+                continue;
+            }
+
+            var name = tokenizer.text();
+            var operator = context.lookupOperator(name);
+            if (operator == null)
+                throw InPlaceEvaluator.badItem(name, count);
+            var arity = operator.getArity();
+            if (arity == Operator.UNKNOWN_ARITY) {
+                if (!checked)
+                    InPlaceEvaluator.checkRest(context, equation, tokenizer, end, count, -1);
+                checked = true;
+                applyLegacy(operator, name, count);
+                continue;
+            }
+            if (arity > size)
+                throw InPlaceEvaluator.lackOfArguments(context, tokenizer, name, count);
+            var base = size - arity;
+            if (!checked && !operator.isPure()) {
+                InPlaceEvaluator.checkRest(context, equation, tokenizer, end, count, base + 1);
+                checked = true;
+            }
+            try {
+                if (!applyIntrinsic(operator, base))
+                    apply(operator, base);
+            } catch (RuntimeException e) {
+                throw checked ? e : InPlaceEvaluator.errorOfRest(context, tokenizer, count, base + 1, e);
+            }
+            size = base + 1;
+        }
+        if (size != 1) {
+            var left = new BigDecimal[size];
+            for (int i = 0; i < size; i++)
+                left[i] = valueAt(i);
+            throw InPlaceEvaluator.leftOnStack(Arrays.asList(left), count);
+        }
+        return valueAt(0);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= unscaled.length)
+            return;
+        var length = Math.max(capacity, unscaled.length * 2);
+        unscaled = Arrays.copyOf(unscaled, length);
+        scales = Arrays.copyOf(scales, length);
+        decimals = Arrays.copyOf(decimals, length);
+    }
+
+    /**
+     * Applies legacy operator to copy of the whole stack and replaces the stack with what's left of it and
+     * the result.
+     */
+    private void applyLegacy(Operator<BigDecimal> operator, String name, int position) {
+        var args = new LinkedList<BigDecimal>();
+        for (int i = size - 1; i >= 0; i--)
+            args.add(valueAt(i));
+        var result = InPlaceEvaluator.applyLegacy(operator, args, name, position);
+        size = args.size() + 1;
+        ensureCapacity(size);
+        var i = args.size();
+        decimals[i] = result;
+        for (var arg : args)
+            decimals[--i] = arg;
+    }
+
+    private BigDecimal valueAt(int index) {
+        return decimals[index] != null ? decimals[index] : BigDecimal.valueOf(unscaled[index], scales[index]);
+    }
+
+    /**
+     * Parses number the same way as {@link BigDecimal#BigDecimal(String)} into top of stack.
+     *
+     * @return false if unscaled value or scale doesn't fit
+     */
+    private boolean parse(CharSequence equation, int start, int end) {
+        var i = start;
+        var negative = equation.charAt(i) == '-';
+        if (negative || equation.charAt(i) == '+')
+            i++;
+
+        long value = 0;
+        long scale = 0;
+        var fraction = false;
+        for (; i < end; i++) {
+            var c = equation.charAt(i);
+            if (c == '.') {
+                fraction = true;
+                continue;
+            }
+            if (c == 'e' || c == 'E')
+                break;
+            if (value > (Long.MAX_VALUE - 9) / 10)
+                return false;
+            value = value * 10 + (c - '0');
+            if (fraction)
+                scale++;
+        }
+
+        if (i < end) {
+            var exponentNegative = equation.charAt(++i) == '-';
+            if (exponentNegative || equation.charAt(i) == '+')
+                i++;
+            long exponent = 0;
+            for (; i < end; i++) {
+                exponent = exponent * 10 + (equation.charAt(i) - '0');
+                if (exponent > Integer.MAX_VALUE)
+                    return false;
+            }
+            scale -= exponentNegative ? -exponent : exponent;
+        }
+        if (scale != (int) scale)
+            return false;
+
+        unscaled[size] = negative ? -value : value;
+        scales[size] = (int) scale;
+        return true;
+    }
+
+    private void apply(Operator<BigDecimal> operator, int base) {
+        for (int i = base; i < size; i++) {
+            if (decimals[i] == null)
+                decimals[i] = BigDecimal.valueOf(unscaled[i], scales[i]);
+        }
+        decimals[base] = operator.apply(decimals, base);
+    }
+
+    /**
+     * Calculates the same value with the same scale as {@link BigDecimalOperator} on top of stack.
+     *
+     * @return false if operator isn't {@link BigDecimalOperator}, its arguments or result don't fit in long
+     * or operation would throw exception
+     */
+    private boolean applyIntrinsic(Operator<BigDecimal> operator, int base) {
+        if (operator.getArity() != 2 || !(operator.getFunction() instanceof BigDecimalOperator))
+            return false;
+        if (decimals[base] != null || decimals[base + 1] != null)
+            return false;
+
+        var intrinsic = (BigDecimalOperator) operator.getFunction();
+        var a = unscaled[base];
+        var b = unscaled[base + 1];
+        var aScale = scales[base];
+        var bScale = scales[base + 1];
+        long result;
+        long scale;
+        switch (intrinsic.getIntrinsic()) {
+            case ADD:
+            case SUBTRACT:
+                if (aScale < bScale) {
+                    if (!canScale(a, (long) bScale - aScale))
+                        return false;
+                    a = scale(a, bScale - aScale);
+                } else if (aScale > bScale) {
+                    if (!canScale(b, (long) aScale - bScale))
+                        return false;
+                    b = scale(b, aScale - bScale);
+                }
+                scale = Math.max(aScale, bScale);
+                if (intrinsic.getIntrinsic() == BigDecimalOperator.Intrinsic.ADD) {
+                    result = a + b;
+                    if (((a ^ result) & (b ^ result)) < 0)
+                        return false;
+                } else {
+                    result = a - b;
+                    if (((a ^ b) & (a ^ result)) < 0)
+                        return false;
+                }
+                break;
+            case MULTIPLY:
+                scale = (long) aScale + bScale;
+                result = a * b;
+                var high = Math.multiplyHigh(a, b);
+                if ((high != 0 || result < 0) && (high != -1 || result >= 0))
+                    return false;
+                break;
+            default:
+                // Quotient has scale of dividend, so it's a * 10^bScale / b
+                scale = aScale;
+                // BigDecimal throws when scale of a * 10^bScale doesn't fit
+                if ((long) aScale + bScale != aScale + bScale)
+                    return false;
+                if (bScale >= 0) {
+                    if (!canScale(a, bScale))
+                        return false;
+                    a = scale(a, bScale);
+                } else {
+                    if (!canScale(b, -(long) bScale))
+                        return false;
+                    b = scale(b, -bScale);
+                }
+                if (b == 0 || a == Long.MIN_VALUE || b == Long.MIN_VALUE)
+                    return false;
+                result = a / b;
+                var remainder = a % b;
+                if (remainder != 0) {
+                    if (intrinsic.getRoundingMode() == RoundingMode.UNNECESSARY)
+                        return false;
+                    if (isIncremented(intrinsic.getRoundingMode(), result, remainder, b, (a < 0) == (b < 0)))
+                        result += (a < 0) == (b < 0) ? 1 : -1;
+                }
+        }
+        if (scale != (int) scale)
+            return false;
+
+        unscaled[base] = result;
+        scales[base] = (int) scale;
+        return true;
+    }
+
+    /**
+     * @return whether truncated quotient, with not zero remainder, is rounded away from zero
+     */
+    private static boolean isIncremented(RoundingMode roundingMode, long quotient, long remainder, long divisor,
+                                         boolean positive) {
+        switch (roundingMode) {
+            case UP:
+                return true;
+            case DOWN:
+                return false;
+            case CEILING:
+                return positive;
+            case FLOOR:
+                return !positive;
+            default:
+                // Compares 2 * |remainder| with |divisor| without overflow
+                var absoluteRemainder = Math.abs(remainder);
+                var half = Long.compare(absoluteRemainder, Math.abs(divisor) - absoluteRemainder);
+                if (half != 0)
+                    return half > 0;
+                if (roundingMode == RoundingMode.HALF_UP)
+                    return true;
+                if (roundingMode == RoundingMode.HALF_DOWN)
+                    return false;
+                return (quotient & 1) != 0;
+        }
+    }
+
+    private static boolean canScale(long value, long digits) {
+        if (value == 0)
+            return true;
+        return digits <= MAX_COMPACT_PRECISION && value != Long.MIN_VALUE
+                && Math.abs(value) <= SCALE_LIMITS[(int) digits];
+    }
+
+    private static long scale(long value, long digits) {
+        return value == 0 ? 0 : value * POWERS_OF_TEN[(int) digits];
+    }
+}
@@ -0,0 +1,84 @@
+package io.github.aangiel.rpn.impl;
+
+import io.github.aangiel.rpn.CompiledExpression;
+import io.github.aangiel.rpn.context.interfaces.ScopedContext;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled equation of {@link ScopedContext}, which applies settings of the context around every evaluation,
+ * also when evaluated outside of calculator.
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+final class ScopedExpression<T extends Number> implements CompiledExpression<T>, MeasuredExpression {
+
+    private final CompiledExpression<T> expression;
+    private final ScopedContext context;
+
+    ScopedExpression(CompiledExpression<T> expression, ScopedContext context) {
+        this.expression = expression;
+        this.context = context;
+    }
+
+    @Override
+    public T evaluate() {
+        var scope = context.enter();
+        try {
+            return expression.evaluate();
+        } finally {
+            scope.close();
+        }
+    }
+
+    @Override
+    public T evaluate(List<? extends T> values) {
+        var scope = context.enter();
+        try {
+            return expression.evaluate(values);
+        } finally {
+            scope.close();
+        }
+    }
+
+    @Override
+    public T evaluate(Map<String, ? extends T> values) {
+        var scope = context.enter();
+        try {
+            return expression.evaluate(values);
+        } finally {
+            scope.close();
+        }
+    }
+
+    @Override
+    public List<String> getVariables() {
+        return expression.getVariables();
+    }
+
+    @Override
+    public int getVariableIndex(String name) {
+        return expression.getVariableIndex(name);
+    }
+
+    @Override
+    public String getEquation() {
+        return expression.getEquation();
+    }
+
+    @Override
+    public int getTokenCount() {
+        return expression instanceof MeasuredExpression ? ((MeasuredExpression) expression).getTokenCount() : 0;
+    }
+
+    @Override
+    public int getMaxStackDepth() {
+        return expression instanceof MeasuredExpression ? ((MeasuredExpression) expression).getMaxStackDepth() : 0;
+    }
+
+    @Override
+    public String toString() {
+        return expression.toString();
+    }
+}
@@ -0,0 +1,191 @@
+package io.github.aangiel.rpn.impl;
+
+import org.apache.commons.lang3.math.NumberUtils;
+
+/**
+ * Single pass scanner of equation. It walks the equation once, splitting it on whitespace and classifying
+ * each token as number or name of function or operator while scanning it, so no intermediate array or
+ * {@link String} is created to find out what token is.
+ * <p>
+ * Plain decimal numbers (e.g. {@code -0.5}, {@code 5e-8}, {@code .5}) are recognized by the scanner itself.
+ * Only unusual forms accepted by {@link NumberUtils#isCreatable(String)} (hexadecimal, octal or with type
+ * suffix like {@code 1L}) are checked with it, so classification stays the same as before.
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+final class Tokenizer {
+
+    private static final String[] ASCII = new String[128];
+
+    static {
+        for (char c = 0; c < ASCII.length; c++)
+            ASCII[c] = String.valueOf(c);
+    }
+
+    // States of number recognition
+    private static final int START = 0;
+    private static final int SIGN = 1;
+    private static final int INTEGER = 2;
+    private static final int DOT = 3;
+    private static final int FRACTION = 4;
+    private static final int EXPONENT = 5;
+    private static final int EXPONENT_SIGN = 6;
+    private static final int EXPONENT_DIGITS = 7;
+    private static final int LEADING_ZERO = 8;
+    private static final int UNUSUAL = 9;
+    private static final int NAME = 10;
+
+    private final CharSequence equation;
+    private final int end;
+    private int position;
+    private int tokenStart;
+    private int tokenEnd;
+    private int state;
+
+    Tokenizer(CharSequence equation, int start, int end) {
+        this.equation = equation;
+        this.position = start;
+        this.end = end;
+    }
+
+    Tokenizer(CharSequence equation) {
+        this(equation, 0, equation.length());
+    }
+
+    /**
+     * Moves to next token.
+     *
+     * @return false if there are no more tokens
+     */
+    boolean next() {
+        while (position < end && isWhitespace(equation.charAt(position)))
+            position++;
+        if (position == end)
+            return false;
+
+        tokenStart = position;
+        state = START;
+        char c;
+        while (position < end && !isWhitespace(c = equation.charAt(position))) {
+            state = transition(state, c);
+            position++;
+        }
+        tokenEnd = position;
+        return true;
+    }
+
+    int start() {
+        return tokenStart;
+    }
+
+    int end() {
+        return tokenEnd;
+    }
+
+    /**
+     * @return true if current token is number, like it would be for {@link NumberUtils#isCreatable(String)}
+     */
+    boolean isNumber() {
+        switch (state) {
+            case INTEGER:
+            case FRACTION:
+            case EXPONENT_DIGITS:
+                return true;
+            case LEADING_ZERO:
+            case UNUSUAL:
+                return NumberUtils.isCreatable(text());
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return true if current token is plain decimal number (e.g. {@code -0.5} or {@code 5e-8}) without leading
+     * zeros, which is accepted by {@link java.math.BigDecimal#BigDecimal(String)}
+     */
+    boolean isDecimal() {
+        return state == INTEGER || state == FRACTION || state == EXPONENT_DIGITS;
+    }
+
+    /**
+     * @return current token as String, single ASCII characters (like most of operators) aren't allocated
+     */
+    String text() {
+        if (tokenEnd - tokenStart == 1) {
+            var c = equation.charAt(tokenStart);
+            if (c < ASCII.length)
+                return ASCII[c];
+        }
+        return equation.subSequence(tokenStart, tokenEnd).toString();
+    }
+
+    private int transition(int state, char c) {
+        switch (state) {
+            case START:
+                if (c == '-' || c == '+')
+                    return SIGN;
+                if (c == '0' && isDigitAfterZero())
+                    return LEADING_ZERO;
+                if (isDigit(c))
+                    return INTEGER;
+                if (c == '.')
+                    return DOT;
+                return NAME;
+            case SIGN:
+                if (c == '0' && isDigitAfterZero())
+                    return LEADING_ZERO;
+                if (isDigit(c))
+                    return INTEGER;
+                if (c == '.')
+                    return DOT;
+                return UNUSUAL;
+            case INTEGER:
+                if (isDigit(c))
+                    return INTEGER;
+                if (c == '.')
+                    return FRACTION;
+                if (c == 'e' || c == 'E')
+                    return EXPONENT;
+                return UNUSUAL;
+            case DOT:
+                // Dot without integer part has to be followed by digit
+                if (isDigit(c))
+                    return FRACTION;
+                return UNUSUAL;
+            case FRACTION:
+                if (isDigit(c))
+                    return FRACTION;
+                if (c == 'e' || c == 'E')
+                    return EXPONENT;
+                return UNUSUAL;
+            case EXPONENT:
+                if (c == '-' || c == '+')
+                    return EXPONENT_SIGN;
+                if (isDigit(c))
+                    return EXPONENT_DIGITS;
+                return UNUSUAL;
+            case EXPONENT_SIGN:
+            case EXPONENT_DIGITS:
+                if (isDigit(c))
+                    return EXPONENT_DIGITS;
+                return UNUSUAL;
+            default:
+                return state;
+        }
+    }
+
+    private boolean isDigitAfterZero() {
+        return position + 1 < end && isDigit(equation.charAt(position + 1));
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Same characters as {@code \s} in {@link java.util.regex.Pattern}
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -0,0 +1,115 @@
+package io.github.aangiel.rpn.impl;
+
+import io.github.aangiel.rpn.translation.Messages;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Names of variables declared for compiled equation together with their indexes.
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+final class Variables {
+
+    static final String[] NONE = new String[0];
+
+    private static final Variables EMPTY = new Variables(NONE);
+
+    private final List<String> names;
+    private final Map<String, Integer> indexes;
+
+    private Variables(String[] names) {
+        this.names = Collections.unmodifiableList(Arrays.asList(names.clone()));
+        this.indexes = new HashMap<>();
+        for (int i = 0; i < names.length; i++)
+            if (indexes.put(names[i], i) != null)
+                throw Errors.illegalArgument(Messages.BAD_VARIABLE, names[i]);
+    }
+
+    /**
+     * @param names names of variables
+     * @return variables
+     * @throws NullPointerException     if any name is null
+     * @throws IllegalArgumentException if any name is duplicated, contains whitespace or is a number
+     */
+    static Variables of(String... names) {
+        if (names.length == 0)
+            return EMPTY;
+
+        for (var name : names) {
+            Objects.requireNonNull(name);
+            var tokenizer = new Tokenizer(name);
+            if (!tokenizer.next() || tokenizer.isNumber() || tokenizer.start() != 0 || tokenizer.end() != name.length())
+                throw Errors.illegalArgument(Messages.BAD_VARIABLE, name);
+        }
+        return new Variables(names);
+    }
+
+    int size() {
+        return names.size();
+    }
+
+    List<String> names() {
+        return names;
+    }
+
+    /**
+     * @return index of variable or -1 if there is no such variable
+     */
+    int indexOf(String name) {
+        if (indexes.isEmpty())
+            return -1;
+        return indexes.getOrDefault(name, -1);
+    }
+
+    /**
+     * @return index of variable
+     * @throws IllegalArgumentException if there is no such variable
+     */
+    int resolve(String name) {
+        var index = indexOf(Objects.requireNonNull(name));
+        if (index < 0)
+            throw Errors.illegalArgument(Messages.UNKNOWN_VARIABLE, name);
+        return index;
+    }
+
+    /**
+     * @throws IllegalArgumentException if number of values is different from number of variables
+     */
+    void checkCount(int count) {
+        if (count != names.size())
+            throw Errors.illegalArgument(Messages.WRONG_NUMBER_OF_VARIABLES, count, names.size());
+    }
+
+    /**
+     * @throws NullPointerException     if any of columns is null
+     * @throws IllegalArgumentException if number of columns is wrong or any of them has other length than 'rows'
+     */
+    void checkColumns(double[][] columns, int rows) {
+        checkCount(columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            if (Objects.requireNonNull(columns[i]).length != rows)
+                throw Errors.illegalArgument(Messages.WRONG_COLUMN_LENGTH, names.get(i), columns[i].length, rows);
+        }
+    }
+
+    /**
+     * @return values of variables placed at their indexes in 'values' array
+     * @throws IllegalArgumentException if value of any variable is missing
+     */
+    <T> T[] bind(Map<String, ? extends T> values, T[] array) {
+        Objects.requireNonNull(values);
+        for (int i = 0; i < array.length; i++) {
+            var value = values.get(names.get(i));
+            if (value == null)
+                throw Errors.illegalArgument(Messages.UNBOUND_VARIABLE, names.get(i));
+            array[i] = value;
+        }
+        return array;
+    }
+}
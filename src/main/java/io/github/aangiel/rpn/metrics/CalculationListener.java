@@ -0,0 +1,63 @@
+package io.github.aangiel.rpn.metrics;
+
+import io.github.aangiel.rpn.translation.Messages;
+
+/**
+ * Receives measurements of calculations done by calculator created with this listener
+ * (e.g. {@link io.github.aangiel.rpn.impl.CalculatorImpl#CalculatorImpl(io.github.aangiel.rpn.context.interfaces.CalculatorContext, int, int, CalculationListener)
+ * CalculatorImpl(context, planCacheCapacity, compileThreshold, listener)}). Calculator without listener doesn't
+ * measure anything.
+ * <p>
+ * Methods are called by threads doing calculations, so they have to be thread safe and fast.
+ * Example usage:<br>
+ * <pre>
+ *     CalculationMetrics metrics = new CalculationMetrics();
+ *     Calculator&#60;Double&#62; calculator = new DoubleCalculatorImpl(new DoubleCalculatorContext(), 1024, 10_000, metrics);
+ * </pre>
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ * @see CalculationMetrics
+ */
+public interface CalculationListener {
+
+    /**
+     * Called after successful calculation of equation by {@code calculate} methods of calculator.
+     * Evaluations of compiled expressions returned by {@code compile} aren't reported.
+     *
+     * @param equation      calculated equation
+     * @param tokens        number of tokens of equation
+     * @param maxStackDepth the highest number of values on stack during calculation
+     * @param nanos         time of calculation including compilation, if equation wasn't compiled before
+     */
+    void onCalculation(String equation, int tokens, int maxStackDepth, long nanos);
+
+    /**
+     * Called after every invocation of function or operator, also in compiled expressions returned by
+     * {@code compile}, if {@link #isMeasuringOperators()} is true. Pure functions and operators with constant
+     * arguments are invoked only once, when equation is compiled.
+     *
+     * @param name  name of function or operator
+     * @param nanos time of invocation
+     */
+    void onOperator(String name, long nanos);
+
+    /**
+     * Called when calculation of equation fails.
+     *
+     * @param equation  equation which couldn't be calculated
+     * @param type      type of error, or null if exception was thrown by function or operator
+     * @param exception thrown exception, or null if error was returned by
+     *                  {@link io.github.aangiel.rpn.Calculator#tryCalculate(String) tryCalculate}
+     */
+    void onError(String equation, Messages type, RuntimeException exception);
+
+    /**
+     * Measuring time of every function or operator makes calculations noticeably slower,
+     * so listener can turn it off.
+     *
+     * @return true if {@link #onOperator(String, long)} should be called
+     */
+    default boolean isMeasuringOperators() {
+        return true;
+    }
+}
@@ -0,0 +1,189 @@
+package io.github.aangiel.rpn.metrics;
+
+import io.github.aangiel.rpn.translation.Messages;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link CalculationListener} summing measurements in counters, which can be read at any time.
+ * Counters are {@link LongAdder}s, so calculator shared by many threads doesn't wait on them.
+ * Example usage:<br>
+ * <pre>
+ *     CalculationMetrics metrics = new CalculationMetrics();
+ *     Calculator&#60;Double&#62; calculator = new DoubleCalculatorImpl(new DoubleCalculatorContext(), 1024, 10_000, metrics);
+ *     calculator.calculate("2 3 +");
+ *     long additions = metrics.getOperatorInvocations("+");
+ * </pre>
+ *
+ * @author <a href="mailto:aangiel@tuta.io">Artur Angiel</a>
+ */
+public final class CalculationMetrics implements CalculationListener {
+
+    private static final Messages[] TYPES = Messages.values();
+
+    private final boolean measuringOperators;
+
+    private final LongAdder calculations = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final LongAdder totalTokens = new LongAdder();
+    private final AtomicLong maxStackDepth = new AtomicLong();
+    private final Map<String, OperatorCounters> operators = new ConcurrentHashMap<>();
+    private final LongAdder[] errors = new LongAdder[TYPES.length];
+    private final LongAdder otherErrors = new LongAdder();
+
+    /**
+     * Creates metrics measuring also every function and operator.
+     */
+    public CalculationMetrics() {
+        this(true);
+    }
+
+    /**
+     * @param measuringOperators false to count only calculations and errors, which is faster
+     */
+    public CalculationMetrics(boolean measuringOperators) {
+        this.measuringOperators = measuringOperators;
+        for (int i = 0; i < errors.length; i++)
+            errors[i] = new LongAdder();
+    }
+
+    @Override
+    public void onCalculation(String equation, int tokens, int maxStackDepth, long nanos) {
+        calculations.increment();
+        totalNanos.add(nanos);
+        totalTokens.add(tokens);
+        // Reading first avoids writes to shared field, when maximum doesn't change
+        if (nanos > maxNanos.get())
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        if (maxStackDepth > this.maxStackDepth.get())
+            this.maxStackDepth.accumulateAndGet(maxStackDepth, Math::max);
+    }
+
+    @Override
+    public void onOperator(String name, long nanos) {
+        var counters = operators.get(name);
+        if (counters == null)
+            counters = operators.computeIfAbsent(name, key -> new OperatorCounters());
+        counters.invocations.increment();
+        counters.nanos.add(nanos);
+    }
+
+    @Override
+    public void onError(String equation, Messages type, RuntimeException exception) {
+        if (type == null)
+            otherErrors.increment();
+        else
+            errors[type.ordinal()].increment();
+    }
+
+    @Override
+    public boolean isMeasuringOperators() {
+        return measuringOperators;
+    }
+
+    /**
+     * @return number of successful calculations
+     */
+    public long getCalculations() {
+        return calculations.sum();
+    }
+
+    /**
+     * @return sum of times of successful calculations, in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * @return the longest time of successful calculation, in nanoseconds
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * @return average time of successful calculation in nanoseconds, or 0 if there were no calculations
+     */
+    public double getAverageNanos() {
+        var count = calculations.sum();
+        return count == 0 ? 0.0 : (double) totalNanos.sum() / count;
+    }
+
+    /**
+     * @return sum of numbers of tokens of successfully calculated equations
+     */
+    public long getTotalTokens() {
+        return totalTokens.sum();
+    }
+
+    /**
+     * @return the highest number of values on stack during successful calculation
+     */
+    public long getMaxStackDepth() {
+        return maxStackDepth.get();
+    }
+
+    /**
+     * @return names of all invoked functions and operators, sorted
+     */
+    public Set<String> getOperatorNames() {
+        return Collections.unmodifiableSet(new TreeSet<>(operators.keySet()));
+    }
+
+    /**
+     * @param name name of function or operator
+     * @return number of invocations of function or operator
+     */
+    public long getOperatorInvocations(String name) {
+        var counters = operators.get(name);
+        return counters == null ? 0 : counters.invocations.sum();
+    }
+
+    /**
+     * @param name name of function or operator
+     * @return sum of times of all invocations of function or operator, in nanoseconds
+     */
+    public long getOperatorNanos(String name) {
+        var counters = operators.get(name);
+        return counters == null ? 0 : counters.nanos.sum();
+    }
+
+    /**
+     * @param type type of error, or null for exceptions thrown by functions or operators
+     * @return number of failed calculations with given type of error
+     */
+    public long getErrors(Messages type) {
+        return type == null ? otherErrors.sum() : errors[type.ordinal()].sum();
+    }
+
+    /**
+     * @return number of all failed calculations
+     */
+    public long getErrors() {
+        var sum = otherErrors.sum();
+        for (var counter : errors)
+            sum += counter.sum();
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CalculationMetrics[calculations=%d, totalNanos=%d, maxNanos=%d, totalTokens=%d, " +
+                        "maxStackDepth=%d, operators=%d, errors=%d]",
+                getCalculations(), getTotalNanos(), getMaxNanos(), getTotalTokens(), getMaxStackDepth(),
+                operators.size(), getErrors());
+    }
+
+    private static final class OperatorCounters {
+        private final LongAdder invocations = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+    }
+}
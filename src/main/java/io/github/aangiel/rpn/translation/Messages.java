@@ -3,5 +3,7 @@ package io.github.aangiel.rpn.translation;
 import io.github.aangiel.translator.MessageTranslator;
 
 public enum Messages implements MessageTranslator {
-    EMPTY_EQUATION, LEFT_ON_STACK, LACK_OF_ARGUMENTS, BAD_ITEM, UNSUPPORTED_TYPE
+    EMPTY_EQUATION, LEFT_ON_STACK, LACK_OF_ARGUMENTS, BAD_ITEM, UNSUPPORTED_TYPE,
+    BAD_VARIABLE, UNKNOWN_VARIABLE, UNBOUND_VARIABLE, WRONG_NUMBER_OF_VARIABLES, WRONG_COLUMN_LENGTH,
+    EXECUTOR_FULL, UNKNOWN_CALCULATOR, LEFT_ON_STACK_COUNT
 }
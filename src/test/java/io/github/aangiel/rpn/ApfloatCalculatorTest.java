@@ -1,14 +1,20 @@
 package io.github.aangiel.rpn;
 
 import io.github.aangiel.rpn.concurrent.CalculatorCallable;
+import io.github.aangiel.rpn.context.impl.ApfloatCalculatorContext;
+import io.github.aangiel.rpn.context.impl.DerivedCalculatorContext;
+import io.github.aangiel.rpn.context.operators.Operator;
+import io.github.aangiel.rpn.impl.CalculatorImpl;
 import io.github.aangiel.rpn.translation.Languages;
 import io.github.aangiel.rpn.translation.Messages;
 import io.github.aangiel.translator.MessageTranslator;
 import org.apfloat.Apfloat;
+import org.apfloat.ApfloatContext;
 import org.apfloat.ApfloatMath;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.*;
@@ -16,6 +22,7 @@ import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
 
 public class ApfloatCalculatorTest {
@@ -226,7 +233,7 @@ public class ApfloatCalculatorTest {
 
     @Test
     public void calculateCompareAvailableFunctions() {
-        var functions = Set.of("logWithBase", "**", "log", "atanh", "copySign", "cos", "agm", "multiplySubtract", "atan", "cbrt", "tanh", "−", "min", "multiplyAdd", "sqrt", "×", "sin", "pow", "exp", "frac", "^", "atan2", "tan", "fun2", "sinh", "max", "e", "acosh", "*", "toDegrees", "+", "acos", "toRadians", "fmod", "-", "/", "cosh", "abs", "negate", "w", "÷", "pi", "asin", "asinh", "gamma", "fun");
+        var functions = Set.of("logWithBase", "**", "log", "atanh", "copySign", "cos", "agm", "multiplySubtract", "atan", "cbrt", "tanh", "−", "min", "multiplyAdd", "sqrt", "×", "sin", "pow", "exp", "frac", "^", "atan2", "tan", "fun2", "sinh", "max", "e", "acosh", "*", "toDegrees", "+", "acos", "toRadians", "fmod", "-", "/", "cosh", "abs", "negate", "w", "÷", "pi", "ln2", "ln10", "euler", "asin", "asinh", "gamma", "fun");
         assertEquals(functions, calculator.getContext().getAvailableFunctionsAndOperators());
     }
 
@@ -234,8 +241,49 @@ public class ApfloatCalculatorTest {
     public void calculateConstants() {
         assertEquals(new Apfloat(6.283185307), calculator.calculate("pi 2 *"));
         assertEquals(new Apfloat(3.141592653), calculator.calculate("pi"));
-        assertEquals(new Apfloat(Math.E), calculator.calculate("e"));
+        assertEquals(new Apfloat("2.718281828"), calculator.calculate("e"));
         assertEquals(new Apfloat("1.359140914"), calculator.calculate("e 2 /"));
+        assertEquals(new Apfloat("0.6931471805"), calculator.calculate("ln2"));
+        assertEquals(new Apfloat("2.302585092"), calculator.calculate("ln10"));
+        assertEquals(new Apfloat("0.5772156649"), calculator.calculate("euler"));
+    }
+
+    @Test
+    public void calculateConstantsWithHighPrecision() {
+        var highPrecision = new CalculatorImpl<>(new ApfloatCalculatorContext(40));
+        // The last digit of apfloat calculation isn't guaranteed to be exact
+        assertEquals(new Apfloat("3.14159265358979323846264338327950288419", 39), highPrecision.calculate("pi").precision(39));
+        assertEquals(new Apfloat("2.71828182845904523536028747135266249775", 39), highPrecision.calculate("e").precision(39));
+        assertEquals(new Apfloat("0.693147180559945309417232121458176568075", 39), highPrecision.calculate("ln2").precision(39));
+        assertEquals(new Apfloat("2.30258509299404568401799145468436420760", 39), highPrecision.calculate("ln10").precision(39));
+        assertEquals(new Apfloat("0.577215664901532860606512090082402431042", 39), highPrecision.calculate("euler").precision(39));
+        var euler = highPrecision.getContext().getFunctionOrOperator("euler").orElseThrow();
+        assertSame(euler.apply(new LinkedList<>()), euler.apply(new LinkedList<>()));
+    }
+
+    @Test
+    public void calculateWithApfloatContext() {
+        var settings = (ApfloatContext) ApfloatContext.getGlobalContext().clone();
+        settings.setDefaultRadix(2);
+        settings.setNumberOfProcessors(3);
+        var context = new ApfloatCalculatorContext(20, settings);
+        context.addImpureOperator("processors", Operator.constant(() -> new Apfloat(ApfloatContext.getContext().getNumberOfProcessors())));
+        var binary = new CalculatorImpl<>(context);
+
+        assertEquals(2, binary.calculate("101 1 +").radix());
+        assertEquals(new Apfloat(6), binary.calculate("101 1 +").toRadix(10));
+        assertEquals(new Apfloat(3), binary.calculate("processors").toRadix(10));
+        assertEquals(2, binary.calculate("= 101 1 +", 2, 7).radix());
+        assertEquals(2, binary.tryCalculate("101 1 +").getValue().radix());
+        // Compiled equation applies settings when evaluated outside of calculator
+        var expression = binary.compile("x 1 +", "x");
+        assertEquals(2, expression.evaluate(List.of(new Apfloat(5, 20, 2))).radix());
+        assertEquals(2, new CalculatorImpl<>(DerivedCalculatorContext.of(context)).calculate("101").radix());
+
+        // Settings are applied only around calculations
+        assertEquals(null, ApfloatContext.getThreadContext());
+        assertEquals(10, calculator.calculate("101 1 +").radix());
+        assertEquals(new Apfloat(102), calculator.calculate("101 1 +"));
     }
 
 //    @Test
@@ -1,6 +1,11 @@
 package io.github.aangiel.rpn;
 
 import io.github.aangiel.rpn.concurrent.CalculatorCallable;
+import io.github.aangiel.rpn.context.impl.BigDecimalCalculatorContext;
+import io.github.aangiel.rpn.context.impl.DerivedCalculatorContext;
+import io.github.aangiel.rpn.context.impl.ScalePolicy;
+import io.github.aangiel.rpn.context.operators.Operator;
+import io.github.aangiel.rpn.impl.CalculatorImpl;
 import io.github.aangiel.rpn.translation.Languages;
 import io.github.aangiel.rpn.translation.Messages;
 import io.github.aangiel.translator.MessageTranslator;
@@ -8,18 +13,23 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.math.BigDecimal;
+import java.math.MathContext;
 import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 
 public class BigDecimalCalculatorTest {
 
@@ -45,6 +55,52 @@ public class BigDecimalCalculatorTest {
         calculator.getContext().addFunctionOrOperator("×", a -> a.remove(1).multiply(a.pop()));
     }
 
+    @Test
+    public void generateBytecode() {
+        var interpreted = new CalculatorImpl<>(new BigDecimalCalculatorContext(), 0, Integer.MAX_VALUE);
+        var generated = new CalculatorImpl<>(new BigDecimalCalculatorContext(), 0, 0);
+        for (var context : List.of(interpreted.getContext(), generated.getContext())) {
+            context.addTernaryOperator("multiplyAdd", (a, b, c) -> a.multiply(b).add(c));
+            context.addUnaryOperator("negate", BigDecimal::negate);
+            context.addNaryOperator("sum", 4, args -> args.stream().reduce(BigDecimal.ZERO, BigDecimal::add));
+            context.addFunctionOrOperator("×", a -> a.remove(1).multiply(a.pop()));
+        }
+
+        var equations = List.of("12 2 3 4 * 10 5 / + * +", "x y * 3 / pi + negate", "x y 3 multiplyAdd e x y sum", "x y × 1 +");
+        for (var equation : equations) {
+            var expected = interpreted.compile(equation, "x", "y");
+            var actual = generated.compile(equation, "x", "y");
+            for (int x = -3; x <= 3; x++) {
+                var values = List.of(BigDecimal.valueOf(x), new BigDecimal("2.5"));
+                assertEquals(expected.evaluate(values), actual.evaluate(values));
+                assertEquals(expected.evaluate(values), actual.evaluate(values));
+            }
+        }
+
+        // Exceptions thrown by operators are the same
+        ArithmeticException expectedException = assertThrows(ArithmeticException.class, () -> interpreted.compile("1 x /", "x").evaluate(List.of(BigDecimal.ZERO)));
+        ArithmeticException actualException = assertThrows(ArithmeticException.class, () -> generated.compile("1 x /", "x").evaluate(List.of(BigDecimal.ZERO)));
+        assertEquals(expectedException.getMessage(), actualException.getMessage());
+        IllegalArgumentException leftException = assertThrows(IllegalArgumentException.class, () -> generated.calculate("1 2"));
+        assertEquals("Left on stack: [1]", leftException.getMessage());
+    }
+
+    @Test
+    public void optimizeEquation() {
+        var optimized = new CalculatorImpl<>(new BigDecimalCalculatorContext(), 0);
+        var calls = new AtomicInteger();
+        optimized.getContext().addImpureOperator("next", Operator.constant(() -> BigDecimal.valueOf(calls.incrementAndGet())));
+
+        var angle = new BigDecimal(2).multiply(BigDecimal.valueOf(Math.PI)).divide(new BigDecimal(360), RoundingMode.CEILING);
+        var expression = optimized.compile("2 pi * 360 / x + next next + +", "x");
+        assertEquals(angle.add(BigDecimal.TEN), expression.evaluate(List.of(new BigDecimal(7))));
+        assertEquals(angle.add(BigDecimal.valueOf(17)), expression.evaluate(List.of(new BigDecimal(10))));
+
+        // Division by zero isn't folded, so it throws at evaluation
+        var division = optimized.compile("1 0 /");
+        assertThrows(ArithmeticException.class, division::evaluate);
+    }
+
     @Test
     public void calculateCorrectEquations() {
         assertEquals(new BigDecimal(14), calculator.calculate("5 1 2 + 4 * + 3 -"));
@@ -165,7 +221,8 @@ public class BigDecimalCalculatorTest {
 
     @Test
     public void calculateCompareAvailableFunctions() {
-        Set<String> functions = Set.of("**", "fun2", "e", "*", "+", "-", "/", "−", "÷", "×", "pi", "^", "fun");
+        Set<String> functions = Set.of("**", "fun2", "e", "*", "+", "-", "/", "−", "÷", "×", "pi", "^", "fun",
+                "atan", "cos", "exp", "log", "pow", "sin", "sqrt");
         assertEquals(functions, calculator.getContext().getAvailableFunctionsAndOperators());
     }
 
@@ -177,6 +234,246 @@ public class BigDecimalCalculatorTest {
         assertEquals(new BigDecimal("1.359140914229523"), calculator.calculate("e 2 /"));
     }
 
+    @Test
+    public void calculateCharSequence() {
+        var message = new StringBuilder("equation: 12 2 3 4 * 10 5 / + * + ;");
+        assertEquals(new BigDecimal(40), calculator.calculate(message, 10, 24));
+        assertEquals(new BigDecimal(40), calculator.calculate(message.toString().toCharArray(), 10, 24));
+        assertEquals(new BigDecimal(14), calculator.calculate(new StringBuilder("5 1 2 + 4 * + 3 -")));
+        assertEquals(new BigDecimal("6.283185307179586"), calculator.calculate(new StringBuilder("pi 2 *")));
+        assertEquals(new BigDecimal(24), calculator.calculate(new StringBuilder("1 2 3 fun 4 ×")));
+        assertEquals(new BigDecimal(3), calculator.calculate(new StringBuilder("9 1 2 3 fun −")));
+
+        // Errors are reported the same way as for String
+        IllegalArgumentException badItem = assertThrows(IllegalArgumentException.class, () -> calculator.calculate(message, 0, 12));
+        assertEquals("Bad item: 'equation:' at position: 1", badItem.getMessage());
+        ArithmeticException lack = assertThrows(ArithmeticException.class, () -> calculator.calculate(new StringBuilder("1 +")));
+        assertEquals("Lack of arguments for: + at position: 2", lack.getMessage());
+        IllegalArgumentException left = assertThrows(IllegalArgumentException.class, () -> calculator.calculate(new StringBuilder("1 2")));
+        assertEquals("Left on stack: [1]", left.getMessage());
+        assertThrows(IndexOutOfBoundsException.class, () -> calculator.calculate(message, 30, 10));
+        for (var equation : List.of("", "1 0 /", "1 0 / 2 bad", "1 0 / +", "1 + 2 bad", "1 2 3", "2 1.5e2147483648 +", "0x10 1 +", "1 0 / 2L", "1 ×", "1 2 × bad", "1 0 ÷ 2 +", "1 2 ÷ + +")) {
+            RuntimeException expected = assertThrows(RuntimeException.class, () -> calculator.calculate(equation));
+            RuntimeException actual = assertThrows(RuntimeException.class, () -> calculator.calculate(new StringBuilder(equation)));
+            assertEquals(expected.getClass(), actual.getClass());
+            assertEquals(expected.getMessage(), actual.getMessage());
+        }
+    }
+
+    @Test
+    public void calculateWithDerivedContext() {
+        var base = new BigDecimalCalculatorContext(RoundingMode.DOWN);
+        var tenant = DerivedCalculatorContext.of(base);
+        tenant.addUnaryOperator("vat", a -> a.multiply(new BigDecimal("1.23")));
+        tenant.addBinaryOperator("-", (a, b) -> b.subtract(a));
+        var tenantCalculator = new CalculatorImpl<>(tenant);
+
+        assertEquals(new BigDecimal("123.00"), tenantCalculator.calculate("100 vat"));
+        assertEquals(new BigDecimal(7), tenantCalculator.calculate("3 10 -"));
+        assertEquals(new BigDecimal(-7), new CalculatorImpl<>(base).calculate("3 10 -"));
+        assertEquals(Set.of("vat", "-"), tenant.getOwnFunctionsAndOperators());
+        assertTrue(tenant.getAvailableFunctionsAndOperators().containsAll(base.getAvailableFunctionsAndOperators()));
+        assertThrows(IllegalArgumentException.class, () -> new CalculatorImpl<>(base).calculate("100 vat"));
+
+        // Functions added to base context later are visible in derived ones, also in already compiled equations
+        assertEquals(new BigDecimal(13), tenantCalculator.calculate("10 3 +"));
+        base.addBinaryOperator("+", BigDecimal::max);
+        assertEquals(BigDecimal.TEN, tenantCalculator.calculate("10 3 +"));
+
+        // Context derived many times looks up only in itself and the first base
+        var derived = DerivedCalculatorContext.of(tenant);
+        for (int i = 0; i < 100; i++)
+            derived = DerivedCalculatorContext.of(derived);
+        derived.addConstant("ten", () -> BigDecimal.TEN);
+        assertSame(base, derived.getBase());
+        assertEquals(Set.of("vat", "-", "ten"), derived.getOwnFunctionsAndOperators());
+        assertEquals(new BigDecimal("12.30"), new CalculatorImpl<>(derived).calculate("ten vat 5 +"));
+        assertThrows(IllegalArgumentException.class, () -> tenantCalculator.calculate("ten vat"));
+    }
+
+    @Test
+    public void validateEquation() {
+        var calls = new AtomicInteger();
+        var context = new BigDecimalCalculatorContext();
+        context.addUnaryOperator("count", a -> {
+            calls.incrementAndGet();
+            return a;
+        });
+        var validated = new CalculatorImpl<>(context);
+
+        assertTrue(validated.validate("1 2 + count").isEmpty());
+        assertTrue(validated.validate("x y * count", "x", "y").isEmpty());
+        assertEquals(0, calls.get());
+
+        var badItem = validated.validate("12 2 3 sinx 4 * 10 5 / + * +").orElseThrow();
+        assertEquals(Messages.BAD_ITEM, badItem.getType());
+        assertEquals(4, badItem.getPosition());
+        assertEquals("Bad item: 'sinx' at position: 4", badItem.getMessage());
+
+        var lack = validated.validate("12 * 2 3 4 * 10 5 / + * +").orElseThrow();
+        assertEquals(Messages.LACK_OF_ARGUMENTS, lack.getType());
+        assertEquals(2, lack.getPosition());
+        assertEquals("Lack of arguments for: * at position: 2", lack.getMessage());
+
+        var left = validated.validate("1 2 3 +").orElseThrow();
+        assertEquals(Messages.LEFT_ON_STACK, left.getType());
+        assertEquals("Number of values left on stack: 1", left.getMessage());
+        var leftValues = validated.validate("7 8 9").orElseThrow();
+        assertEquals(Messages.LEFT_ON_STACK, leftValues.getType());
+        assertEquals("Number of values left on stack: 2", leftValues.getMessage());
+        assertEquals("Left on stack: [8, 7]", assertThrows(IllegalArgumentException.class, () -> validated.calculate("7 8 9")).getMessage());
+
+        assertEquals(Messages.EMPTY_EQUATION, validated.validate("  ").orElseThrow().getType());
+        assertEquals(Messages.BAD_ITEM, validated.validate("x z +", "x").orElseThrow().getType());
+    }
+
+    @Test
+    public void tryCalculateEquation() {
+        var context = new BigDecimalCalculatorContext();
+        context.addFunctionOrOperator("minus", a -> a.remove(1).subtract(a.pop()));
+        var tried = new CalculatorImpl<>(context);
+
+        for (int i = 0; i < 2; i++) {
+            var result = tried.tryCalculate("5 1 2 + 4 * + 3 -");
+            assertTrue(result.isSuccess());
+            assertEquals(new BigDecimal(14), result.getValue());
+        }
+        assertEquals(1, tried.getPlanCacheStats().getHits());
+
+        var badItem = tried.tryCalculate("12 2 3 sinx 4 * 10 5 / + * +");
+        assertEquals(Messages.BAD_ITEM, badItem.getError().getType());
+        assertEquals(4, badItem.getError().getPosition());
+        assertEquals("Bad item: 'sinx' at position: 4", badItem.getError().getMessage());
+        assertThrows(NoSuchElementException.class, badItem::getValue);
+
+        var lack = tried.tryCalculate("12 * 2 3 4 * 10 5 / + * +");
+        assertEquals(Messages.LACK_OF_ARGUMENTS, lack.getError().getType());
+        assertEquals(2, lack.getError().getPosition());
+        assertEquals(Messages.LEFT_ON_STACK, tried.tryCalculate("1 2").getError().getType());
+        assertEquals(Messages.EMPTY_EQUATION, tried.tryCalculate("").getError().getType());
+
+        // Tokens looking like numbers, which context can't create, are bad items
+        var hexadecimal = tried.tryCalculate("0x10 1 +");
+        assertEquals(Messages.BAD_ITEM, hexadecimal.getError().getType());
+        assertEquals("Bad item: '0x10' at position: 1", hexadecimal.getError().getMessage());
+        assertEquals("Bad item: '3f' at position: 2", tried.tryCalculate("2 3f +").getError().getMessage());
+        IllegalArgumentException badNumber = assertThrows(IllegalArgumentException.class, () -> tried.calculate("1 2L +"));
+        assertEquals("Bad item: '2L' at position: 2", badNumber.getMessage());
+        assertTrue(badNumber.getCause() instanceof NumberFormatException);
+
+        // Lack of arguments for legacy operator is found only while evaluating
+        var legacyLack = tried.tryCalculate("1 minus");
+        assertEquals(Messages.LACK_OF_ARGUMENTS, legacyLack.getError().getType());
+        assertEquals(2, legacyLack.getError().getPosition());
+        assertEquals(new BigDecimal(-1), tried.tryCalculate("1 2 minus").getValue());
+
+        // Exceptions thrown by functions or operators aren't errors of equation
+        assertThrows(ArithmeticException.class, () -> tried.tryCalculate("1 0 /"));
+    }
+
+    @Test
+    public void calculateScaledDecimals() {
+        for (var roundingMode : List.of(RoundingMode.HALF_EVEN, RoundingMode.DOWN, RoundingMode.CEILING)) {
+            var scaled = new CalculatorImpl<>(new BigDecimalCalculatorContext(roundingMode));
+            var equations = List.of("0.1 0.2 +", "1.50 2 *", "10 3 /", "-10.00 3 /", "1E+3 0.001 -", "12.5 .5 / 1. +",
+                    "9223372036854775807 10 *", "999999999999999999 1 + 0.1 *", "123456789012345678901234567890 2 /",
+                    "5e-8 2 * pi +");
+            for (var equation : equations) {
+                var expected = scaled.compile(equation).evaluate();
+                var actual = scaled.calculate(new StringBuilder(equation));
+                assertEquals(equation, expected, actual);
+                assertEquals(equation, expected.scale(), actual.scale());
+            }
+        }
+        assertEquals(new BigDecimal("0.30"), calculator.calculate(new StringBuilder("0.1 0.20 +")));
+        assertEquals(new BigDecimal("92233720368547758070"), calculator.calculate(new StringBuilder("9223372036854775807 10 *")));
+
+        // Exceptions are thrown by BigDecimal itself
+        ArithmeticException expected = assertThrows(ArithmeticException.class, () -> calculator.compile("1 0 /").evaluate());
+        ArithmeticException actual = assertThrows(ArithmeticException.class, () -> calculator.calculate(new StringBuilder("1 0 /")));
+        assertEquals(expected.getMessage(), actual.getMessage());
+        var unnecessary = new CalculatorImpl<>(new BigDecimalCalculatorContext(RoundingMode.UNNECESSARY));
+        assertEquals(new BigDecimal(5), unnecessary.calculate(new StringBuilder("10 2 /")));
+        assertThrows(ArithmeticException.class, () -> unnecessary.calculate(new StringBuilder("10 3 /")));
+    }
+
+    @Test
+    public void calculateWithMathContext() {
+        var chain = new StringBuilder("1.01");
+        for (int i = 0; i < 500; i++)
+            chain.append(" 1.01 *");
+
+        var exact = new CalculatorImpl<>(new BigDecimalCalculatorContext(RoundingMode.HALF_UP));
+        assertEquals(1002, exact.calculate(chain.toString()).scale());
+
+        var decimal64 = new CalculatorImpl<>(new BigDecimalCalculatorContext(MathContext.DECIMAL64));
+        var bounded = decimal64.calculate(chain.toString());
+        assertTrue(bounded.precision() <= 16);
+        assertTrue(bounded.subtract(exact.calculate(chain.toString())).abs().compareTo(new BigDecimal("1E-9")) < 0);
+        assertEquals(new BigDecimal("0.3333333333333333"), decimal64.calculate("1 3 /"));
+
+        var money = new CalculatorImpl<>(new BigDecimalCalculatorContext(MathContext.DECIMAL64, ScalePolicy.fixedScale(2)));
+        assertEquals(new BigDecimal("3.33"), money.calculate("10 3 /"));
+        assertEquals(new BigDecimal("1.02"), money.calculate("1.015 1 *"));
+        assertEquals(2, money.calculate(chain.toString()).scale());
+        // Numbers in equations keep their scale
+        assertEquals(new BigDecimal("1.005"), money.calculate("1.005"));
+        // Results are rounded once, not rounded to precision and then to scale
+        assertEquals(new BigDecimal("1.13"), money.calculate("0.13499999999999999 1 +"));
+        assertEquals(new BigDecimal("0.13"), money.calculate("0.13499999999999999 1 *"));
+        var exactMoney = new CalculatorImpl<>(new BigDecimalCalculatorContext(new MathContext(0, RoundingMode.HALF_UP), ScalePolicy.fixedScale(2)));
+        assertEquals(new BigDecimal("0.33"), exactMoney.calculate("1 3 /"));
+        assertEquals(new BigDecimal("3.33"), exactMoney.calculate("10 3 /"));
+        assertEquals(new BigDecimal("0.67"), exactMoney.calculate("2 3 /"));
+        assertEquals(new BigDecimal("1.13"), exactMoney.calculate("0.13499999999999999 1 +"));
+
+        var stripped = new CalculatorImpl<>(new BigDecimalCalculatorContext(new MathContext(0, RoundingMode.DOWN), ScalePolicy.stripTrailingZeros()));
+        assertEquals(new BigDecimal("3"), stripped.calculate("1.50 2 *"));
+        assertEquals(new BigDecimal("3"), stripped.calculate("10 3 /"));
+
+        var precise = new CalculatorImpl<>(new BigDecimalCalculatorContext(new MathContext(0, RoundingMode.HALF_EVEN), ScalePolicy.maxPrecision(3)));
+        assertEquals(new BigDecimal("1.23"), precise.calculate("1.2345 1 *"));
+        assertEquals(new BigDecimal("1.23E+3"), precise.calculate("1234 1 -"));
+        assertEquals(new BigDecimal("3.33"), precise.calculate("10 3 /"));
+        var limited = new CalculatorImpl<>(new BigDecimalCalculatorContext(new MathContext(5, RoundingMode.HALF_EVEN), ScalePolicy.maxPrecision(3)));
+        assertEquals(new BigDecimal("0.999"), limited.calculate("0.999495 0.0000001 +"));
+        assertEquals(RoundingMode.HALF_EVEN, ((BigDecimalCalculatorContext) precise.getContext()).getRoundingMode());
+        assertThrows(IllegalArgumentException.class, () -> ScalePolicy.maxPrecision(0));
+    }
+
+    @Test
+    public void calculateMathFunctions() {
+        var precise = new CalculatorImpl<>(new BigDecimalCalculatorContext(new MathContext(40, RoundingMode.HALF_EVEN)));
+        assertEquals(new BigDecimal("3.141592653589793238462643383279502884197"), precise.calculate("pi"));
+        assertEquals(new BigDecimal("2.718281828459045235360287471352662497757"), precise.calculate("e"));
+        assertEquals(new BigDecimal("1.41421356237309504880168872420969807857"), precise.calculate("2 sqrt"));
+        assertEquals(new BigDecimal("2.302585092994045684017991454684364207601"), precise.calculate("10 log"));
+        assertEquals(new BigDecimal("1.414213562373095048801688724209698078570"), precise.calculate("2 0.5 pow"));
+        assertEquals(new BigDecimal("0.1353352832366126918939994949724844034076"), precise.calculate("-2 exp"));
+        assertEquals(new BigDecimal("0.8414709848078965066525023216302989996226"), precise.calculate("1 sin"));
+        assertEquals(new BigDecimal("0.8623188722876839341019385139508425355101"), precise.calculate("100 cos"));
+        assertEquals(new BigDecimal("3.141592653589793238462643383279502884197"), precise.calculate("1 atan 4 *"));
+        assertEquals(new BigDecimal("1024"), precise.calculate("2 10 pow"));
+        assertThrows(ArithmeticException.class, () -> precise.calculate("0 log"));
+        assertThrows(ArithmeticException.class, () -> precise.calculate("-2 0.5 pow"));
+
+        // Arguments for which logarithm or reduced argument of sin and cos is close to 0 keep relative precision
+        var decimal64 = new CalculatorImpl<>(new BigDecimalCalculatorContext(MathContext.DECIMAL64));
+        assertEquals(new BigDecimal("-1.234567900000000E-19"), decimal64.calculate("0.99999999999999999987654321 log"));
+        assertEquals(new BigDecimal("2.643383279502884E-21"), decimal64.calculate("3.14159265358979323846 sin"));
+        assertEquals(new BigDecimal("-4.769252867665590E-16"), decimal64.calculate("6.283185307179586 sin"));
+        assertEquals(new BigDecimal("3.132169163975144E-20"), decimal64.calculate("1.5707963267948966192 cos"));
+        // Reducing arguments with more than 1000 integer digits would need as many digits of pi
+        assertEquals(new BigDecimal("0.3758933775522271"), decimal64.calculate("1e999 sin"));
+        assertThrows(ArithmeticException.class, () -> decimal64.calculate("1e1000 cos"));
+        assertThrows(ArithmeticException.class, () -> decimal64.calculate("-1e999999999 sin"));
+
+        // Functions of context with precision 0 have precision of DECIMAL64
+        var context = new BigDecimalCalculatorContext();
+        assertEquals(new MathContext(16, RoundingMode.CEILING), context.getFunctionMathContext());
+        assertEquals(new BigDecimal("1.414213562373096"), new CalculatorImpl<>(context).calculate("2 sqrt"));
+    }
+
     //    @Test
     public void performance() {
 //        multiThread();
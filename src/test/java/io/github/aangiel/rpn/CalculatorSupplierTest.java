@@ -1,5 +1,6 @@
 package io.github.aangiel.rpn;
 
+import io.github.aangiel.rpn.context.impl.BigDecimalCalculatorContext;
 import io.github.aangiel.rpn.translation.Languages;
 import io.github.aangiel.rpn.translation.Messages;
 import io.github.aangiel.translator.MessageTranslator;
@@ -7,7 +8,17 @@ import org.apfloat.Apfloat;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 
 public class CalculatorSupplierTest {
 
@@ -22,4 +33,47 @@ public class CalculatorSupplierTest {
         Calculator<Apfloat> calculator = CalculatorSupplier.INSTANCE.getCalculator(Apfloat.class);
         assertEquals(new Apfloat(14), calculator.calculate("2 *"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void namedCalculators() {
+        var supplier = CalculatorSupplier.INSTANCE;
+        var defaultCalculator = supplier.getCalculator(BigDecimal.class);
+        assertSame(defaultCalculator, supplier.getCalculator(BigDecimal.class, CalculatorSupplier.DEFAULT_NAME));
+
+        supplier.addCalculator(BigDecimal.class, "down", new BigDecimalCalculatorContext(RoundingMode.DOWN));
+        supplier.addCalculator(BigDecimal.class, "up", new BigDecimalCalculatorContext(RoundingMode.UP));
+        try {
+            assertEquals(new BigDecimal("0.6"), supplier.getCalculator(BigDecimal.class, "down").calculate("2.0 3 /"));
+            assertEquals(new BigDecimal("0.7"), supplier.getCalculator(BigDecimal.class, "up").calculate("2.0 3 /"));
+            assertSame(defaultCalculator, supplier.getCalculator(BigDecimal.class));
+            assertEquals(Set.of(CalculatorSupplier.DEFAULT_NAME, "down", "up"), supplier.getCalculatorNames(BigDecimal.class));
+
+            var exception = assertThrows(IllegalArgumentException.class, () -> supplier.getCalculator(BigDecimal.class, "other"));
+            assertEquals("Unknown calculator: 'other' for type: class java.math.BigDecimal", exception.getMessage());
+        } finally {
+            assertTrue(supplier.removeCalculator(BigDecimal.class, "down"));
+            assertTrue(supplier.removeCalculator(BigDecimal.class, "up"));
+        }
+        assertFalse(supplier.removeCalculator(BigDecimal.class, "up"));
+        assertEquals(Set.of(CalculatorSupplier.DEFAULT_NAME), supplier.getCalculatorNames(BigDecimal.class));
+        assertThrows(IllegalArgumentException.class, () -> supplier.getCalculator(Long.class));
+    }
+
+    @Test
+    public void addCalculatorsConcurrently() {
+        var supplier = CalculatorSupplier.INSTANCE;
+        var tasks = IntStream.range(0, 100)
+                .mapToObj(i -> CompletableFuture.runAsync(() -> {
+                    var name = "tenant" + i;
+                    supplier.addCalculator(BigDecimal.class, name, new BigDecimalCalculatorContext());
+                    assertEquals(new BigDecimal(i + 1), supplier.getCalculator(BigDecimal.class, name).calculate(i + " 1 +"));
+                    assertEquals(new BigDecimal(4), supplier.getCalculator(BigDecimal.class).calculate("2 2 +"));
+                }))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(tasks).join();
+
+        assertEquals(101, supplier.getCalculatorNames(BigDecimal.class).size());
+        IntStream.range(0, 100).forEach(i -> supplier.removeCalculator(BigDecimal.class, "tenant" + i));
+        assertEquals(Set.of(CalculatorSupplier.DEFAULT_NAME), supplier.getCalculatorNames(BigDecimal.class));
+    }
+}
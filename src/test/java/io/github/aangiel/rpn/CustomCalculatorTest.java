@@ -1,6 +1,7 @@
 package io.github.aangiel.rpn;
 
 import io.github.aangiel.rpn.context.impl.AbstractCalculatorContext;
+import io.github.aangiel.rpn.impl.CalculatorImpl;
 import io.github.aangiel.rpn.translation.Languages;
 import io.github.aangiel.rpn.translation.Messages;
 import io.github.aangiel.translator.MessageTranslator;
@@ -12,6 +13,7 @@ import java.util.Set;
 import java.util.function.Function;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
 
 public class CustomCalculatorTest {
 
@@ -36,6 +38,48 @@ public class CustomCalculatorTest {
         assertEquals(functions, calculator.getContext().getAvailableFunctionsAndOperators());
     }
 
+    @Test
+    public void calculateWithOperatorsOfDeclaredArity() {
+        var context = new BigIntegerContext();
+        context.addConstant("ten", () -> BigInteger.TEN)
+                .addUnaryOperator("negate", BigInteger::negate)
+                .addBinaryOperator("*", BigInteger::multiply)
+                .addTernaryOperator("modPow", BigInteger::modPow)
+                .addNaryOperator("sum4", 4, args -> args.stream().reduce(BigInteger.ZERO, BigInteger::add));
+        var customCalculator = new CalculatorImpl<>(context);
+
+        assertEquals(new BigInteger("-50"), customCalculator.calculate("5 ten * negate"));
+        assertEquals(new BigInteger("4"), customCalculator.calculate("2 10 5 modPow"));
+        assertEquals(new BigInteger("10"), customCalculator.calculate("1 2 3 4 sum4"));
+        assertEquals(new BigInteger("11"), customCalculator.calculate("1 2 3 4 sum4 1 +"));
+
+        ArithmeticException lackOfArguments = assertThrows(ArithmeticException.class, () -> customCalculator.calculate("negate"));
+        assertEquals("Lack of arguments for: negate at position: 1", lackOfArguments.getMessage());
+        ArithmeticException lackOfArgumentsNary = assertThrows(ArithmeticException.class, () -> customCalculator.calculate("1 2 3 sum4"));
+        assertEquals("Lack of arguments for: sum4 at position: 4", lackOfArgumentsNary.getMessage());
+    }
+
+    @Test
+    public void calculateWithPlanCache() {
+        var context = new BigIntegerContext();
+        var cachedCalculator = new CalculatorImpl<>(context, 2);
+
+        assertEquals(new BigInteger("3"), cachedCalculator.calculate("1 2 +"));
+        assertEquals(new BigInteger("3"), cachedCalculator.calculate("1 2 +"));
+        assertEquals(1, cachedCalculator.getPlanCacheStats().getHits());
+        assertEquals(1, cachedCalculator.getPlanCacheStats().getMisses());
+
+        cachedCalculator.calculate("2 2 +");
+        cachedCalculator.calculate("3 2 +");
+        cachedCalculator.calculate("4 2 +");
+        assertEquals(2, cachedCalculator.getPlanCacheStats().getSize());
+        assertEquals(2, cachedCalculator.getPlanCacheStats().getEvictions());
+
+        // Changed context makes cached equations outdated
+        context.addBinaryOperator("+", BigInteger::subtract);
+        assertEquals(new BigInteger("2"), cachedCalculator.calculate("4 2 +"));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void unsupportedType() {
         CalculatorSupplier.INSTANCE.getCalculator(Integer.class);
@@ -1,6 +1,15 @@
 package io.github.aangiel.rpn;
 
+import io.github.aangiel.rpn.concurrent.BulkFileCalculator;
+import io.github.aangiel.rpn.concurrent.CalculatorBatch;
 import io.github.aangiel.rpn.concurrent.CalculatorCallable;
+import io.github.aangiel.rpn.concurrent.CalculatorExecutor;
+import io.github.aangiel.rpn.context.impl.DerivedDoubleCalculatorContext;
+import io.github.aangiel.rpn.context.impl.DoubleCalculatorContext;
+import io.github.aangiel.rpn.context.operators.DoubleOperator;
+import io.github.aangiel.rpn.impl.CalculatorImpl;
+import io.github.aangiel.rpn.impl.DoubleCalculatorImpl;
+import io.github.aangiel.rpn.metrics.CalculationMetrics;
 import io.github.aangiel.rpn.translation.Languages;
 import io.github.aangiel.rpn.translation.Messages;
 import io.github.aangiel.translator.MessageTranslator;
@@ -9,17 +18,35 @@ import org.apfloat.ApfloatMath;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.nio.CharBuffer;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 
 public class DoubleCalculatorTest {
 
@@ -173,6 +200,10 @@ public class DoubleCalculatorTest {
         assertThrows(NullPointerException.class, () -> calculator.calculate(null));
 
         assertEquals(Double.valueOf(2), calculator.calculate("2"));
+        assertEquals(Double.valueOf(5), calculator.calculate(" 2\t3\n+ "));
+
+        IllegalArgumentException blankException = assertThrows(IllegalArgumentException.class, () -> calculator.calculate(" \t "));
+        assertEquals("Empty equation", blankException.getMessage());
     }
 
     @Test
@@ -234,6 +265,449 @@ public class DoubleCalculatorTest {
         assertEquals(Double.valueOf(Math.E / 2.0), calculator.calculate("e 2 /"));
     }
 
+    @Test
+    public void compileOnceEvaluateMany() {
+        CompiledExpression<Double> expression = calculator.compile("5 1 2 + 4 * + 3 -");
+        assertEquals("5 1 2 + 4 * + 3 -", expression.getEquation());
+        assertEquals(Double.valueOf(14), expression.evaluate());
+        assertEquals(Double.valueOf(14), expression.evaluate());
+
+        IllegalArgumentException badItemException = assertThrows(IllegalArgumentException.class, () -> calculator.compile("2 3 sinx"));
+        assertEquals("Bad item: 'sinx' at position: 3", badItemException.getMessage());
+
+        CompiledExpression<Double> lackOfArguments = calculator.compile("2 * 3");
+        ArithmeticException lackOfArgumentsException = assertThrows(ArithmeticException.class, lackOfArguments::evaluate);
+        assertEquals("Lack of arguments for: * at position: 2", lackOfArgumentsException.getMessage());
+    }
+
+    @Test
+    public void calculatePrimitive() {
+        DoubleCalculator doubleCalculator = CalculatorSupplier.INSTANCE.getDoubleCalculator();
+        assertEquals(14.0, doubleCalculator.calculateAsDouble("5 1 2 + 4 * + 3 -"), 0.0);
+        assertEquals(Math.fma(2, 3, 4), doubleCalculator.calculateAsDouble("2 3 4 fma"), 0.0);
+
+        // "**" is added only in boxed version, so it's evaluated on Double values
+        DoubleCompiledExpression boxed = doubleCalculator.compile("5 1 2 ** 4 * + 3 -");
+        assertEquals(10.0, boxed.evaluateAsDouble(), 0.0);
+
+        IllegalArgumentException leftOnStackException = assertThrows(IllegalArgumentException.class, () -> doubleCalculator.calculateAsDouble("1 2 3 +"));
+        assertEquals("Left on stack: [1.0]", leftOnStackException.getMessage());
+    }
+
+    @Test
+    public void compileWithVariables() {
+        DoubleCompiledExpression expression = CalculatorSupplier.INSTANCE.getDoubleCalculator().compile("x 2 * y +", "x", "y");
+        assertEquals(List.of("x", "y"), expression.getVariables());
+        assertEquals(1, expression.getVariableIndex("y"));
+        assertEquals(7.0, expression.evaluateAsDouble(3, 1), 0.0);
+        assertEquals(Double.valueOf(9), expression.evaluate(List.of(4.0, 1.0)));
+        assertEquals(Double.valueOf(11), expression.evaluate(Map.of("x", 5.0, "y", 1.0)));
+
+        // Variables take precedence over constants and are also available for boxed functions
+        CompiledExpression<Double> boxed = calculator.compile("e 2 **", "e");
+        assertEquals(Double.valueOf(18), boxed.evaluate(Map.of("e", 3.0)));
+
+        IllegalArgumentException wrongNumberException = assertThrows(IllegalArgumentException.class, expression::evaluate);
+        assertEquals("Wrong number of variables: 0, expected: 2", wrongNumberException.getMessage());
+        IllegalArgumentException unboundException = assertThrows(IllegalArgumentException.class, () -> expression.evaluate(Map.of("x", 1.0)));
+        assertEquals("No value for variable: 'y'", unboundException.getMessage());
+        IllegalArgumentException unknownException = assertThrows(IllegalArgumentException.class, () -> expression.getVariableIndex("z"));
+        assertEquals("Unknown variable: 'z'", unknownException.getMessage());
+        IllegalArgumentException badVariableException = assertThrows(IllegalArgumentException.class, () -> calculator.compile("x 1 +", "1"));
+        assertEquals("Bad variable name: '1'", badVariableException.getMessage());
+        IllegalArgumentException badItemException = assertThrows(IllegalArgumentException.class, () -> calculator.compile("x z +", "x"));
+        assertEquals("Bad item: 'z' at position: 2", badItemException.getMessage());
+    }
+
+    @Test
+    public void evaluateColumns() {
+        var doubleCalculator = CalculatorSupplier.INSTANCE.getDoubleCalculator();
+        // More rows than in one block and not multiple of it
+        var x = IntStream.range(0, 2500).mapToDouble(i -> i * 0.5).toArray();
+        var y = IntStream.range(0, 2500).mapToDouble(i -> 3 - i).toArray();
+
+        for (var equation : List.of("x y * x y - / pi + 2 sqrt x y fma -", "x 2 ** y +")) {
+            DoubleCompiledExpression expression = doubleCalculator.compile(equation, "x", "y");
+            double[] results = expression.evaluateColumns(x, y);
+            assertEquals(x.length, results.length);
+            for (int i = 0; i < results.length; i++)
+                assertEquals(expression.evaluateAsDouble(x[i], y[i]), results[i], 0.0);
+        }
+
+        double[] constants = new double[3];
+        doubleCalculator.compile("2 3 *").evaluateColumns(new double[0][], constants);
+        assertEquals(List.of(6.0, 6.0, 6.0), List.of(constants[0], constants[1], constants[2]));
+
+        DoubleCompiledExpression expression = doubleCalculator.compile("x y +", "x", "y");
+        IllegalArgumentException lengthException = assertThrows(IllegalArgumentException.class, () -> expression.evaluateColumns(x, new double[2]));
+        assertEquals("Wrong length of column of variable 'y': 2, expected: 2500", lengthException.getMessage());
+        IllegalArgumentException leftException = assertThrows(IllegalArgumentException.class,
+                () -> doubleCalculator.compile("x y", "x", "y").evaluateColumns(x, y));
+        assertEquals("Left on stack: [0.0]", leftException.getMessage());
+        ArithmeticException lackException = assertThrows(ArithmeticException.class,
+                () -> doubleCalculator.compile("x +", "x").evaluateColumns(x));
+        assertEquals("Lack of arguments for: + at position: 2", lackException.getMessage());
+    }
+
+    @Test
+    public void generateBytecode() {
+        var interpreted = new DoubleCalculatorImpl(new DoubleCalculatorContext(), 0, Integer.MAX_VALUE);
+        var generated = new DoubleCalculatorImpl(new DoubleCalculatorContext(), 0, 0);
+        var fromGeneratedCode = new ArrayList<Boolean>();
+        DoubleOperator probe = DoubleOperator.unary(a -> {
+            fromGeneratedCode.add(StackWalker.getInstance(StackWalker.Option.SHOW_HIDDEN_FRAMES)
+                    .walk(frames -> frames.anyMatch(frame -> frame.getClassName().contains("GeneratedProgram"))));
+            return a;
+        });
+        interpreted.getContext().addDoubleFunctionOrOperator("probe", probe);
+        generated.getContext().addDoubleFunctionOrOperator("probe", probe);
+
+        var equations = List.of("x y * x y - / pi + 2 sqrt x y fma -", "x probe 2 pow y hypot e /", "x y min 1.5 max probe", "x y /");
+        for (var equation : equations) {
+            DoubleCompiledExpression expected = interpreted.compile(equation, "x", "y");
+            DoubleCompiledExpression actual = generated.compile(equation, "x", "y");
+            for (double x = -2; x <= 2; x += 0.5) {
+                for (double y = -1; y <= 3; y += 1) {
+                    assertEquals(expected.evaluateAsDouble(x, y), actual.evaluateAsDouble(x, y), 0.0);
+                }
+            }
+        }
+        assertTrue(fromGeneratedCode.contains(true));
+        assertTrue(fromGeneratedCode.contains(false));
+
+        // Invalid equations and equations with legacy operators stay interpreted
+        ArithmeticException lackException = assertThrows(ArithmeticException.class, () -> generated.calculate("1 +"));
+        assertEquals("Lack of arguments for: + at position: 2", lackException.getMessage());
+        IllegalArgumentException leftException = assertThrows(IllegalArgumentException.class, () -> generated.calculate("1 2"));
+        assertEquals("Left on stack: [1.0]", leftException.getMessage());
+        generated.getContext().addFunctionOrOperator("minus", a -> a.remove(1) - a.pop());
+        assertEquals(Double.valueOf(-1), generated.calculate("1 2 minus"));
+
+        assertThrows(IllegalArgumentException.class, () -> new DoubleCalculatorImpl(new DoubleCalculatorContext(), 0, -1));
+    }
+
+    @Test
+    public void optimizeEquation() {
+        for (var compileThreshold : List.of(0, Integer.MAX_VALUE)) {
+            var optimized = new DoubleCalculatorImpl(new DoubleCalculatorContext(), 0, compileThreshold);
+            var calls = new AtomicInteger();
+            optimized.getContext().addDoubleFunctionOrOperator("pure", DoubleOperator.unary(a -> calls.incrementAndGet() + a));
+            optimized.getContext().addImpureDoubleFunctionOrOperator("impure", DoubleOperator.unary(a -> calls.incrementAndGet() + a));
+
+            // Constants are folded at compile time
+            DoubleCompiledExpression folded = optimized.compile("2 pi * 360 / 0 pure * x +", "x");
+            assertEquals(1, calls.getAndSet(0));
+            assertEquals(2 * Math.PI / 360 * 1 + 5, folded.evaluateAsDouble(5), 0.0);
+            assertEquals(0, calls.get());
+
+            // Common subexpressions are evaluated once
+            DoubleCompiledExpression shared = optimized.compile("x y * pure x y * pure + x y * pure *", "x", "y");
+            assertEquals(2 * (1 + 6.0) * (1 + 6.0), shared.evaluateAsDouble(2, 3), 0.0);
+            assertEquals(1, calls.getAndSet(0));
+            // Functions are applied to columns row by row
+            assertArrayEquals(new double[]{2 * 2.0 * 2, 2 * 3.0 * 3}, shared.evaluateColumns(new double[]{1, 1}, new double[]{1, 1}), 0.0);
+            assertEquals(2, calls.getAndSet(0));
+
+            // Impure functions are evaluated every time
+            DoubleCompiledExpression impure = optimized.compile("1 impure 1 impure +");
+            assertEquals(2 + 3, impure.evaluateAsDouble(), 0.0);
+            assertEquals(4 + 5, impure.evaluateAsDouble(), 0.0);
+
+            // Errors are reported the same way
+            ArithmeticException lackException = assertThrows(ArithmeticException.class, () -> optimized.calculate("1 2 pure * +"));
+            assertEquals("Lack of arguments for: + at position: 5", lackException.getMessage());
+            IllegalArgumentException leftException = assertThrows(IllegalArgumentException.class, () -> optimized.calculate("1 pi 2 *"));
+            assertEquals("Left on stack: [1.0]", leftException.getMessage());
+        }
+    }
+
+    @Test
+    public void calculateBatch() {
+        var equations = IntStream.range(0, 10_000)
+                .mapToObj(i -> i % 1000 == 7 ? i + " +" : i + " 2 *")
+                .collect(Collectors.toList());
+
+        var pool = new ForkJoinPool(4);
+        try {
+            var batch = CalculatorBatch.of(Double.class, pool);
+            var results = batch.calculate(equations);
+            assertEquals(equations.size(), results.size());
+            for (int i = 0; i < results.size(); i++) {
+                var result = results.get(i);
+                assertEquals(equations.get(i), result.getEquation());
+                if (i % 1000 == 7) {
+                    assertFalse(result.isSuccess());
+                    assertEquals("Lack of arguments for: + at position: 2", result.getError().getMessage());
+                    assertThrows(NoSuchElementException.class, result::getValue);
+                } else {
+                    assertTrue(result.isSuccess());
+                    assertEquals(Double.valueOf(i * 2), result.getValue());
+                }
+            }
+
+            assertEquals(List.of(4.0, 6.0), batch.calculate(Stream.of("2 2 +", "3 3 +")).stream()
+                    .map(CalculationResult::getValue).collect(Collectors.toList()));
+            assertEquals(Double.valueOf(1), batch.calculate(List.of("1").iterator()).get(0).getValue());
+            assertTrue(batch.calculate(List.of()).isEmpty());
+
+            // Exceptions thrown by functions or operators are returned as well
+            var checkedContext = new DoubleCalculatorContext();
+            checkedContext.addDoubleFunctionOrOperator("check", DoubleOperator.unary(a -> {
+                if (a < 0)
+                    throw new ArithmeticException("Negative");
+                return a;
+            }));
+            var checked = new DoubleCalculatorImpl(checkedContext);
+            var failed = CalculatorBatch.of(checked, pool).calculate(List.of("-1 check")).get(0);
+            assertFalse(failed.isSuccess());
+            assertNull(failed.getError());
+            assertEquals("Negative", failed.getException().getMessage());
+            assertThrows(ArithmeticException.class, failed::getValue);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void calculateCharSequence() {
+        var doubleCalculator = CalculatorSupplier.INSTANCE.getDoubleCalculator();
+        var buffer = CharBuffer.wrap("[2 3 * 1.5 +][0.5 sqrt]");
+        assertEquals(7.5, doubleCalculator.calculateAsDouble(buffer, 1, 11), 0.0);
+        assertEquals(Double.valueOf(7.5), doubleCalculator.calculate(buffer, 1, 11));
+        assertEquals(Math.sqrt(0.5), doubleCalculator.calculateAsDouble("[2 3 * 1.5 +][0.5 sqrt]".toCharArray(), 14, 8), 0.0);
+        assertEquals(4.0, doubleCalculator.calculateAsDouble(new StringBuilder("2 2 +")), 0.0);
+
+        // Legacy and impure functions or operators are calculated the same way as for String, and only once
+        assertEquals(Double.valueOf(3), doubleCalculator.calculate(new StringBuilder("12 4 ÷")));
+        assertEquals(Double.valueOf(5), doubleCalculator.calculate(new StringBuilder("2 12 4 ÷ +")));
+        var counter = new AtomicInteger();
+        var pureCounter = new AtomicInteger();
+        var impureCalculator = new DoubleCalculatorImpl(new DoubleCalculatorContext());
+        impureCalculator.getContext().addImpureDoubleFunctionOrOperator("next", DoubleOperator.nullary(counter::incrementAndGet));
+        impureCalculator.getContext().addDoubleFunctionOrOperator("counted", DoubleOperator.unary(a -> a + pureCounter.incrementAndGet()));
+        assertEquals(2.0, impureCalculator.calculateAsDouble(new StringBuilder("next 1 +")), 0.0);
+        assertEquals(1, counter.get());
+        assertEquals(4.0, impureCalculator.calculateAsDouble(new StringBuilder("1 counted next +")), 0.0);
+        assertEquals(2, counter.get());
+        assertEquals(1, pureCounter.get());
+
+        ArithmeticException exception = assertThrows(ArithmeticException.class, () -> doubleCalculator.calculateAsDouble(new StringBuilder("1 2 + +")));
+        assertEquals("Lack of arguments for: + at position: 4", exception.getMessage());
+        for (var equation : List.of("", "1 0 %", "-1 sqrt bad", "1 2 3", "1 + 2 bad", "1 2 ÷ +", "1 ÷", "1 2 ÷ bad", "1 0 % 2 ÷ +")) {
+            RuntimeException expected = assertThrows(RuntimeException.class, () -> doubleCalculator.calculateAsDouble(equation));
+            RuntimeException actual = assertThrows(RuntimeException.class, () -> doubleCalculator.calculateAsDouble(new StringBuilder(equation)));
+            assertEquals(expected.getClass(), actual.getClass());
+            assertEquals(expected.getMessage(), actual.getMessage());
+        }
+    }
+
+    @Test
+    public void calculateFile() throws Exception {
+        var equations = List.of("2 2 +", "", "1 +", "1 2 3 4 5 6 7 8 9 10 11 + + + + + + + + + +", "12 4 ÷",
+                "4 2 −\r", "1 2", "pi 2 *", "3 bad", "0.5 sqrt");
+        var input = Files.createTempFile("equations", ".txt");
+        var output = Files.createTempFile("results", ".txt");
+        try {
+            Files.writeString(input, String.join("\n", equations));
+            var expected = equations.stream().map(equation -> {
+                try {
+                    return String.valueOf(calculator.calculate(equation));
+                } catch (RuntimeException e) {
+                    return BulkFileCalculator.ERROR_PREFIX + e.getMessage();
+                }
+            }).collect(Collectors.toList());
+
+            var pool = new ForkJoinPool(4);
+            try {
+                assertEquals(equations.size(), BulkFileCalculator.of(calculator, pool, 16).calculate(input, output));
+                assertEquals(expected, Files.readAllLines(output));
+            } finally {
+                pool.shutdown();
+            }
+
+            assertEquals(equations.size(), BulkFileCalculator.sequential(calculator).calculate(input, output));
+            assertEquals(expected, Files.readAllLines(output));
+
+            Files.writeString(input, "");
+            assertEquals(0, BulkFileCalculator.of(Double.class).calculate(input, output));
+            assertEquals(0, Files.size(output));
+        } finally {
+            Files.delete(input);
+            Files.delete(output);
+        }
+    }
+
+    @Test
+    public void calculateWithExecutor() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        Callable<Double> blocking = () -> {
+            started.countDown();
+            release.await();
+            return calculator.calculate("2 2 +");
+        };
+
+        try (var executor = CalculatorExecutor.platform(1, 1, CalculatorExecutor.OverflowPolicy.REJECT)) {
+            var first = executor.submit(blocking);
+            started.await();
+            var second = executor.submit(Double.class, "3 3 *");
+            assertEquals(1, executor.getStats().getQueueDepth());
+            assertEquals(1, executor.getStats().getActive());
+            RejectedExecutionException exception = assertThrows(RejectedExecutionException.class, () -> executor.submit(Double.class, "1"));
+            assertEquals("Calculator executor is full: 2 evaluations waiting or running", exception.getMessage());
+
+            release.countDown();
+            assertEquals(Double.valueOf(4), first.get());
+            assertEquals(Double.valueOf(9), second.get());
+            assertEquals(Double.valueOf(1), executor.submit(Double.class, "1").get());
+
+            var stats = executor.getStats();
+            assertEquals(3, stats.getSubmitted());
+            assertEquals(1, stats.getRejected());
+            assertEquals(1, stats.getMaxQueueDepth());
+            assertEquals(2, stats.getCapacity());
+            assertTrue(stats.getMaxWaitNanos() > 0);
+        }
+
+        // Evaluation cancelled while waiting for thread gives back its place at once
+        var running = new CountDownLatch(1);
+        var finish = new CountDownLatch(1);
+        try (var executor = CalculatorExecutor.platform(1, 1, CalculatorExecutor.OverflowPolicy.REJECT)) {
+            var first = executor.submit(() -> {
+                running.countDown();
+                finish.await();
+                return 1.0;
+            });
+            running.await();
+            var cancelled = executor.submit(Double.class, "3 3 *");
+            Future<Double> third;
+            try {
+                assertTrue(cancelled.cancel(false));
+                assertEquals(0, executor.getStats().getQueueDepth());
+                third = executor.submit(Double.class, "2 3 *");
+            } finally {
+                finish.countDown();
+            }
+            assertEquals(Double.valueOf(1), first.get());
+            assertEquals(Double.valueOf(6), third.get());
+            assertThrows(CancellationException.class, cancelled::get);
+            assertEquals(0, executor.getStats().getQueueDepth());
+            assertEquals(3, executor.getStats().getSubmitted());
+        }
+
+        try (var executor = CalculatorExecutor.virtual(2, CalculatorExecutor.OverflowPolicy.BLOCK)) {
+            assertEquals(CalculatorExecutor.isVirtualThreadsSupported(), executor.isVirtual());
+            var futures = IntStream.range(0, 100)
+                    .mapToObj(i -> executor.submit(Double.class, i + " 1 +"))
+                    .collect(Collectors.toList());
+            for (int i = 0; i < futures.size(); i++)
+                assertEquals(Double.valueOf(i + 1), futures.get(i).get());
+            assertEquals(100, executor.getStats().getSubmitted());
+            assertEquals(0, executor.getStats().getRejected());
+        }
+    }
+
+    @Test
+    public void calculateWithMetrics() {
+        var metrics = new CalculationMetrics();
+        var measuredCalculator = new DoubleCalculatorImpl(new DoubleCalculatorContext(), 16, 0, metrics);
+        var counter = new AtomicInteger();
+        measuredCalculator.getContext().addImpureDoubleFunctionOrOperator("next", DoubleOperator.nullary(counter::incrementAndGet));
+
+        for (int i = 0; i < 3; i++)
+            assertEquals(4 * i + 3, measuredCalculator.calculate("next next +"), 0.0);
+        assertEquals(7.0, measuredCalculator.calculateAsDouble("2 5 +"), 0.0);
+        assertEquals(8.0, measuredCalculator.calculate(new StringBuilder("next 1 +")), 0.0);
+        assertEquals(5, metrics.getCalculations());
+        assertEquals(15, metrics.getTotalTokens());
+        assertEquals(2, metrics.getMaxStackDepth());
+        assertTrue(metrics.getMaxNanos() > 0);
+        assertEquals(Set.of("+", "next"), metrics.getOperatorNames());
+        assertEquals(7, metrics.getOperatorInvocations("next"));
+        // Constant equation is calculated once, when it's compiled
+        assertEquals(5, metrics.getOperatorInvocations("+"));
+        assertEquals(0, metrics.getOperatorInvocations("-"));
+
+        assertThrows(ArithmeticException.class, () -> measuredCalculator.calculate("2 +"));
+        assertThrows(IllegalArgumentException.class, () -> measuredCalculator.calculate("2 3"));
+        assertThrows(IllegalArgumentException.class, () -> measuredCalculator.calculateAsDouble("2 unknown +"));
+        assertThrows(IllegalArgumentException.class, () -> measuredCalculator.calculate(""));
+        assertEquals(1, metrics.getErrors(Messages.LACK_OF_ARGUMENTS));
+        assertEquals(1, metrics.getErrors(Messages.LEFT_ON_STACK));
+        assertEquals(1, metrics.getErrors(Messages.BAD_ITEM));
+        assertEquals(1, metrics.getErrors(Messages.EMPTY_EQUATION));
+        assertEquals(0, metrics.getErrors(null));
+        assertEquals(4, metrics.getErrors());
+        assertEquals(Messages.BAD_ITEM, measuredCalculator.tryCalculate("2 unknown +").getError().getType());
+        assertEquals(2, metrics.getErrors(Messages.BAD_ITEM));
+        assertEquals(5, metrics.getCalculations());
+
+        // N-ary operators of any arity are measured as well
+        var naryContext = new DoubleCalculatorContext();
+        naryContext.addNaryOperator("zero", 0, args -> 0.0);
+        naryContext.addNaryOperator("twice", 1, args -> args.get(0) * 2);
+        naryContext.addNaryOperator("sum2", 2, args -> args.get(0) + args.get(1));
+        naryContext.addNaryOperator("sum3", 3, args -> args.get(0) + args.get(1) + args.get(2));
+        var naryMetrics = new CalculationMetrics();
+        var naryCalculator = new CalculatorImpl<>(naryContext, 16, 10_000, naryMetrics);
+        assertEquals(Double.valueOf(11), naryCalculator.calculate("1 2 sum2 twice zero 5 sum3"));
+        for (var name : List.of("zero", "twice", "sum2", "sum3"))
+            assertEquals(1, naryMetrics.getOperatorInvocations(name));
+    }
+
+    @Test
+    public void calculateWithFrozenContext() {
+        var context = new DoubleCalculatorContext();
+        context.addDoubleFunctionOrOperator("%", DoubleOperator.binary((a, b) -> a % b));
+        context.addBinaryOperator("avg", (a, b) -> (a + b) / 2);
+        var names = context.getAvailableFunctionsAndOperators();
+        var operators = names.stream().collect(Collectors.toMap(name -> name, context::lookupOperator));
+        var doubleOperators = names.stream()
+                .filter(name -> context.lookupDoubleOperator(name) != null)
+                .collect(Collectors.toMap(name -> name, context::lookupDoubleOperator));
+
+        assertFalse(context.isFrozen());
+        assertSame(context, context.freeze());
+        assertTrue(context.isFrozen());
+        for (var name : names) {
+            assertSame(operators.get(name), context.lookupOperator(name));
+            assertSame(doubleOperators.get(name), context.lookupDoubleOperator(name));
+        }
+        assertEquals(Optional.empty(), context.getOperator("unknown"));
+        assertNull(context.lookupOperator("#"));
+        assertNull(context.lookupDoubleOperator("avg"));
+        assertThrows(UnsupportedOperationException.class, () -> context.addBinaryOperator("avg", (a, b) -> a));
+        assertThrows(UnsupportedOperationException.class,
+                () -> context.addDoubleFunctionOrOperator("two", DoubleOperator.constant(2)));
+        assertEquals(names, context.getAvailableFunctionsAndOperators());
+
+        var frozenCalculator = new DoubleCalculatorImpl(context);
+        assertEquals(1.5, frozenCalculator.calculate("7 4 % 0 avg"), 0.0);
+        assertEquals(5.0, frozenCalculator.calculateAsDouble(CharBuffer.wrap("2 3 * 1 -")), 0.0);
+    }
+
+    @Test
+    public void calculateWithDerivedContext() {
+        var base = new DoubleCalculatorContext().freeze();
+        var tenant = DerivedDoubleCalculatorContext.of(base);
+        tenant.addDoubleFunctionOrOperator("%", DoubleOperator.binary((a, b) -> a % b));
+        tenant.addBinaryOperator("*", (a, b) -> a * b * 2);
+        var derived = DerivedDoubleCalculatorContext.of(tenant).freeze();
+
+        assertSame(base, derived.getBase());
+        assertSame(base.lookupDoubleOperator("+"), derived.lookupDoubleOperator("+"));
+        assertSame(tenant.lookupDoubleOperator("%"), derived.lookupDoubleOperator("%"));
+        // Boxed operator hides primitive one of base context
+        assertNull(derived.lookupDoubleOperator("*"));
+        assertNull(derived.lookupDoubleOperator("unknown"));
+
+        var derivedCalculator = new DoubleCalculatorImpl(derived);
+        assertEquals(-1.0, derivedCalculator.calculateAsDouble("7 3 % 2 -"), 0.0);
+        assertEquals(12.0, derivedCalculator.calculateAsDouble("2 3 *"), 0.0);
+        assertEquals(6.0, new DoubleCalculatorImpl(base).calculateAsDouble("2 3 *"), 0.0);
+        assertThrows(UnsupportedOperationException.class, () -> derived.addDoubleFunctionOrOperator("%", DoubleOperator.add()));
+    }
+
     //    @Test
     public void performance() {
 //        multiThread();